@@ -94,7 +94,7 @@ public class CondJump extends Instruction {
      * @return String texte de l'instruction
      */
     public String toString() {
-        return this.label+ (this.label==""?"":": ") + this.name + " R" + sr1 + " R" + sr2 + " " + address + "\n";
+        return labelPrefix() + this.name + " R" + sr1 + " R" + sr2 + " " + address + "\n";
     }
 
     
@@ -45,6 +45,6 @@ public class IO extends Instruction {
      * @return String texte de l'instruction
      */
     public String toString() {
-        return this.label+ (this.label==""?"":": ") + this.name + " R" + reg + "\n";
+        return labelPrefix() + this.name + " R" + reg + "\n";
     } 
 }
@@ -1,7 +1,11 @@
 package Asm;
+import java.util.ArrayList;
+import java.util.List;
 public abstract class Instruction {
     protected String label;
     protected String name;
+    // Autres labels de l'instruction (alias du premier), vide si l'instruction a au plus un label
+    private ArrayList<String> aliases = new ArrayList<String>();
 
     /** 
      * Constructeur
@@ -23,11 +27,59 @@ public abstract class Instruction {
     }
 
     /**
-     * Setter du label de l'instruction
-     * @param label label de l'instruction
+     * Setter du label de l'instruction : remplace tous ses labels (alias compris)
+     * @param label label de l'instruction ("" pour aucun)
      */
     public void setLabel(String label) {
         this.label = label;
+        this.aliases.clear();
+    }
+
+    /**
+     * Ajoute un label à l'instruction. Si elle en a déjà un, le nouveau label en devient un alias :
+     * le premier label reste celui de getLabel().
+     * @param label label à ajouter
+     */
+    public void addLabel(String label) {
+        if (this.label == null || this.label.isEmpty()) {
+            this.label = label;
+        } else if (!getLabels().contains(label)) {
+            this.aliases.add(label);
+        }
+    }
+
+    /**
+     * Tous les labels de l'instruction, le premier étant celui de getLabel()
+     * @return List<String> vide si l'instruction n'a pas de label
+     */
+    public List<String> getLabels() {
+        List<String> labels = new ArrayList<String>();
+        if (this.label != null && !this.label.isEmpty()) {
+            labels.add(this.label);
+            labels.addAll(this.aliases);
+        }
+        return labels;
+    }
+
+    /**
+     * Remplace les labels de l'instruction par ceux d'une autre (alias compris)
+     * @param other instruction dont on copie les labels
+     */
+    public void copyLabels(Instruction other) {
+        setLabel(other.getLabel());
+        this.aliases.addAll(other.aliases);
+    }
+
+    /**
+     * Début du texte de l'instruction : ses labels, chacun suivi de ": "
+     * @return String vide si l'instruction n'a pas de label
+     */
+    protected String labelPrefix() {
+        String result = "";
+        for (String l : getLabels()) {
+            result += l + ": ";
+        }
+        return result;
     }
 
     /**
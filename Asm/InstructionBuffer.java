@@ -0,0 +1,144 @@
+package Asm;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+/**
+ * Suite d'instructions à laquelle on ne fait qu'ajouter à la fin, représentée par une corde :
+ * une liste de segments, chacun étant soit un morceau d'instructions ajoutées une à une,
+ * soit un autre buffer ajouté en entier.
+ * Ajouter un buffer ne recopie pas ses instructions : il devient partagé (isShared()) et ne peut
+ * plus être modifié. Les instructions ne sont recopiées qu'une fois, par copyTo(), quand on a
+ * besoin de la liste complète.
+ */
+public class InstructionBuffer {
+    // Buffer ajouté en entier, ou morceau d'instructions (chunk non null, jamais partagé)
+    private ArrayList<InstructionBuffer> segments;
+    private ArrayList<Instruction> chunk;
+
+    private int size = 0;
+    private Instruction first = null;
+    private Instruction last = null;
+    private boolean shared = false;
+
+    /**
+     * Constructeur d'un buffer vide
+     */
+    public InstructionBuffer() {
+        this.segments = new ArrayList<InstructionBuffer>();
+    }
+
+    private InstructionBuffer(ArrayList<Instruction> chunk) {
+        this.chunk = chunk;
+    }
+
+    /**
+     * Ajoute une instruction à la fin du buffer
+     * @param instruction Instruction à ajouter
+     */
+    public void append(Instruction instruction) {
+        checkWritable();
+        InstructionBuffer tail = segments.isEmpty() ? null : segments.getLast();
+        if (tail == null || tail.chunk == null) {
+            tail = new InstructionBuffer(new ArrayList<Instruction>());
+            segments.add(tail);
+        }
+        tail.chunk.add(instruction);
+        tail.size++;
+        added(instruction, instruction, 1);
+    }
+
+    /**
+     * Ajoute un buffer en entier à la fin de this, sans recopier ses instructions.
+     * Il devient partagé : on ne peut plus rien lui ajouter.
+     * @param buffer buffer à ajouter
+     */
+    public void append(InstructionBuffer buffer) {
+        checkWritable();
+        if (buffer == this) {
+            throw new RuntimeException("(Asm.InstructionBuffer) Un buffer ne peut pas être ajouté à lui-même");
+        }
+        if (buffer.size == 0) return;
+        buffer.shared = true;
+        segments.add(buffer);
+        added(buffer.first, buffer.last, buffer.size);
+    }
+
+    /**
+     * Ajoute une copie d'une liste d'instructions à la fin du buffer
+     * (la liste peut ensuite être modifiée sans changer le buffer)
+     * @param instructions instructions à ajouter
+     */
+    public void appendAll(List<Instruction> instructions) {
+        checkWritable();
+        if (instructions.isEmpty()) return;
+        InstructionBuffer copy = new InstructionBuffer(new ArrayList<Instruction>(instructions));
+        copy.size = instructions.size();
+        segments.add(copy);
+        added(instructions.getFirst(), instructions.getLast(), instructions.size());
+    }
+
+    private void checkWritable() {
+        if (shared) {
+            throw new RuntimeException("(Asm.InstructionBuffer) Ajout à un buffer partagé");
+        }
+    }
+
+    private void added(Instruction firstAdded, Instruction lastAdded, int count) {
+        if (size == 0) first = firstAdded;
+        last = lastAdded;
+        size += count;
+    }
+
+    /**
+     * Nombre d'instructions du buffer
+     * @return int
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Première instruction du buffer
+     * @return Instruction, null si le buffer est vide
+     */
+    public Instruction getFirst() {
+        return first;
+    }
+
+    /**
+     * Dernière instruction du buffer
+     * @return Instruction, null si le buffer est vide
+     */
+    public Instruction getLast() {
+        return last;
+    }
+
+    /**
+     * Indique si le buffer a été ajouté à un autre (il ne peut plus être modifié)
+     * @return boolean
+     */
+    public boolean isShared() {
+        return shared;
+    }
+
+    /**
+     * Recopie les instructions du buffer, dans l'ordre, à la fin d'une liste.
+     * Le parcours de la corde se fait avec une pile : sa profondeur n'est pas limitée par celle
+     * de la pile d'appels.
+     * @param list liste à compléter
+     */
+    public void copyTo(List<Instruction> list) {
+        ArrayDeque<InstructionBuffer> pending = new ArrayDeque<InstructionBuffer>();
+        pending.push(this);
+        while (!pending.isEmpty()) {
+            InstructionBuffer buffer = pending.pop();
+            if (buffer.chunk != null) {
+                list.addAll(buffer.chunk);
+                continue;
+            }
+            for (int k = buffer.segments.size() - 1; k >= 0; k--) {
+                pending.push(buffer.segments.get(k));
+            }
+        }
+    }
+}
@@ -47,6 +47,6 @@ public class JumpCall extends Instruction{
      * @return String texte de l'instruction
      */
     public String toString() {
-        return this.label+ (this.label==""?"":": ") + this.name + " " + address + "\n";
+        return labelPrefix() + this.name + " " + address + "\n";
     } 
 }
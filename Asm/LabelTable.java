@@ -0,0 +1,104 @@
+package Asm;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+/**
+ * Table des labels d'une liste d'instructions, construite en un seul passage.
+ * Chaque label reçoit un numéro compact (0, 1, 2... dans l'ordre des instructions qui le portent,
+ * alias compris) ; la table donne en temps constant l'indice de l'instruction d'un label et
+ * l'indice de la cible de chaque saut, sans rechercher le label à chaque utilisation.
+ * Si plusieurs instructions portent le même label, la première l'emporte.
+ */
+public final class LabelTable {
+    private final HashMap<String, Integer> ids;
+    private final ArrayList<String> names;
+    // Numéro du label -> indice de l'instruction qui le porte
+    private final int[] indices;
+    // Indice d'une instruction -> indice de la cible de son saut (JMP, CALL ou saut conditionnel), -1 sinon
+    private final int[] targets;
+
+    /**
+     * Constructeur
+     * @param instructions instructions du programme
+     */
+    public LabelTable(List<Instruction> instructions) {
+        this.ids = new HashMap<String, Integer>();
+        this.names = new ArrayList<String>();
+        ArrayList<Integer> indexList = new ArrayList<Integer>();
+        for (int k = 0; k < instructions.size(); k++) {
+            for (String label : instructions.get(k).getLabels()) {
+                if (!ids.containsKey(label)) {
+                    ids.put(label, names.size());
+                    names.add(label);
+                    indexList.add(k);
+                }
+            }
+        }
+        this.indices = new int[indexList.size()];
+        for (int id = 0; id < indices.length; id++) {
+            indices[id] = indexList.get(id);
+        }
+
+        this.targets = new int[instructions.size()];
+        for (int k = 0; k < instructions.size(); k++) {
+            Instruction i = instructions.get(k);
+            String address = i instanceof JumpCall jc ? jc.getAddress() : i instanceof CondJump cj ? cj.getAddress() : null;
+            targets[k] = address == null ? -1 : getIndex(address);
+        }
+    }
+
+    /**
+     * Nombre de labels différents
+     * @return int
+     */
+    public int size() {
+        return names.size();
+    }
+
+    /**
+     * Numéro d'un label
+     * @param label le label
+     * @return son numéro, -1 si aucune instruction ne le porte
+     */
+    public int getId(String label) {
+        return ids.getOrDefault(label, -1);
+    }
+
+    /**
+     * Label correspondant à un numéro
+     * @param id numéro du label
+     * @return String le label
+     */
+    public String getName(int id) {
+        return names.get(id);
+    }
+
+    /**
+     * Indice de l'instruction qui porte un label
+     * @param id numéro du label
+     * @return l'indice de l'instruction
+     */
+    public int getIndex(int id) {
+        return indices[id];
+    }
+
+    /**
+     * Indice de l'instruction qui porte un label
+     * @param label le label
+     * @return l'indice de l'instruction, -1 si aucune instruction ne porte ce label
+     */
+    public int getIndex(String label) {
+        int id = getId(label);
+        return id < 0 ? -1 : indices[id];
+    }
+
+    /**
+     * Cible du saut d'une instruction
+     * @param index indice de l'instruction
+     * @return l'indice de l'instruction visée par son JMP, CALL ou saut conditionnel,
+     * -1 si ce n'est pas un saut ou si son label n'existe pas
+     */
+    public int getTarget(int index) {
+        return targets[index];
+    }
+}
@@ -67,7 +67,7 @@ public class Mem extends Instruction{
      * @return String texte de l'instruction
      */
     public String toString() {
-        return this.label+ (this.label==""?"":": ") + this.name + " R" + dest + " R" + address + "\n";
+        return labelPrefix() + this.name + " R" + dest + " R" + address + "\n";
     }
     
 }
\ No newline at end of file
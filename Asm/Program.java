@@ -1,18 +1,81 @@
 package Asm;
 import java.util.ArrayList;
+import java.util.HashMap;
 /**
  * Ceci est une classe permettant de représenter un programme.
  */
 public class Program {
+    // Instructions ajoutées tant que la liste n'a pas été demandée : les programmes imbriqués
+    // (CodeGenerator) sont ajoutés sans recopie, la liste n'est construite qu'une fois
+    private InstructionBuffer buffer;
+    // Liste des instructions, null jusqu'au premier appel de getInstructions()
     private ArrayList<Instruction> instructions;
+    // Labels en attente : ils seront posés sur la prochaine instruction ajoutée
+    private ArrayList<String> pendingLabels;
+    // Nombre de paramètres de chaque fonction (label d'entrée -> nombre), donné par CodeGenerator :
+    // l'allocateur en déduit les arguments empilés avant chaque CALL et le prologue de chaque fonction
+    private HashMap<String, Integer> parameterCounts;
+    private int modCount = 0;
   
     /** 
      * Getter de la liste d'instructions
      * @return ArrayList<Instruction> contenant les instructions du programme
      */
     public ArrayList<Instruction> getInstructions() {
+        if (this.instructions == null) {
+            this.instructions = new ArrayList<Instruction>(buffer.size());
+            buffer.copyTo(this.instructions);
+            this.buffer = null;
+        }
         return instructions;
     }
+
+    /**
+     * Nombre d'instructions du programme (sans construire la liste)
+     * @return int
+     */
+    public int size() {
+        return instructions != null ? instructions.size() : buffer.size();
+    }
+
+    /**
+     * Indique si le programme n'a aucune instruction (sans construire la liste)
+     * @return boolean
+     */
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Première instruction du programme (sans construire la liste)
+     * @return Instruction, null si le programme est vide
+     */
+    public Instruction getFirst() {
+        if (instructions != null) return instructions.isEmpty() ? null : instructions.getFirst();
+        return buffer.getFirst();
+    }
+
+    /**
+     * Dernière instruction du programme (sans construire la liste)
+     * @return Instruction, null si le programme est vide
+     */
+    public Instruction getLast() {
+        if (instructions != null) return instructions.isEmpty() ? null : instructions.getLast();
+        return buffer.getLast();
+    }
+
+    /**
+     * Buffer auquel ajouter : s'il a été partagé par addInstructions, on en commence un nouveau
+     * qui le contient, pour ne pas modifier le programme auquel il a été ajouté
+     */
+    private InstructionBuffer writableBuffer() {
+        if (buffer.isShared()) {
+            InstructionBuffer shared = buffer;
+            buffer = new InstructionBuffer();
+            buffer.append(shared);
+        }
+        return buffer;
+    }
   
     
     /** 
@@ -20,28 +83,138 @@ public class Program {
      * @param instruction Instruction à ajouter
      */
     public void addInstruction(Instruction instruction) {
-        this.instructions.add(instruction);
+        bindPendingLabels(instruction);
+        if (this.instructions != null) {
+            this.instructions.add(instruction);
+        } else {
+            writableBuffer().append(instruction);
+        }
+        this.modCount++;
+    }
+
+    /**
+     * Ajoute un label sur la prochaine instruction ajoutée à this (par addInstruction ou
+     * addInstructions). Si plusieurs labels sont en attente, ou si cette instruction a déjà
+     * un label, l'instruction a plusieurs labels (alias).
+     * @param label label à poser
+     */
+    public void addLabel(String label) {
+        this.pendingLabels.add(label);
+        this.modCount++;
+    }
+
+    /**
+     * Getter des labels en attente (posés par addLabel après la dernière instruction)
+     * @return ArrayList<String> vide si tous les labels sont sur une instruction
+     */
+    public ArrayList<String> getPendingLabels() {
+        return pendingLabels;
+    }
+
+    private void bindPendingLabels(Instruction instruction) {
+        for (String label : this.pendingLabels) {
+            instruction.addLabel(label);
+        }
+        this.pendingLabels.clear();
+    }
+
+    /**
+     * Enregistre le nombre de paramètres d'une fonction : ses appels empilent autant d'arguments
+     * (ADDi R1 R1 -1 / ST a R1) juste avant le CALL, et son prologue les dépile (ADDi R1 R1 1)
+     * @param function label d'entrée de la fonction
+     * @param count nombre de paramètres
+     */
+    public void setParameterCount(String function, int count) {
+        this.parameterCounts.put(function, count);
+    }
+
+    /**
+     * Nombre de paramètres d'une fonction
+     * @param function label d'entrée de la fonction
+     * @return le nombre enregistré par setParameterCount, 0 si la fonction n'en a pas
+     */
+    public int getParameterCount(String function) {
+        return this.parameterCounts.getOrDefault(function, 0);
+    }
+
+    /**
+     * Getter des nombres de paramètres des fonctions
+     * @return HashMap<String, Integer> label d'entrée -> nombre de paramètres
+     */
+    public HashMap<String, Integer> getParameterCounts() {
+        return parameterCounts;
+    }
+
+    /**
+     * Recopie les nombres de paramètres des fonctions de program
+     * (pour un programme réécrit à partir de program)
+     * @param program programme d'origine
+     */
+    public void addParameterCounts(Program program) {
+        this.parameterCounts.putAll(program.parameterCounts);
     }
 
     
     /** 
      * Ajoute toutes les instructions de program à la fin de this.
+     * Les labels en attente de this vont sur la première d'entre elles, et ceux de program
+     * restent en attente dans this, comme ses nombres de paramètres.
+     * Si la liste d'instructions de program n'a pas été demandée, ses instructions ne sont pas
+     * recopiées : son buffer est partagé avec this.
      * @param program Programme contenant les instructions à ajouter
      */
     public void addInstructions(Program program) {
-        this.instructions.addAll(program.getInstructions());
+        if (!program.isEmpty()) {
+            bindPendingLabels(program.getFirst());
+        }
+        if (this.instructions != null) {
+            if (program.instructions != null) {
+                this.instructions.addAll(program.instructions);
+            } else {
+                program.buffer.copyTo(this.instructions);
+            }
+        } else if (program.instructions != null) {
+            writableBuffer().appendAll(program.instructions);
+        } else {
+            writableBuffer().append(program.buffer);
+        }
+        this.pendingLabels.addAll(program.getPendingLabels());
+        this.parameterCounts.putAll(program.parameterCounts);
+        this.modCount++;
+    }
+
+    /**
+     * Compteur de modifications du programme, utilisé par les analyses pour
+     * savoir si leurs résultats sont encore valides.
+     * Les modifications faites directement sur la liste de getInstructions()
+     * doivent être signalées avec markModified().
+     * @return int nombre de modifications depuis la création
+     */
+    public int getModCount() {
+        return modCount;
+    }
+
+    /**
+     * Signale une modification faite directement sur la liste d'instructions
+     */
+    public void markModified() {
+        this.modCount++;
     }
 
     
     /** 
      * Convertit le programme en String pour l'affichage
+     * (les labels en attente sont affichés seuls, sur une ligne à la fin)
      * @return String contenant les instructions du programme
      */
     public String toString() {
         String result = "";
-        for (Instruction instr : instructions) {
+        for (Instruction instr : getInstructions()) {
             result += instr.toString();
         }
+        for (String label : pendingLabels) {
+            result += label + ":\n";
+        }
         return result;
     }
 
@@ -49,6 +222,8 @@ public class Program {
      * Constructeur
      */
     public Program() {
-        this.instructions = new ArrayList<Instruction>();
+        this.buffer = new InstructionBuffer();
+        this.pendingLabels = new ArrayList<String>();
+        this.parameterCounts = new HashMap<String, Integer>();
     }   
 }
@@ -19,6 +19,6 @@ public class Ret extends Instruction{
      * @return String texte de l'instruction
      */
     public String toString() {
-        return this.label+ (this.label==""?"":": ") + this.name + "\n";
+        return labelPrefix() + this.name + "\n";
     } 
 }
@@ -22,6 +22,6 @@ public class Stop extends Instruction{
      * @return String texte de l'instruction
      */
     public String toString() {
-        return this.label+ (this.label==""?"":": ") + this.name + "\n";
+        return labelPrefix() + this.name + "\n";
     } 
 }
@@ -88,7 +88,7 @@ public class UAL extends Instruction{
      * @return String texte de l'instruction
      */
     public String toString() {
-        return this.label+ (this.label==""?"":": ") + this.name + " R" + dest + " R" + sr1 + " R" + sr2 + "\n";
+        return labelPrefix() + this.name + " R" + dest + " R" + sr1 + " R" + sr2 + "\n";
     }
     
 }
@@ -87,7 +87,7 @@ public class UALi extends Instruction{
      * @return String texte de l'instruction
      */
     public String toString() {
-        return this.label+ (this.label==""?"":": ") + this.name + "i R" + dest + " R" + sr + " " + imm + "\n";
+        return labelPrefix() + this.name + "i R" + dest + " R" + sr + " " + imm + "\n";
     }
     
 }
\ No newline at end of file
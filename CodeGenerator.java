@@ -20,8 +20,14 @@ public class CodeGenerator extends AbstractParseTreeVisitor<Program> implements
 
 
     private int registerCounter = 0; // Compteur de registre pour suivre leur utilisation
+    private int labelCounter = 0; // Compteur de labels, indépendant de la numérotation des registres
     private Map<String, Integer> variableRegisters = new HashMap<>(); // Table de symboles pour associer les variables à leurs registres
 
+    // Valeurs connues à la compilation : registre résultat d'une expression constante -> valeur
+    private final Map<Integer, Integer> constantRegisters = new HashMap<>();
+    // Variables dont la valeur est connue au point courant de la génération -> valeur
+    private Map<String, Integer> variableConstants = new HashMap<>();
+
     public CodeGenerator(Map<UnknownType, Type> types) {
         this.types = types;
     }
@@ -41,11 +47,23 @@ public class CodeGenerator extends AbstractParseTreeVisitor<Program> implements
     }
 
     /**
-     * Pour récuperer le dernier registre utilisé
-     * @return le numéro du dernier registre utilisé
+     * Génère un nouveau numéro de label unique, partagé par les labels d'une même construction
+     * (else.N et end_if.N par exemple).
+     * @return le numéro du nouveau label
+     */
+    private int newLabelId() {
+        return labelCounter++;
+    }
+
+    /**
+     * Label d'une construction. Le point ne peut pas apparaître dans un nom de variable ou de fonction,
+     * donc un label généré ne rencontre jamais le label d'une fonction.
+     * @param prefix nature du label (else, end_if, start_while...)
+     * @param id numéro donné par newLabelId()
+     * @return le label
      */
-    private int getLastUsedRegister() {
-        return registerCounter - 1;
+    private static String label(String prefix, int id) {
+        return prefix + "." + id;
     }
 
     /**
@@ -58,6 +76,318 @@ public class CodeGenerator extends AbstractParseTreeVisitor<Program> implements
         variableRegisters.put(varName, reg);
         return reg;
     }
+
+    /**
+     * Chargement d'une constante dans un registre (XOR pour la mise à zéro, puis ADDi si la valeur n'est pas nulle)
+     * @param destRegister registre de destination
+     * @param value valeur à charger
+     * @return le programme de chargement
+     */
+    private Program loadConstant(int destRegister, int value) {
+        Program program = new Program();
+        program.addInstruction(new UAL(UAL.Op.XOR, destRegister, destRegister, destRegister));
+        if (value != 0) {
+            program.addInstruction(new UALi(UALi.Op.ADD, destRegister, destRegister, value));
+        }
+        return program;
+    }
+
+    /**
+     * Expression constante : chargement de la valeur dans un nouveau registre, noté comme constant
+     * pour que les expressions qui l'utilisent puissent être calculées à la compilation
+     * @param value valeur de l'expression
+     * @return le programme de l'expression
+     */
+    private Program constantProgram(int value) {
+        int destRegister = newRegister();
+        constantRegisters.put(destRegister, value);
+        return loadConstant(destRegister, value);
+    }
+
+    /**
+     * Valeur d'une expression si elle est connue à la compilation.
+     * Le programme d'une expression constante ne fait que charger sa valeur (au plus deux instructions) :
+     * il peut être abandonné quand la valeur est utilisée directement.
+     * @param program le programme de l'expression
+     * @return la valeur, ou null si l'expression n'est pas constante
+     */
+    private Integer constantValue(Program program) {
+        if (program.isEmpty() || program.size() > 2) {
+            return null;
+        }
+        return constantRegisters.get(getResultRegister(program));
+    }
+
+    /**
+     * Calcul d'une opération à la compilation, avec les conventions du simulateur : entiers non bornés,
+     * division et modulo arrondis vers moins l'infini. Le calcul se fait sur des long ; un résultat
+     * qui ne tient pas dans un int n'est pas replié (le simulateur, lui, ne déborde pas).
+     * @param op opération
+     * @param left valeur de l'opérande gauche
+     * @param right valeur de l'opérande droit
+     * @return le résultat, ou null si l'opération doit rester à l'exécution (division par zéro,
+     *         décalage négatif, résultat hors des int)
+     */
+    private static Integer fold(UAL.Op op, int left, int right) {
+        Long value = switch (op) {
+            case ADD -> (long) left + right;
+            case SUB -> (long) left - right;
+            case MUL -> (long) left * right;
+            case DIV -> right == 0 ? null : Math.floorDiv((long) left, right);
+            case MOD -> right == 0 ? null : (long) Math.floorMod(left, right);
+            case XOR -> (long) (left ^ right);
+            case AND -> (long) (left & right);
+            case OR -> (long) (left | right);
+            // Au-delà de 31, le décalage à gauche d'un int non nul n'y tient plus
+            case SL -> right < 0 ? null : left == 0 ? 0L : right > 31 ? null : (long) left << right;
+            case SR -> right < 0 ? null : (long) (left >> Math.min(right, 31));
+        };
+        if (value == null || value != (int) (long) value) {
+            return null;
+        }
+        return (int) (long) value;
+    }
+
+    /**
+     * Code d'une opération binaire. Si les deux opérandes sont constants, le résultat est calculé à la compilation ;
+     * si l'un d'eux l'est (à droite, ou à gauche pour une opération commutative), on utilise l'instruction immédiate.
+     * @param op opération
+     * @param commutative vrai si l'opérande gauche peut aussi passer en immédiat
+     * @param left programme de l'opérande gauche
+     * @param right programme de l'opérande droit
+     * @return le programme de l'opération
+     */
+    private Program binaryOperation(UAL.Op op, boolean commutative, Program left, Program right) {
+        Integer leftValue = constantValue(left);
+        Integer rightValue = constantValue(right);
+        if (leftValue != null && rightValue != null) {
+            Integer value = fold(op, leftValue, rightValue);
+            if (value != null) {
+                return constantProgram(value);
+            }
+        }
+
+        Program program = new Program();
+        UALi.Op immediateOp = UALi.Op.valueOf(op.name());
+        if (rightValue != null) {
+            // op dest gauche #droite
+            program.addInstructions(left);
+            program.addInstruction(new UALi(immediateOp, newRegister(), getResultRegister(left), rightValue));
+        } else if (leftValue != null && commutative) {
+            // op dest droite #gauche
+            program.addInstructions(right);
+            program.addInstruction(new UALi(immediateOp, newRegister(), getResultRegister(right), leftValue));
+        } else {
+            program.addInstructions(left);
+            program.addInstructions(right);
+            program.addInstruction(new UAL(op, newRegister(), getResultRegister(left), getResultRegister(right)));
+        }
+        return program;
+    }
+
+    /**
+     * Oublie les valeurs des variables affectées dans un sous-arbre : dans une boucle, elles changent
+     * d'une itération à l'autre
+     * @param tree sous-arbre (condition, corps ou incrément d'une boucle)
+     */
+    private void forgetAssigned(ParseTree tree) {
+        if (tree instanceof grammarTCLParser.AssignmentContext || tree instanceof grammarTCLParser.DeclarationContext) {
+            int nameIndex = tree instanceof grammarTCLParser.AssignmentContext ? 0 : 1;
+            variableConstants.remove(tree.getChild(nameIndex).getText());
+        }
+        for (int i = 0; i < tree.getChildCount(); i++) {
+            forgetAssigned(tree.getChild(i));
+        }
+    }
+
+    /**
+     * Code d'une condition qui commande un saut : saute à label si la condition vaut jumpIfTrue,
+     * passe à l'instruction suivante sinon.
+     * Les && et || sont évalués en court-circuit (l'opérande droit n'est pas calculé si le gauche
+     * décide du résultat), et ! inverse simplement le sens du saut : aucune valeur 0/1 n'est calculée.
+     * Une condition connue à la compilation donne un JMP seul (saut toujours pris) ou un programme vide.
+     * @param expr la condition
+     * @param jumpIfTrue valeur de la condition pour laquelle on saute
+     * @param label cible du saut
+     * @return le programme de la condition
+     */
+    private Program branch(grammarTCLParser.ExprContext expr, boolean jumpIfTrue, String label) {
+        if (expr instanceof grammarTCLParser.BracketsContext brackets) {
+            return branch(brackets.expr(), jumpIfTrue, label);
+        }
+        if (expr instanceof grammarTCLParser.NegationContext negation) {
+            return branch(negation.expr(), !jumpIfTrue, label);
+        }
+
+        boolean isAnd = expr instanceof grammarTCLParser.AndContext;
+        if (isAnd || expr instanceof grammarTCLParser.OrContext) {
+            grammarTCLParser.ExprContext left = expr.getRuleContext(grammarTCLParser.ExprContext.class, 0);
+            grammarTCLParser.ExprContext right = expr.getRuleContext(grammarTCLParser.ExprContext.class, 1);
+
+            // Valeur de l'opérande gauche qui décide du résultat : false pour &&, true pour ||
+            boolean decisive = !isAnd;
+            Program program = new Program();
+
+            if (decisive == jumpIfTrue) {
+                // L'opérande gauche qui décide fait sauter directement à label
+                Program leftProgram = branch(left, jumpIfTrue, label);
+                if (isUnconditionalJump(leftProgram)) {
+                    return leftProgram;
+                }
+                program.addInstructions(leftProgram);
+                program.addInstructions(branch(right, jumpIfTrue, label));
+                return program;
+            }
+
+            // L'opérande gauche qui décide donne le résultat qui ne fait pas sauter : on saute après l'opérande droit
+            String skipLabel = label(isAnd ? "end_and" : "end_or", newLabelId());
+            Program leftProgram = branch(left, decisive, skipLabel);
+            if (isUnconditionalJump(leftProgram)) {
+                return program;
+            }
+            Program rightProgram = branch(right, jumpIfTrue, label);
+            if (leftProgram.isEmpty()) {
+                return rightProgram;
+            }
+            program.addInstructions(leftProgram);
+            program.addInstructions(rightProgram);
+
+            // Le label de sortie va sur l'instruction qui suit la condition
+            program.addLabel(skipLabel);
+            return program;
+        }
+
+        if (expr instanceof grammarTCLParser.ComparisonContext || expr instanceof grammarTCLParser.EqualityContext) {
+            // Comparaison : un seul saut conditionnel sur les deux opérandes, sans calculer de booléen
+            Program left = visit(expr.getRuleContext(grammarTCLParser.ExprContext.class, 0));
+            Program right = visit(expr.getRuleContext(grammarTCLParser.ExprContext.class, 1));
+            int opType = expr instanceof grammarTCLParser.ComparisonContext comparison
+                    ? comparison.op.getType()
+                    : ((grammarTCLParser.EqualityContext) expr).op.getType();
+            CondJump.Op jumpOp = comparisonJump(opType, jumpIfTrue);
+
+            // Deux constantes : le saut est toujours ou jamais pris
+            Integer leftValue = constantValue(left);
+            Integer rightValue = constantValue(right);
+            if (leftValue != null && rightValue != null) {
+                Program jump = new Program();
+                if (isTaken(jumpOp, leftValue, rightValue)) {
+                    jump.addInstruction(new JumpCall(JumpCall.Op.JMP, label));
+                }
+                return jump;
+            }
+
+            Program program = new Program();
+            program.addInstructions(left);
+            program.addInstructions(right);
+            program.addInstruction(new CondJump(jumpOp, getResultRegister(left), getResultRegister(right), label));
+            return program;
+        }
+
+        // Autre expression : calcul de sa valeur, comparée à 0 (false)
+        Program program = visit(expr);
+        Integer value = constantValue(program);
+        if (value != null) {
+            Program jump = new Program();
+            if ((value != 0) == jumpIfTrue) {
+                jump.addInstruction(new JumpCall(JumpCall.Op.JMP, label));
+            }
+            return jump;
+        }
+
+        int conditionRegister = getResultRegister(program);
+        int falseRegister = newRegister();
+        program.addInstruction(new UAL(UAL.Op.XOR, falseRegister, falseRegister, falseRegister));
+        program.addInstruction(new CondJump(jumpIfTrue ? CondJump.Op.JNEQ : CondJump.Op.JEQU, conditionRegister, falseRegister, label));
+        return program;
+    }
+
+    /**
+     * Saut conditionnel qui correspond à un opérateur de comparaison
+     * @param opType type du token de l'opérateur (INF, INFEQ, SUP, SUPEQ, EQUALS ou DIFF)
+     * @param jumpIfTrue si false, le saut est pris quand la comparaison est fausse (opérateur contraire)
+     * @return l'opération du saut
+     */
+    private static CondJump.Op comparisonJump(int opType, boolean jumpIfTrue) {
+        CondJump.Op op = switch (opType) {
+            case grammarTCLParser.INF -> CondJump.Op.JINF;
+            case grammarTCLParser.INFEQ -> CondJump.Op.JIEQ;
+            case grammarTCLParser.SUP -> CondJump.Op.JSUP;
+            case grammarTCLParser.SUPEQ -> CondJump.Op.JSEQ;
+            case grammarTCLParser.EQUALS -> CondJump.Op.JEQU;
+            default -> CondJump.Op.JNEQ;
+        };
+        if (jumpIfTrue) {
+            return op;
+        }
+        return switch (op) {
+            case JINF -> CondJump.Op.JSEQ;
+            case JIEQ -> CondJump.Op.JSUP;
+            case JSUP -> CondJump.Op.JIEQ;
+            case JSEQ -> CondJump.Op.JINF;
+            case JEQU -> CondJump.Op.JNEQ;
+            case JNEQ -> CondJump.Op.JEQU;
+        };
+    }
+
+    /**
+     * Indique si un saut conditionnel est pris, pour deux opérandes connus à la compilation
+     * @param op opération du saut
+     * @param left valeur du premier registre
+     * @param right valeur du second registre
+     * @return boolean
+     */
+    private static boolean isTaken(CondJump.Op op, int left, int right) {
+        return switch (op) {
+            case JINF -> left < right;
+            case JIEQ -> left <= right;
+            case JSUP -> left > right;
+            case JSEQ -> left >= right;
+            case JEQU -> left == right;
+            case JNEQ -> left != right;
+        };
+    }
+
+    /**
+     * Valeur 0/1 d'une condition, calculée avec les sauts de branch()
+     * @param expr la condition
+     * @return le programme de l'expression
+     */
+    private Program booleanValue(grammarTCLParser.ExprContext expr) {
+        int destReg = newRegister();
+        String endLabel = label("end_bool", newLabelId());
+        Program condition = branch(expr, false, endLabel);
+
+        // Condition connue à la compilation
+        if (condition.isEmpty()) {
+            return constantProgram(1);
+        }
+        if (isUnconditionalJump(condition)) {
+            return constantProgram(0);
+        }
+
+        // dest = 0, puis dest = 1 si la condition n'a pas sauté à la fin
+        Program program = new Program();
+        program.addInstruction(new UAL(UAL.Op.XOR, destReg, destReg, destReg));
+        program.addInstructions(condition);
+        program.addInstruction(new UALi(UALi.Op.ADD, destReg, destReg, 1));
+
+        // Le label de fin va sur l'instruction qui suit : ADDi dest dest 1 reste la dernière instruction
+        program.addLabel(endLabel);
+        return program;
+    }
+
+    /**
+     * Indique si un programme de condition est un saut toujours pris
+     * @param program programme donné par branch()
+     * @return boolean
+     */
+    private static boolean isUnconditionalJump(Program program) {
+        return program.size() == 1
+                && program.getFirst() instanceof JumpCall jump
+                && jump.getName().equals("JMP");
+    }
+
     public int getResultRegister() {
         return resultRegister;
     }
@@ -68,11 +398,11 @@ public class CodeGenerator extends AbstractParseTreeVisitor<Program> implements
      * @return le numéro du dernier registre
      */
     private int getResultRegister(Program p) {
-        if (p.getInstructions().isEmpty()) {
+        if (p.isEmpty()) {
             throw new RuntimeException("Le programme est vide, impossible de récupérer le registre de résultat.");
         }
 
-        Instruction lastInstr = p.getInstructions().get(p.getInstructions().size() - 1);
+        Instruction lastInstr = p.getLast();
 
         if (lastInstr instanceof UAL) {
             return ((UAL) lastInstr).getDest();
@@ -89,74 +419,49 @@ public class CodeGenerator extends AbstractParseTreeVisitor<Program> implements
 
     @Override
     public Program visitNegation(grammarTCLParser.NegationContext ctx) {
-        int destRegister = getLastUsedRegister();
-
         //Visite de l'expression à néguer
         Program program = visit(ctx.expr());
 
+        // Négation d'une constante calculée à la compilation
+        Integer value = constantValue(program);
+        if (value != null) {
+            return constantProgram(value ^ 1);
+        }
+
         //Récupération du registre source
         int srcRegister = getResultRegister(program);
 
         //Instruction de negation de la valeur (source XOR 1)
-        Instruction instruction = new UALi(UALi.Op.XOR, destRegister, srcRegister, 1);
+        Instruction instruction = new UALi(UALi.Op.XOR, newRegister(), srcRegister, 1);
         program.addInstruction(instruction);
         return program;
     }
 
     @Override
     public Program visitComparison(grammarTCLParser.ComparisonContext ctx) {
-        int destReg = getLastUsedRegister();
-
-        // Visite des deux expressions à comparer
-        Program left = visit(ctx.expr(0));
-        Program right = visit(ctx.expr(1));
-
-        // On fusionne les deux programmes
-        Program program = new Program();
-        program.addInstructions(left);
-        program.addInstructions(right);
-
-        // Récupération des registres sources
-        int leftReg = getResultRegister(left);
-        int rightReg = getResultRegister(right);
-
-        // Instruction de comparaison (soustraction)
-        Instruction cmpInstr = new UAL(UAL.Op.SUB, destReg, leftReg, rightReg);
-        program.addInstruction(cmpInstr);
-        return program;
+        // Valeur 0/1 de la comparaison, calculée avec un saut conditionnel sur les deux opérandes
+        return booleanValue(ctx);
     }
 
     @Override
     public Program visitOr(grammarTCLParser.OrContext ctx) {
-        int destReg = getLastUsedRegister();
-
-        // Visite des deux expressions à comparer
-        Program left = visit(ctx.expr(0));
-        Program right = visit(ctx.expr(1));
-
-        // On fusionne les deux programmes
-        Program program = new Program();
-        program.addInstructions(left);
-        program.addInstructions(right);
-
-        // Récupération des registres sources
-        int leftReg = getResultRegister(left);
-        int rightReg = getResultRegister(right);
-
-        // Instruction OR
-        Instruction orInstr = new UAL(UAL.Op.OR, destReg, leftReg, rightReg);
-        program.addInstruction(orInstr);
-        return program;
+        // Évaluation en court-circuit : l'expression de droite n'est calculée que si celle de gauche est fausse
+        return booleanValue(ctx);
     }
 
     @Override
     public Program visitOpposite(grammarTCLParser.OppositeContext ctx) {
-
-        int destRegister = getLastUsedRegister();
-
         // Visite de l'expression à opposer
         Program program = visit(ctx.expr());
 
+        // Opposé d'une constante calculé à la compilation (sauf pour le plus petit int, dont l'opposé n'est pas un int)
+        Integer value = constantValue(program);
+        if (value != null && value != Integer.MIN_VALUE) {
+            return constantProgram(-value);
+        }
+
+        int destRegister = newRegister();
+
         // Récupération du registre source
         int srcRegister = getResultRegister(program);
 
@@ -171,20 +476,10 @@ public class CodeGenerator extends AbstractParseTreeVisitor<Program> implements
 
     @Override
     public Program visitInteger(grammarTCLParser.IntegerContext ctx) {
-        Program program = new Program();
-
         int value = Integer.parseInt(ctx.INT().getText());
 
-        // Allouer un registre pour cette constante
-        int destRegister = newRegister();
-
-        // dest = 0
-        program.addInstruction(new UAL(UAL.Op.XOR, destRegister, destRegister, destRegister));
-
-        // dest = value
-        program.addInstruction(new UALi(UALi.Op.ADD, destRegister, destRegister, value));
-
-        return program;
+        // Allouer un registre pour cette constante, dest = value
+        return constantProgram(value);
     }
 
 
@@ -197,14 +492,22 @@ public class CodeGenerator extends AbstractParseTreeVisitor<Program> implements
 
         // Récupération de l'index d'accès
         Program indexProgram = visit(ctx.expr(1));
-        program.addInstructions(indexProgram);
-
-        // Récupération du registre contenant l'index calculé precedemment
-        int indexRegister = getResultRegister(indexProgram);
 
         // Stockage de l'index de l'element en memoire (adresse du tableau + index)
-        int addrRegister = newRegister();
-        program.addInstruction(new UAL(UAL.Op.ADD, addrRegister, indexRegister, tabStartRegister));
+        // (index constant : ADDi sur l'adresse du tableau, sans charger l'index)
+        int addrRegister;
+        Integer indexValue = constantValue(indexProgram);
+        if (indexValue != null) {
+            addrRegister = newRegister();
+            program.addInstruction(new UALi(UALi.Op.ADD, addrRegister, tabStartRegister, indexValue));
+        } else {
+            program.addInstructions(indexProgram);
+
+            // Récupération du registre contenant l'index calculé precedemment
+            int indexRegister = getResultRegister(indexProgram);
+            addrRegister = newRegister();
+            program.addInstruction(new UAL(UAL.Op.ADD, addrRegister, indexRegister, tabStartRegister));
+        }
 
         // Registre de destination pour la valeur lue
         int destRegister = newRegister();
@@ -229,12 +532,18 @@ public class CodeGenerator extends AbstractParseTreeVisitor<Program> implements
         Program program = new Program();
         int nbArgs = ctx.expr().size();
 
-        // push des arguments en ordre inverse
+        // évaluation des arguments en ordre inverse
+        // (tous avant le premier push : les appels imbriqués sont terminés avant l'empilement,
+        // et l'allocateur peut placer la sauvegarde des registres juste avant les push)
+        int[] argRegs = new int[nbArgs];
         for (int i = nbArgs - 1; i >= 0; i--) {
             Program argProg = visit(ctx.expr(i));
             program.addInstructions(argProg);
-            int argReg = getResultRegister(argProg);
+            argRegs[i] = getResultRegister(argProg);
+        }
 
+        // push des arguments en ordre inverse
+        for (int i = nbArgs - 1; i >= 0; i--) {
             // SP = SP - 1
             program.addInstruction(
                     new UALi(UALi.Op.ADD, stackPointerRegister, stackPointerRegister, -1)
@@ -242,7 +551,7 @@ public class CodeGenerator extends AbstractParseTreeVisitor<Program> implements
 
             // MEM[SP] = arg
             program.addInstruction(
-                    new Mem(Mem.Op.ST, argReg, stackPointerRegister)
+                    new Mem(Mem.Op.ST, argRegs[i], stackPointerRegister)
             );
         }
 
@@ -252,12 +561,7 @@ public class CodeGenerator extends AbstractParseTreeVisitor<Program> implements
                 new JumpCall(JumpCall.Op.CALL, fctName)
         );
 
-        // nettoyage pile : SP = SP + nbArgs
-        if (nbArgs > 0) {
-            program.addInstruction(
-                    new UALi(UALi.Op.ADD, stackPointerRegister, stackPointerRegister, nbArgs)
-            );
-        }
+        // pas de nettoyage de la pile : le prologue de la fonction appelée dépile ses paramètres
 
         // résultat : R0 -> registre résultat
         int destReg = newRegister();
@@ -273,47 +577,17 @@ public class CodeGenerator extends AbstractParseTreeVisitor<Program> implements
 
     @Override
     public Program visitBoolean(grammarTCLParser.BooleanContext ctx) {
-        Program program = new Program();
-
         // "true" -> 1, "false" -> 0
         int value = ctx.BOOL().getText().equals("true") ? 1 : 0;
 
-        // Allouer un registre pour cette constante
-        int destRegister = newRegister();
-
-        // dest = 0
-        program.addInstruction(new UAL(UAL.Op.XOR, destRegister, destRegister, destRegister));
-
-        // dest = value (si value == 1, on ajoute 1)
-        if (value != 0) {
-            program.addInstruction(new UALi(UALi.Op.ADD, destRegister, destRegister, 1));
-        }
-
-        return program;
+        // Allouer un registre pour cette constante (XOR seul pour false)
+        return constantProgram(value);
     }
 
     @Override
     public Program visitAnd(grammarTCLParser.AndContext ctx) {
-
-        int destReg = getLastUsedRegister();
-
-        // Visite des deux expressions à comparer
-        Program left = visit(ctx.expr(0));
-        Program right = visit(ctx.expr(1));
-
-        // On fusionne les deux programmes
-        Program program = new Program();
-        program.addInstructions(left);
-        program.addInstructions(right);
-
-        // Récupération des registres sources
-        int leftReg = getResultRegister(left);
-        int rightReg = getResultRegister(right);
-
-        // Instruction AND
-        Instruction andInstr = new UAL(UAL.Op.AND, destReg, leftReg, rightReg);
-        program.addInstruction(andInstr);
-        return program;
+        // Évaluation en court-circuit : l'expression de droite n'est calculée que si celle de gauche est vraie
+        return booleanValue(ctx);
     }
 
     @Override
@@ -335,69 +609,33 @@ public class CodeGenerator extends AbstractParseTreeVisitor<Program> implements
         // Instruction de chargement de la valeur de la variable dans le registre de destination
         Instruction loadInstr = new UALi(UALi.Op.ADD, destRegister, srcRegister, 0);
         program.addInstruction(loadInstr);
+
+        // Valeur connue : la copie peut être abandonnée par l'expression qui l'utilise
+        Integer value = variableConstants.get(varName);
+        if (value != null) {
+            constantRegisters.put(destRegister, value);
+        }
         return program;
     }
 
     @Override
     public Program visitMultiplication(grammarTCLParser.MultiplicationContext ctx) {
-
-        // Récupération du registre de destination
-        int destReg = getLastUsedRegister();
-
         // Visite des deux expressions à multiplier
         Program left = visit(ctx.expr(0));
         Program right = visit(ctx.expr(1));
 
-        // On fusionne les deux programmes
-        Program program = new Program();
-        program.addInstructions(left);
-        program.addInstructions(right);
-
-        // Récupération des registres sources
-        int leftReg = getResultRegister(left);
-        int rightReg = getResultRegister(right);
-
-        // Instruction mult
-        Instruction orInstr = new UAL(UAL.Op.MUL, destReg, leftReg, rightReg);
-        program.addInstruction(orInstr);
-        return program;
+        // Instruction mult, div ou mod (MULi, DIVi, MODi si l'opérande droit est constant)
+        return switch (ctx.op.getType()) {
+            case grammarTCLParser.DIV -> binaryOperation(UAL.Op.DIV, false, left, right);
+            case grammarTCLParser.MODULO -> binaryOperation(UAL.Op.MOD, false, left, right);
+            default -> binaryOperation(UAL.Op.MUL, true, left, right);
+        };
     }
 
     @Override
     public Program visitEquality(grammarTCLParser.EqualityContext ctx) {
-        // registre destiation qui contiendra le résultat (boolean) de la comparaison
-        int destReg = getLastUsedRegister();
-
-        // Visite des deux expressions à comparer
-        Program left = visit(ctx.expr(0));
-        Program right = visit(ctx.expr(1));
-
-        // On fusionne les deux programmes
-        Program program = new Program();
-        program.addInstructions(left);
-        program.addInstructions(right);
-
-        // Récupération des registres sources
-        int leftReg = getResultRegister(left);
-        int rightReg = getResultRegister(right);
-
-        // Instruction condition
-        Instruction condInstr = new CondJump(CondJump.Op.JNEQ, rightReg, leftReg, "end_equal_" + leftReg + "_" + rightReg);
-
-        // Instruction pour mettre 0 (false) dans le registre de destination
-        Instruction setTrue = new UALi(UALi.Op.ADD, destReg, destReg, 1); // destReg = 1 (true)
-
-        // On a un problème à cet endroit : on doit mettre un label sur la prochaine instruction, sauf que nous n'y avons pas accès.
-        // Nous allons donc ajouter une instruction qui ne fait rien, qui ne sert à rien, mais qui nous permettra de mettre un label dessus.
-
-        int tmpReg = newRegister(); // registre temporaire pour l'instruction inutile
-        Instruction nopInstr = new UAL(UAL.Op.XOR, tmpReg, tmpReg, tmpReg);
-        nopInstr.setLabel("end_equal_" + leftReg + "_" + rightReg);
-
-        program.addInstruction(condInstr);
-        program.addInstruction(setTrue);
-        program.addInstruction(nopInstr);
-        return program;
+        // Valeur 0/1 de l'égalité, calculée avec un saut conditionnel sur les deux opérandes
+        return booleanValue(ctx);
     }
 
     @Override
@@ -439,26 +677,15 @@ public class CodeGenerator extends AbstractParseTreeVisitor<Program> implements
 
     @Override
     public Program visitAddition(grammarTCLParser.AdditionContext ctx) {
-        // Récupération du registre de destination
-        int destReg = getLastUsedRegister();
-
-        // Visite des deux expressions à multiplier
+        // Visite des deux expressions à additionner
         Program left = visit(ctx.expr(0));
         Program right = visit(ctx.expr(1));
 
-        // On fusionne les deux programmes
-        Program program = new Program();
-        program.addInstructions(left);
-        program.addInstructions(right);
-
-        // Récupération des registres sources
-        int leftReg = getResultRegister(left);
-        int rightReg = getResultRegister(right);
-
-        // Instruction add
-        Instruction orInstr = new UAL(UAL.Op.ADD, destReg, leftReg, rightReg);
-        program.addInstruction(orInstr);
-        return program;
+        // Instruction add ou sub (ADDi, SUBi si un opérande est constant)
+        if (ctx.op.getType() == grammarTCLParser.SUB) {
+            return binaryOperation(UAL.Op.SUB, false, left, right);
+        }
+        return binaryOperation(UAL.Op.ADD, true, left, right);
     }
 
     @Override
@@ -483,15 +710,25 @@ public class CodeGenerator extends AbstractParseTreeVisitor<Program> implements
         // Si une expression d'initialisation est présente : on calcule puis on ASSIGNE
         if (ctx.expr() != null) {
             Program exprProgram = visit(ctx.expr());
-            program.addInstructions(exprProgram);
+            Integer value = constantValue(exprProgram);
 
-            int exprReg = getResultRegister(exprProgram);
+            if (value != null) {
+                // Valeur connue : chargée directement dans le registre de la variable
+                program.addInstructions(loadConstant(destRegister, value));
+                variableConstants.put(varName, value);
+            } else {
+                program.addInstructions(exprProgram);
 
-            // x = expr (MOV via ADD imm 0)
-            program.addInstruction(new UALi(UALi.Op.ADD, destRegister, exprReg, 0));
+                int exprReg = getResultRegister(exprProgram);
+
+                // x = expr (MOV via ADD imm 0)
+                program.addInstruction(new UALi(UALi.Op.ADD, destRegister, exprReg, 0));
+                variableConstants.remove(varName);
+            }
         } else {
             // Pas d'initialisation -> x = 0
             program.addInstruction(new UAL(UAL.Op.XOR, destRegister, destRegister, destRegister));
+            variableConstants.put(varName, 0);
         }
 
         return program;
@@ -503,14 +740,16 @@ public Program visitPrint(grammarTCLParser.PrintContext ctx) {
     Program program = new Program();
 
     // 1. On ne visite pas d'expression car ta grammaire dit print(VAR)
-    // Mais on sait que juste avant, une déclaration ou une assignation 
-    // a mis une valeur dans un registre.
-    
-    // 2. On récupère le dernier registre utilisé par le compteur
-    int lastReg = getLastUsedRegister();
+
+    // 2. On récupère le registre de la variable (le dernier registre alloué
+    // n'est plus forcément le sien : les constantes sont chargées directement dans la variable)
+    Integer varReg = variableRegisters.get(ctx.VAR().getText());
+    if (varReg == null) {
+        throw new RuntimeException("Variable non déclarée : " + ctx.VAR().getText());
+    }
 
     // 3. On génère l'instruction PRINT sur ce registre
-    program.addInstruction(new IO(IO.Op.PRINT, lastReg));
+    program.addInstruction(new IO(IO.Op.PRINT, varReg));
 
     return program;
 }
@@ -531,12 +770,20 @@ public Program visitPrint(grammarTCLParser.PrintContext ctx) {
         // Récupérer l'expression de droite (première expr trouvée)
         grammarTCLParser.ExprContext rhs = ctx.expr(0); // <-- si ça compile, garde ça
         Program exprProgram = visit(rhs);
-        
+        Integer value = ctx.expr().size() == 1 ? constantValue(exprProgram) : null;
+
+        if (value != null) {
+            // Valeur connue : chargée directement dans le registre de la variable
+            program.addInstructions(loadConstant(destRegister, value));
+            variableConstants.put(varName, value);
+            return program;
+        }
 
         program.addInstructions(exprProgram);
         int exprReg = getResultRegister(exprProgram);
 
         program.addInstruction(new UALi(UALi.Op.ADD, destRegister, exprReg, 0));
+        variableConstants.remove(varName);
         return program;
     }
 
@@ -550,93 +797,91 @@ public Program visitPrint(grammarTCLParser.PrintContext ctx) {
 
     @Override
     public Program visitIf(grammarTCLParser.IfContext ctx) {
-        // Visite de l'expression conditionnelle
-        Program expProgram = visit(ctx.expr());
+        // verification de l'existence d'un else
+        boolean hasElse = ctx.children.size() > 5;
+
+        int labelId = newLabelId();
+        String elseLabel = label("else", labelId);
+        String endLabel = label("end_if", labelId);
+
+        // Condition : saut au bloc else (ou à la fin) si elle est fausse
+        Program expProgram = branch(ctx.expr(), false, hasElse ? elseLabel : endLabel);
+
+        // Condition connue à la compilation : seul le bloc exécuté est généré
+        if (expProgram.isEmpty()) {
+            return visit(ctx.children.get(4));
+        }
+        if (isUnconditionalJump(expProgram)) {
+            return hasElse ? visit(ctx.children.get(6)) : new Program();
+        }
 
         // Visite du bloc de l'instruction if
+        Map<String, Integer> constantsBefore = new HashMap<>(variableConstants);
         Program ifBockProgram = visit(ctx.children.get(4));
+        Map<String, Integer> constantsAfterIf = variableConstants;
 
-        // verification de l'existence d'un else
-        boolean hasElse = ctx.children.size() > 5;
-
-        // Visite du bloc de l'instruction else
+        // Visite du bloc de l'instruction else (sans ce que le bloc if a appris)
+        variableConstants = new HashMap<>(constantsBefore);
         Program elseBlockProgram = new Program();
         if (hasElse) {
             elseBlockProgram = visit(ctx.children.get(6));
         }
 
-        // Récupération du registre contenant le résultat de la condition
-        int conditionRegister = getResultRegister(expProgram);
-
-        // Stockage de la valeur 0 (false) dans un registre temporaire
-        int falseRegister = newRegister();
-        expProgram.addInstruction(new UAL(UAL.Op.XOR, falseRegister, falseRegister, falseRegister));
-
-        // Instruction de saut conditionnel (si conditionRegister == 0 (false), sauter le bloc)
-        if (hasElse) {
-            expProgram.addInstruction(new CondJump(CondJump.Op.JEQU, conditionRegister, falseRegister, "else_" + conditionRegister));
-        } else {
-            expProgram.addInstruction(new CondJump(CondJump.Op.JEQU, conditionRegister, falseRegister, "end_if_" + conditionRegister));
-        }
+        // Après le if, une variable garde sa valeur si elle est la même à la sortie des deux blocs
+        variableConstants.entrySet().retainAll(constantsAfterIf.entrySet());
 
         // ajout du bloc if
         expProgram.addInstructions(ifBockProgram);
 
         // Si il y a un else, on ajoute une instruction de saut pour sauter le bloc else après le if
         if (hasElse) {
-            expProgram.addInstruction(new JumpCall(JumpCall.Op.JMP, "end_if_" + conditionRegister));
+            expProgram.addInstruction(new JumpCall(JumpCall.Op.JMP, endLabel));
 
-            // Ajout du label else
-            Instruction elseLabel = new UAL(UAL.Op.XOR, falseRegister, falseRegister, falseRegister);
-            elseLabel.setLabel("else_" + conditionRegister);
-            expProgram.addInstruction(elseLabel);
-
-            // Ajout du bloc else
+            // Ajout du bloc else, le label else allant sur sa première instruction
+            expProgram.addLabel(elseLabel);
             expProgram.addInstructions(elseBlockProgram);
         }
 
-        // Ajout d'un label de fin pour le saut conditionnel
-        // Nous utilisons une instruction inutile pour pouvoir y attacher un label
-        Instruction endIfLabel = new UAL(UAL.Op.XOR, falseRegister, falseRegister, falseRegister);
-        endIfLabel.setLabel("end_if_" + conditionRegister);
-        expProgram.addInstruction(endIfLabel);
+        // Label de fin pour le saut conditionnel, posé sur l'instruction qui suit le if
+        expProgram.addLabel(endLabel);
 
         return expProgram;
     }
 
     @Override
     public Program visitWhile(grammarTCLParser.WhileContext ctx) {
-        // Visite de l'expression conditionnelle
-        Program expProgram = visit(ctx.expr());
+        // Les variables affectées dans la boucle n'ont pas de valeur connue, ni dedans ni après
+        forgetAssigned(ctx);
 
-        // Visite du bloc de l'instruction while
-        Program blockProgram = visitChildren(ctx);
+        int labelId = newLabelId();
+        String startLabel = label("start_while", labelId);
+        String endLabel = label("end_while", labelId);
 
-        // Récupération du registre contenant le résultat de la condition
-        int conditionRegister = getResultRegister(expProgram);
+        // Condition, recalculée à chaque tour : sortie de la boucle si elle est fausse
+        Program expProgram = branch(ctx.expr(), false, endLabel);
 
-        // Stockage de la valeur 0 (false) dans un registre temporaire
-        int falseRegister = newRegister();
-        expProgram.addInstruction(new UAL(UAL.Op.XOR, falseRegister, falseRegister, falseRegister));
+        // Condition toujours fausse : le bloc n'est jamais exécuté
+        if (isUnconditionalJump(expProgram)) {
+            return new Program();
+        }
 
-        // Instruction de saut conditionnel (si conditionRegister == 0 (false), sauter le bloc)
-        Instruction condInstr = new CondJump(CondJump.Op.JEQU, conditionRegister, falseRegister, "end_while_" + conditionRegister);
-        condInstr.setLabel("start_while_" + conditionRegister);
-        expProgram.addInstruction(condInstr);
+        // Visite du bloc de l'instruction while
+        Program blockProgram = visit(ctx.instr());
+        forgetAssigned(ctx);
 
-        // Fusion des programmes
-        expProgram.addInstructions(blockProgram);
+        // Fusion des programmes, le label de début allant sur la première instruction de la condition
+        Program program = new Program();
+        program.addLabel(startLabel);
+        program.addInstructions(expProgram);
+        program.addInstructions(blockProgram);
 
         // Ajout de l'instruction de retour au début de la condition
-        expProgram.addInstruction(new JumpCall(JumpCall.Op.JMP, "start_while_" + conditionRegister));
+        program.addInstruction(new JumpCall(JumpCall.Op.JMP, startLabel));
 
-        // Ajout d'un label de fin pour le saut conditionnel
-        // Nous utilisons une instruction inutile pour pouvoir y attacher un label
-        Instruction endIfLabel = new UAL(UAL.Op.XOR, falseRegister, falseRegister, falseRegister);
-        endIfLabel.setLabel("end_while_" + conditionRegister);
-        expProgram.addInstruction(endIfLabel);
+        // Label de fin pour le saut conditionnel, posé sur l'instruction qui suit la boucle
+        program.addLabel(endLabel);
 
-        return expProgram;
+        return program;
     }
 
     @Override
@@ -658,44 +903,43 @@ public Program visitPrint(grammarTCLParser.PrintContext ctx) {
 
         // Visite de l'expression conditionnelle
         Program initFormProgram = visit(ctx.children.get(2));
+        program.addInstructions(initFormProgram);
 
-        // Visite de la condition
-        Program expProgram = visit(ctx.children.get(4));
-
-        // Récupération du registre contenant le résultat de la condition
-        int conditionRegister = getResultRegister(expProgram);
-
-        // Visite de l'instruction d'incrémentation
-        Program incrProgram = visit(ctx.children.get(6));
+        // Les variables affectées dans la boucle n'ont pas de valeur connue, ni dedans ni après
+        for (int i = 4; i <= 8; i += 2) {
+            forgetAssigned(ctx.children.get(i));
+        }
 
-        // Visite du bloc de l'instruction for
-        Program blockProgram = visit(ctx.children.get(8));
+        int labelId = newLabelId();
+        String startLabel = label("start_for", labelId);
+        String endLabel = label("end_for", labelId);
 
-        // Fusion des programmes
-        program.addInstructions(initFormProgram);
-        program.addInstructions(expProgram);
+        // Condition, recalculée à chaque tour : sortie de la boucle si elle est fausse
+        Program loopProgram = branch((grammarTCLParser.ExprContext) ctx.children.get(4), false, endLabel);
 
-        // Stockage de la valeur 0 (false) dans un registre temporaire
-        int falseRegister = newRegister();
-        expProgram.addInstruction(new UAL(UAL.Op.XOR, falseRegister, falseRegister, falseRegister));
+        // Condition toujours fausse : seule l'initialisation est exécutée
+        if (isUnconditionalJump(loopProgram)) {
+            return program;
+        }
 
-        // Instruction de saut conditionnel (si conditionRegister == 0 (false), sauter le bloc)
-        Instruction condInstr = new CondJump(CondJump.Op.JEQU, conditionRegister, falseRegister, "end_for_" + conditionRegister);
-        condInstr.setLabel("start_for_" + conditionRegister);
-        program.addInstruction(condInstr);
+        // Visite du bloc de l'instruction for, puis de l'incrémentation qui est exécutée après lui
+        Program blockProgram = visit(ctx.children.get(8));
+        Program incrProgram = visit(ctx.children.get(6));
+        for (int i = 4; i <= 8; i += 2) {
+            forgetAssigned(ctx.children.get(i));
+        }
 
-        // Fusion des programmes
+        // Fusion des programmes, le label de début allant sur la première instruction de la condition
+        program.addLabel(startLabel);
+        program.addInstructions(loopProgram);
         program.addInstructions(blockProgram);
         program.addInstructions(incrProgram);
 
         // Ajout de l'instruction de retour au début de la condition
-        program.addInstruction(new JumpCall(JumpCall.Op.JMP, "start_for_" + conditionRegister));
+        program.addInstruction(new JumpCall(JumpCall.Op.JMP, startLabel));
 
-        // Ajout d'un label de fin pour le saut conditionnel
-        // Nous utilisons une instruction inutile pour pouvoir y attacher un label
-        Instruction endIfLabel = new UAL(UAL.Op.XOR, falseRegister, falseRegister, falseRegister);
-        endIfLabel.setLabel("end_for_" + conditionRegister);
-        program.addInstruction(endIfLabel);
+        // Label de fin pour le saut conditionnel, posé sur l'instruction qui suit la boucle
+        program.addLabel(endLabel);
 
         return program;
     }
@@ -760,14 +1004,19 @@ public Program visitPrint(grammarTCLParser.PrintContext ctx) {
     public Program visitDecl_fct(grammarTCLParser.Decl_fctContext ctx) {
         Program program = new Program();
 
-        // Nom de la fonction
+        // Nom de la fonction, posé sur sa première instruction
         String fctName = ctx.VAR(0).getText();
+        program.addLabel(fctName);
+
+        // Les valeurs connues ne passent pas d'une fonction à l'autre
+        variableConstants.clear();
 
         // =========================
         // Prologue : récupérer les arguments depuis la pile
         // =========================
 
         int nbParams = ctx.VAR().size() - 1;
+        program.setParameterCount(fctName, nbParams);
 
         for (int i = 0; i < nbParams; i++) {
 
@@ -795,11 +1044,6 @@ public Program visitPrint(grammarTCLParser.PrintContext ctx) {
         Program body = visit(ctx.core_fct());
         program.addInstructions(body);
 
-        // Mettre le label sur la première instruction
-        if (!program.getInstructions().isEmpty()) {
-            program.getInstructions().getFirst().setLabel(fctName);
-        }
-
         return program;
     }
     @Override
@@ -815,12 +1059,11 @@ public Program visitPrint(grammarTCLParser.PrintContext ctx) {
         }
 
         // 2) Générer le corps de main
+        variableConstants.clear();
         Program mainProg = visit(ctx.core_fct());
         if (mainProg != null) {
-            // Mettre le label "main" sur la 1ère instruction du corps de main
-            if (!mainProg.getInstructions().isEmpty()) {
-                mainProg.getInstructions().get(0).setLabel("main");
-            }
+            // Le label "main" va sur la 1ère instruction du corps de main
+            p.addLabel("main");
             p.addInstructions(mainProg);
         }
 
@@ -0,0 +1,16 @@
+package Graph;
+
+/**
+ * Ordre dans lequel la coloration gloutonne traite les sommets
+ * (chaque sommet reçoit la plus petite couleur absente de ses voisins)
+ */
+public enum ColoringStrategy {
+    // Ordre d'insertion des sommets
+    INSERTION_ORDER,
+    // Ordre de dégénérescence : on retire à chaque fois un sommet de degré minimal,
+    // puis on colore dans l'ordre inverse des retraits
+    SMALLEST_LAST,
+    // DSatur : à chaque fois le sommet non coloré dont les voisins ont le plus de couleurs
+    // différentes (à égalité, le plus grand degré)
+    DSATUR
+}
@@ -0,0 +1,139 @@
+package Graph;
+
+/**
+ * Graphe figé au format CSR (compressed sparse row) : les voisins du sommet u sont
+ * targets[offsets[u]] à targets[offsets[u + 1] - 1]. Les sommets sont numérotés de 0 à getVertexCount() - 1.
+ * Le graphe n'est jamais modifié : plusieurs threads peuvent le parcourir sans synchronisation.
+ */
+public final class CsrGraph {
+    private final int[] offsets;
+    private final int[] targets;
+    private final int maxDegree;
+
+    /**
+     * Constructeur (les tableaux sont repris tels quels et ne doivent plus être modifiés)
+     * @param offsets début de la liste de chaque sommet dans targets (vertexCount + 1 cases)
+     * @param targets listes d'adjacence mises bout à bout
+     */
+    public CsrGraph(int[] offsets, int[] targets) {
+        this.offsets = offsets;
+        this.targets = targets;
+        int max = 0;
+        for (int u = 0; u + 1 < offsets.length; u++) {
+            max = Math.max(max, offsets[u + 1] - offsets[u]);
+        }
+        this.maxDegree = max;
+    }
+
+    /**
+     * Conversion de listes d'adjacence d'entiers : le sommet vertices[k] reçoit le numéro k
+     * @param vertices sommets dans l'ordre d'insertion (les vertexCount premiers)
+     * @param vertexCount nombre de sommets
+     * @param adj listes d'adjacence, indexées par sommet
+     * @param degree longueur utile de chaque liste d'adjacence
+     * @param idOf reçoit le numéro de chaque sommet (indexé par sommet)
+     * @return le graphe CSR
+     */
+    static CsrGraph fromAdjacency(int[] vertices, int vertexCount, int[][] adj, int[] degree, int[] idOf) {
+        int[] offsets = new int[vertexCount + 1];
+        for (int k = 0; k < vertexCount; k++) {
+            idOf[vertices[k]] = k;
+            offsets[k + 1] = offsets[k] + degree[vertices[k]];
+        }
+        int[] targets = new int[offsets[vertexCount]];
+        for (int k = 0; k < vertexCount; k++) {
+            int u = vertices[k];
+            for (int j = 0; j < degree[u]; j++) {
+                targets[offsets[k] + j] = idOf[adj[u][j]];
+            }
+        }
+        return new CsrGraph(offsets, targets);
+    }
+
+    /**
+     * Graphe renversé (voisins entrants), par tri par dénombrement : O(sommets + arcs).
+     * Les voisins entrants de chaque sommet sont rangés par numéro croissant.
+     * @return le graphe transposé
+     */
+    public CsrGraph transpose() {
+        int n = getVertexCount();
+        int[] inOffsets = new int[n + 1];
+        for (int t : targets) {
+            inOffsets[t + 1]++;
+        }
+        for (int v = 0; v < n; v++) {
+            inOffsets[v + 1] += inOffsets[v];
+        }
+        int[] inTargets = new int[targets.length];
+        int[] fill = new int[n];
+        for (int u = 0; u < n; u++) {
+            for (int k = offsets[u]; k < offsets[u + 1]; k++) {
+                int v = targets[k];
+                inTargets[inOffsets[v] + fill[v]++] = u;
+            }
+        }
+        return new CsrGraph(inOffsets, inTargets);
+    }
+
+    /**
+     * Nombre de sommets
+     * @return int
+     */
+    public int getVertexCount() {
+        return offsets.length - 1;
+    }
+
+    /**
+     * Nombre d'arcs (deux par arête d'un graphe non orienté)
+     * @return int
+     */
+    public int getArcCount() {
+        return targets.length;
+    }
+
+    /**
+     * Nombre de voisins d'un sommet
+     * @param u numéro du sommet
+     * @return int
+     */
+    public int getDegree(int u) {
+        return offsets[u + 1] - offsets[u];
+    }
+
+    /**
+     * Plus grand degré
+     * @return int
+     */
+    public int getMaxDegree() {
+        return maxDegree;
+    }
+
+    /**
+     * k-ième voisin d'un sommet, sans allocation
+     * @param u numéro du sommet
+     * @param k indice entre 0 et getDegree(u) - 1
+     * @return le numéro du voisin
+     */
+    public int getNeighbor(int u, int k) {
+        return targets[offsets[u] + k];
+    }
+
+    /**
+     * Mémoire occupée par les deux tableaux
+     * @return taille estimée en octets
+     */
+    public long memoryBytes() {
+        return 2 * 16 + 4L * offsets.length + 4L * targets.length;
+    }
+
+    /**
+     * Début de la liste de u dans le tableau des voisins (parcours : targets[getOffset(u)] à targets[getOffset(u + 1) - 1])
+     */
+    int getOffset(int u) {
+        return offsets[u];
+    }
+
+    int getTarget(int index) {
+        return targets[index];
+    }
+}
@@ -0,0 +1,127 @@
+package Graph;
+
+/**
+ * Partie matrice de bits d'un graphe non orienté en représentation hybride : les listes d'adjacence
+ * du graphe restent la référence (parcours des voisins) ; au-delà du seuil de densité, chaque arête
+ * est en plus rangée dans une TriangularBitMatrix (test d'arête en O(1)). Le graphe occupe alors les deux.
+ * Les sommets sont désignés par leurs numéros (0 à n - 1).
+ */
+final class DenseEdgeIndex {
+    // Densité (arêtes / paires de sommets) au-delà de laquelle on ajoute la matrice aux listes
+    static final double DEFAULT_DENSITY_THRESHOLD = 0.1;
+
+    /**
+     * Arêtes déjà présentes dans les listes d'adjacence, recopiées à la création de la matrice
+     */
+    interface EdgeSource {
+        /**
+         * Appelle visitor.visit(i, j) pour chaque arête ij (une fois ou deux, au choix)
+         */
+        void forEachEdge(EdgeVisitor visitor);
+    }
+
+    interface EdgeVisitor {
+        void visit(int i, int j);
+    }
+
+    private final EdgeSource edges;
+    private TriangularBitMatrix matrix = null;
+    private double densityThreshold = DEFAULT_DENSITY_THRESHOLD;
+    private long edgeCount = 0;
+
+    /**
+     * Constructeur
+     * @param edges arêtes du graphe
+     */
+    DenseEdgeIndex(EdgeSource edges) {
+        this.edges = edges;
+    }
+
+    /**
+     * Setter du seuil de densité (la matrice est créée tout de suite si le graphe le dépasse déjà)
+     * @param densityThreshold densité entre 0 et 1 (au-dessus de 1 : jamais de matrice)
+     * @param vertexCount nombre de sommets du graphe
+     */
+    void setDensityThreshold(double densityThreshold, int vertexCount) {
+        this.densityThreshold = densityThreshold;
+        switchToMatrixIfDense(vertexCount);
+    }
+
+    boolean isUsed() {
+        return matrix != null;
+    }
+
+    long getEdgeCount() {
+        return edgeCount;
+    }
+
+    /**
+     * Test d'arête, seulement quand la matrice est utilisée
+     * @param i numéro de sommet
+     * @param j numéro de sommet
+     * @return boolean
+     */
+    boolean get(int i, int j) {
+        return matrix.get(i, j);
+    }
+
+    /**
+     * À appeler après l'ajout d'une arête absente dans les listes d'adjacence
+     * @param i numéro de sommet
+     * @param j numéro de sommet
+     * @param vertexCount nombre de sommets du graphe
+     */
+    void edgeAdded(int i, int j, int vertexCount) {
+        edgeCount++;
+        if (matrix != null) {
+            matrix.set(i, j);
+        } else {
+            switchToMatrixIfDense(vertexCount);
+        }
+    }
+
+    /**
+     * Crée la matrice à partir des listes d'adjacence si le graphe est assez dense
+     */
+    private void switchToMatrixIfDense(int vertexCount) {
+        if (matrix != null || !TriangularBitMatrix.isDenseEnough(edgeCount, vertexCount, densityThreshold)) return;
+        TriangularBitMatrix bits = new TriangularBitMatrix(vertexCount);
+        edges.forEachEdge(bits::set);
+        matrix = bits;
+    }
+
+    /**
+     * Mémoire occupée par la matrice, ou qu'elle occuperait si elle n'est pas encore créée
+     * @param vertexCount nombre de sommets du graphe
+     * @return taille estimée en octets
+     */
+    long getMatrixMemory(int vertexCount) {
+        return matrix != null ? matrix.memoryBytes() : TriangularBitMatrix.memoryBytesFor(vertexCount);
+    }
+
+    /**
+     * Densité d'un graphe
+     * @param edges nombre d'arêtes
+     * @param vertexCount nombre de sommets
+     * @return arêtes / paires de sommets (0 en dessous de deux sommets)
+     */
+    static double density(long edges, int vertexCount) {
+        return vertexCount < 2 ? 0 : (double) edges / TriangularBitMatrix.pairCount(vertexCount);
+    }
+
+    /**
+     * Rapport mémoire, pour régler le seuil de densité : total des listes et de la matrice si elle est
+     * utilisée, sinon taille des listes et de la matrice qui les compléterait
+     * @param vertexCount nombre de sommets du graphe
+     * @param listBytes mémoire des listes d'adjacence
+     * @param matrixBytes mémoire de la matrice (numérotation des sommets comprise)
+     * @return String
+     */
+    String memoryReport(int vertexCount, long listBytes, long matrixBytes) {
+        String sizes = matrix != null
+                ? String.format("listes %d o + matrice %d o = %d o", listBytes, matrixBytes, listBytes + matrixBytes)
+                : String.format("listes %d o (matrice non utilisée : %d o de plus)", listBytes, matrixBytes);
+        return String.format("%d sommets, %d arêtes, densité %.3f (seuil %.3f) : %s",
+                vertexCount, edgeCount, density(edgeCount, vertexCount), densityThreshold, sizes);
+    }
+}
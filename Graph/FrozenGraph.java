@@ -0,0 +1,125 @@
+package Graph;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Copie figée d'un Graph (Graph.freeze()), ou graphe construit directement au format CSR (fromCsr),
+ * pour les passes qui ne font plus que lire le graphe.
+ * Les sommets sont numérotés de 0 à getVertexCount() - 1 dans l'ordre d'insertion ; les arcs
+ * sortants et entrants sont au format CSR (CsrGraph), et se parcourent sans allocation avec
+ * getOutDegree/getOutNeighbor et getInDegree/getInNeighbor.
+ * Pour un graphe non orienté, voisins sortants et entrants sont le même tableau.
+ */
+public final class FrozenGraph<T> {
+    private final Object[] vertices;
+    private final HashMap<T,Integer> ids;
+    private final CsrGraph out;
+    private final CsrGraph in;
+
+    /**
+     * Constructeur
+     * @param vertices sommets, dans l'ordre de leurs numéros
+     * @param ids numéro de chaque sommet (repris tel quel)
+     * @param out arcs sortants
+     * @param in arcs entrants (out pour un graphe non orienté)
+     */
+    FrozenGraph(List<T> vertices, HashMap<T,Integer> ids, CsrGraph out, CsrGraph in) {
+        this.vertices = vertices.toArray();
+        this.ids = ids;
+        this.out = out;
+        this.in = in;
+    }
+
+    /**
+     * Graphe figé construit directement à partir de ses arcs sortants, sans passer par un Graph
+     * (les arcs entrants sont obtenus par transposition)
+     * @param vertices sommets, dans l'ordre de leurs numéros
+     * @param ids numéro de chaque sommet (repris tel quel)
+     * @param out arcs sortants, sur les numéros des sommets
+     * @return le graphe figé
+     */
+    public static <T> FrozenGraph<T> fromCsr(List<T> vertices, HashMap<T,Integer> ids, CsrGraph out) {
+        return new FrozenGraph<T>(vertices, ids, out, out.transpose());
+    }
+
+    /**
+     * Nombre de sommets
+     * @return int
+     */
+    public int getVertexCount() {
+        return vertices.length;
+    }
+
+    /**
+     * Sommet d'un numéro
+     * @param id numéro entre 0 et getVertexCount() - 1
+     * @return le sommet
+     */
+    @SuppressWarnings("unchecked")
+    public T getVertex(int id) {
+        return (T) vertices[id];
+    }
+
+    /**
+     * Numéro d'un sommet
+     * @param u sommet
+     * @return son numéro, -1 si u n'est pas un sommet
+     */
+    public int getId(T u) {
+        Integer id = ids.get(u);
+        return id == null ? -1 : id;
+    }
+
+    public int getOutDegree(int id) {
+        return out.getDegree(id);
+    }
+
+    /**
+     * k-ième voisin sortant, sans allocation
+     * @param id numéro du sommet
+     * @param k indice entre 0 et getOutDegree(id) - 1
+     * @return le numéro du voisin
+     */
+    public int getOutNeighbor(int id, int k) {
+        return out.getNeighbor(id, k);
+    }
+
+    public int getInDegree(int id) {
+        return in.getDegree(id);
+    }
+
+    /**
+     * k-ième voisin entrant, sans allocation
+     * @param id numéro du sommet
+     * @param k indice entre 0 et getInDegree(id) - 1
+     * @return le numéro du voisin
+     */
+    public int getInNeighbor(int id, int k) {
+        return in.getNeighbor(id, k);
+    }
+
+    /**
+     * Arcs sortants, sur les numéros des sommets
+     * @return CsrGraph
+     */
+    public CsrGraph getOutGraph() {
+        return out;
+    }
+
+    /**
+     * Arcs entrants, sur les numéros des sommets
+     * @return CsrGraph
+     */
+    public CsrGraph getInGraph() {
+        return in;
+    }
+
+    /**
+     * Mémoire occupée (tableau des sommets, table des numéros et tableaux CSR)
+     * @return taille estimée en octets
+     */
+    public long memoryBytes() {
+        long bytes = 16 + 4L * vertices.length + 48L * ids.size() + out.memoryBytes();
+        return in != out ? bytes + in.memoryBytes() : bytes;
+    }
+}
@@ -38,7 +38,7 @@ public abstract class Graph<T> {
      * @param u sommet
      */
     public void addVertex(T u) {
-        if (this.vertices.contains(u)) return;
+        if (this.adjList.containsKey(u)) return;
         this.vertices.add(u);
         this.adjList.put(u, new ArrayList<T>());
     }   
@@ -50,6 +50,54 @@ public abstract class Graph<T> {
      */
     public abstract void addEdge(T u, T v);
 
+    /**
+     * Copie figée du graphe au format CSR, pour les passes qui ne font plus que le lire :
+     * plus de recherche dans la HashMap ni de liste chaînée par pointeurs à chaque parcours.
+     * Les modifications ultérieures du graphe ne sont pas répercutées sur la copie.
+     * @return le graphe figé (numéros des sommets dans l'ordre d'insertion)
+     */
+    public FrozenGraph<T> freeze() {
+        HashMap<T,Integer> ids = new HashMap<T,Integer>(2 * this.vertices.size());
+        for (int k = 0; k < this.vertices.size(); k++) {
+            ids.put(this.vertices.get(k), k);
+        }
+        CsrGraph out = toCsr(ids);
+        return new FrozenGraph<T>(this.vertices, ids, out, out.transpose());
+    }
+
+    /**
+     * Listes d'adjacence au format CSR, sur les numéros des sommets
+     * @param ids numéro de chaque sommet (ordre d'insertion)
+     * @return CsrGraph
+     */
+    protected CsrGraph toCsr(HashMap<T,Integer> ids) {
+        int n = this.vertices.size();
+        int[] offsets = new int[n + 1];
+        for (int k = 0; k < n; k++) {
+            offsets[k + 1] = offsets[k] + this.adjList.get(this.vertices.get(k)).size();
+        }
+        int[] targets = new int[offsets[n]];
+        for (int k = 0; k < n; k++) {
+            ArrayList<T> neighbors = this.adjList.get(this.vertices.get(k));
+            for (int j = 0; j < neighbors.size(); j++) {
+                targets[offsets[k] + j] = ids.get(neighbors.get(j));
+            }
+        }
+        return new CsrGraph(offsets, targets);
+    }
+
+    /**
+     * Mémoire occupée par les listes d'adjacence (entrées de HashMap, ArrayList et tableaux de références)
+     * @return taille estimée en octets
+     */
+    public long getAdjacencyMemory() {
+        long bytes = 0;
+        for (T u : this.vertices) {
+            bytes += 32 + 24 + 16 + 4L * this.adjList.get(u).size();
+        }
+        return bytes;
+    }
+
 
     
     /** 
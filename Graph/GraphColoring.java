@@ -0,0 +1,189 @@
+package Graph;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Coloration gloutonne d'un graphe non orienté au format CSR (sommets numérotés dans l'ordre
+ * d'insertion), commune à UnorientedGraph et IntUnorientedGraph.
+ * Les files de priorité (degré pour SMALLEST_LAST, saturation pour DSATUR) sont des files à
+ * compartiments : une liste doublement chaînée par valeur, chaque mise à jour est en O(1).
+ * Le tableau de marques des couleurs voisines est réutilisé d'un sommet et d'un appel à l'autre.
+ */
+final class GraphColoring {
+    // marks[c] == stamp <=> la couleur c est prise par un voisin du sommet traité
+    private int[] marks = new int[0];
+    private int stamp = 0;
+
+    // Files à compartiments : premier sommet de chaque compartiment, chaînage des sommets
+    private int[] head = new int[0];
+    private int[] next = new int[0];
+    private int[] prev = new int[0];
+
+    /**
+     * Colore le graphe
+     * @param strategy ordre de traitement des sommets
+     * @param graph le graphe, numéros des sommets dans l'ordre d'insertion
+     * @param colors couleur de chaque sommet, à remplir (doit valoir -1 pour tous les sommets)
+     * @return nombre de couleurs utilisées
+     */
+    int color(ColoringStrategy strategy, CsrGraph graph, int[] colors) {
+        int n = graph.getVertexCount();
+        int maxDegree = graph.getMaxDegree();
+        // Une couleur gloutonne ne dépasse jamais le degré du sommet
+        if (marks.length < maxDegree + 1) {
+            marks = new int[maxDegree + 1];
+            stamp = 0;
+        }
+
+        switch (strategy) {
+            case INSERTION_ORDER -> {
+                for (int u = 0; u < n; u++) {
+                    colors[u] = firstFreeColor(u, graph, colors);
+                }
+            }
+            case SMALLEST_LAST -> {
+                int[] order = smallestLastOrder(graph);
+                for (int k = n - 1; k >= 0; k--) {
+                    int u = order[k];
+                    colors[u] = firstFreeColor(u, graph, colors);
+                }
+            }
+            case DSATUR -> dsatur(graph, colors);
+        }
+
+        int maxCol = -1;
+        for (int u = 0; u < n; u++) {
+            maxCol = Math.max(maxCol, colors[u]);
+        }
+        return maxCol + 1;
+    }
+
+    /**
+     * Plus petite couleur absente des voisins de u
+     */
+    private int firstFreeColor(int u, CsrGraph graph, int[] colors) {
+        if (++stamp == 0) {
+            Arrays.fill(marks, 0);
+            stamp = 1;
+        }
+        for (int k = graph.getOffset(u); k < graph.getOffset(u + 1); k++) {
+            int c = colors[graph.getTarget(k)];
+            if (c >= 0) marks[c] = stamp;
+        }
+        int c = 0;
+        while (marks[c] == stamp) c++;
+        return c;
+    }
+
+    /**
+     * Prépare les files à compartiments (compartiments 0 à maxKey, sommets de 0 à capacity - 1), vides
+     */
+    private void resetBuckets(int capacity, int maxKey) {
+        if (head.length < maxKey + 1) head = new int[maxKey + 1];
+        Arrays.fill(head, 0, maxKey + 1, -1);
+        if (next.length < capacity) {
+            next = new int[capacity];
+            prev = new int[capacity];
+        }
+    }
+
+    private void pushBucket(int u, int key) {
+        prev[u] = -1;
+        next[u] = head[key];
+        if (head[key] != -1) prev[head[key]] = u;
+        head[key] = u;
+    }
+
+    private void removeBucket(int u, int key) {
+        if (prev[u] != -1) next[prev[u]] = next[u];
+        else head[key] = next[u];
+        if (next[u] != -1) prev[next[u]] = prev[u];
+    }
+
+    /**
+     * Ordre de dégénérescence : retraits successifs d'un sommet de degré minimal dans le graphe restant
+     * @return les sommets dans l'ordre des retraits
+     */
+    private int[] smallestLastOrder(CsrGraph graph) {
+        int n = graph.getVertexCount();
+        resetBuckets(n, graph.getMaxDegree());
+        int[] current = new int[n];
+        boolean[] removed = new boolean[n];
+        for (int u = n - 1; u >= 0; u--) {
+            current[u] = graph.getDegree(u);
+            pushBucket(u, current[u]);
+        }
+
+        int[] order = new int[n];
+        int minDegree = 0;
+        for (int k = 0; k < n; k++) {
+            while (head[minDegree] == -1) minDegree++;
+            int u = head[minDegree];
+            removeBucket(u, minDegree);
+            removed[u] = true;
+            order[k] = u;
+
+            for (int j = graph.getOffset(u); j < graph.getOffset(u + 1); j++) {
+                int v = graph.getTarget(j);
+                if (removed[v]) continue;
+                removeBucket(v, current[v]);
+                current[v]--;
+                pushBucket(v, current[v]);
+            }
+            // Un voisin a pu descendre d'un compartiment en dessous du minimum
+            minDegree = Math.max(0, minDegree - 1);
+        }
+        return order;
+    }
+
+    /**
+     * DSatur : les sommets non colorés sont rangés par saturation (nombre de couleurs différentes
+     * parmi leurs voisins). Le compartiment 0 est rempli par degré croissant : en tête de liste,
+     * le sommet de plus grand degré.
+     */
+    private void dsatur(CsrGraph graph, int[] colors) {
+        int n = graph.getVertexCount();
+        int maxDegree = graph.getMaxDegree();
+        resetBuckets(n, maxDegree);
+        int[] saturation = new int[n];
+        BitSet[] neighborColors = new BitSet[n];
+
+        // Tri des sommets par degré (tri par dénombrement)
+        int[] count = new int[maxDegree + 2];
+        for (int u = 0; u < n; u++) {
+            count[graph.getDegree(u) + 1]++;
+        }
+        for (int d = 0; d <= maxDegree; d++) {
+            count[d + 1] += count[d];
+        }
+        int[] byDegree = new int[n];
+        for (int u = 0; u < n; u++) {
+            byDegree[count[graph.getDegree(u)]++] = u;
+        }
+        for (int k = 0; k < n; k++) {
+            pushBucket(byDegree[k], 0);
+        }
+
+        int maxSaturation = 0;
+        for (int k = 0; k < n; k++) {
+            while (head[maxSaturation] == -1) maxSaturation--;
+            int u = head[maxSaturation];
+            removeBucket(u, maxSaturation);
+
+            int c = firstFreeColor(u, graph, colors);
+            colors[u] = c;
+
+            for (int j = graph.getOffset(u); j < graph.getOffset(u + 1); j++) {
+                int v = graph.getTarget(j);
+                if (colors[v] != -1) continue;
+                if (neighborColors[v] == null) neighborColors[v] = new BitSet();
+                if (neighborColors[v].get(c)) continue;
+                neighborColors[v].set(c);
+                removeBucket(v, saturation[v]);
+                saturation[v]++;
+                pushBucket(v, saturation[v]);
+                maxSaturation = Math.max(maxSaturation, saturation[v]);
+            }
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package Graph;
+import java.util.Arrays;
+
+/**
+ * Graphe dont les sommets sont des entiers positifs denses (numéros de registres par exemple).
+ * Les listes d'adjacence sont des tableaux d'int qui grandissent à la demande : pas de boxing.
+ */
+public abstract class IntGraph {
+    protected int[][] adj;
+    protected int[] degree;
+    protected boolean[] present;
+
+    // Sommets dans l'ordre d'insertion
+    protected int[] vertices;
+    protected int vertexCount;
+
+    /**
+     * Constructeur
+     */
+    public IntGraph() {
+        this(16);
+    }
+
+    /**
+     * Constructeur
+     * @param capacity nombre de sommets prévus (les identifiants vont de 0 à capacity - 1)
+     */
+    public IntGraph(int capacity) {
+        capacity = Math.max(capacity, 1);
+        this.adj = new int[capacity][];
+        this.degree = new int[capacity];
+        this.present = new boolean[capacity];
+        this.vertices = new int[capacity];
+        this.vertexCount = 0;
+    }
+
+    /**
+     * Agrandit les tableaux indexés par sommet pour pouvoir contenir u
+     * @param u sommet
+     */
+    protected void ensureCapacity(int u) {
+        if (u < present.length) return;
+        int capacity = Math.max(u + 1, 2 * present.length);
+        this.adj = Arrays.copyOf(this.adj, capacity);
+        this.degree = Arrays.copyOf(this.degree, capacity);
+        this.present = Arrays.copyOf(this.present, capacity);
+    }
+
+    /**
+     * Teste si u est un sommet
+     * @param u un sommet
+     * @return boolean
+     */
+    public boolean hasVertex(int u) {
+        return u >= 0 && u < present.length && present[u];
+    }
+
+    /**
+     * Teste si uv est une arête/un arc
+     * @param u sommet
+     * @param v sommet
+     * @return boolean uv est une arête/arc
+     */
+    public boolean hasEdge(int u, int v) {
+        if (!hasVertex(u)) return false;
+        int[] list = adj[u];
+        for (int k = 0; k < degree[u]; k++) {
+            if (list[k] == v) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Ajout d'un sommet
+     * @param u sommet (entier positif)
+     */
+    public void addVertex(int u) {
+        if (u < 0) throw new IllegalArgumentException("Sommet négatif : " + u);
+        ensureCapacity(u);
+        if (present[u]) return;
+        present[u] = true;
+        adj[u] = new int[4];
+        if (vertexCount == vertices.length) {
+            vertices = Arrays.copyOf(vertices, 2 * vertices.length);
+        }
+        vertices[vertexCount++] = u;
+    }
+
+    /**
+     * Ajout de v à la fin de la liste d'adjacence de u
+     * @param u sommet
+     * @param v sommet
+     */
+    protected void appendNeighbor(int u, int v) {
+        if (degree[u] == adj[u].length) {
+            adj[u] = Arrays.copyOf(adj[u], 2 * adj[u].length);
+        }
+        adj[u][degree[u]++] = v;
+    }
+
+    /**
+     * Ajout d'une arête/arc
+     * @param u sommet
+     * @param v sommet
+     */
+    public abstract void addEdge(int u, int v);
+
+    /**
+     * Nombre de sommets
+     * @return int
+     */
+    public int getVertexCount() {
+        return vertexCount;
+    }
+
+    /**
+     * Sommet d'indice k dans l'ordre d'insertion
+     * @param k indice entre 0 et getVertexCount() - 1
+     * @return le sommet
+     */
+    public int getVertex(int k) {
+        return vertices[k];
+    }
+
+    /**
+     * Plus grand identifiant de sommet possible + 1
+     * @return int
+     */
+    public int getCapacity() {
+        return present.length;
+    }
+
+    /**
+     * Nombre de voisins (sortants) d'un sommet
+     * @param u sommet
+     * @return int
+     */
+    public int getDegree(int u) {
+        return hasVertex(u) ? degree[u] : 0;
+    }
+
+    /**
+     * k-ième voisin (sortant) d'un sommet, sans allocation
+     * @param u sommet
+     * @param k indice entre 0 et getDegree(u) - 1
+     * @return le voisin
+     */
+    public int getNeighbor(int u, int k) {
+        return adj[u][k];
+    }
+
+    /**
+     * Conversion pour l'affichage
+     * @return String
+     */
+    public String toString() {
+        StringBuilder s = new StringBuilder();
+        for (int k = 0; k < vertexCount; k++) {
+            int u = vertices[k];
+            s.append(u).append(": ");
+            for (int j = 0; j < degree[u]; j++) {
+                s.append(adj[u][j]).append(", ");
+            }
+            s.append("\n");
+        }
+        return s.toString();
+    }
+}
@@ -0,0 +1,211 @@
+package Graph;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Graphe non orienté sur des sommets entiers, en listes d'adjacence seulement : c'est le graphe
+ * d'interférence de l'allocateur, qui ajoute ses arêtes par addEdges (marquage) et ne fait que
+ * parcourir les voisins ensuite. Une matrice de bits (DenseEdgeIndex, voir UnorientedGraph) n'y serait jamais lue.
+ */
+public class IntUnorientedGraph extends IntGraph {
+    // Nombre de sommets en dessous duquel colorParallel se contente de la coloration gloutonne séquentielle.
+    // colorParallel n'est pas utilisé par le compilateur : les graphes d'interférence par fonction restent
+    // bien en dessous de ce seuil, et sur un seul thread Jones-Plassmann est 5 à 9 fois plus lent que
+    // la coloration gloutonne (ParallelColoringBenchmark). Il est là pour de très grands graphes.
+    public static final int PARALLEL_COLORING_THRESHOLD = 50_000;
+
+    private int[] colors = new int[0];
+
+    private long edgeCount = 0;
+
+    // Coloration (tableaux de travail réutilisés d'un appel à l'autre)
+    private final GraphColoring coloring = new GraphColoring();
+
+    // Tableau de marques réutilisé par addEdges (neighborMarks[v] == neighborStamp <=> v voisin du sommet traité)
+    private int[] neighborMarks = new int[0];
+    private int neighborStamp = 0;
+
+    public IntUnorientedGraph() {
+        super();
+    }
+
+    public IntUnorientedGraph(int capacity) {
+        super(capacity);
+    }
+
+    /**
+     * Nombre d'arêtes
+     * @return long
+     */
+    public long getEdgeCount() {
+        return edgeCount;
+    }
+
+    /**
+     * Teste si uv est une arête (parcourt la plus petite des deux listes)
+     * @param u sommet
+     * @param v sommet
+     * @return boolean
+     */
+    @Override
+    public boolean hasEdge(int u, int v) {
+        if (!hasVertex(u) || !hasVertex(v)) return false;
+        return degree[u] <= degree[v] ? super.hasEdge(u, v) : super.hasEdge(v, u);
+    }
+
+    /**
+     * Ajout d'une arête
+     * @param u sommet
+     * @param v sommet
+     */
+    public void addEdge(int u, int v) {
+        if (!this.hasEdge(u, v)) {
+            this.addVertex(u);
+            this.addVertex(v);
+            insertEdge(u, v);
+        }
+    }
+
+    /**
+     * Ajout des arêtes entre u et chaque sommet de vs (sauf u lui-même et except).
+     * Équivaut à appeler addVertex(v) puis addEdge(u, v) pour chaque v de vs dans l'ordre croissant,
+     * mais les voisins de u ne sont parcourus qu'une fois (marquage) au lieu d'un test d'arête par v.
+     * @param u sommet
+     * @param vs sommets à relier à u (ajoutés au graphe s'ils n'y sont pas)
+     * @param except sommet à ne pas relier à u (-1 si aucun)
+     */
+    public void addEdges(int u, BitSet vs, int except) {
+        this.addVertex(u);
+        if (++neighborStamp == 0) {
+            Arrays.fill(neighborMarks, 0);
+            neighborStamp = 1;
+        }
+        ensureNeighborMarks(getCapacity());
+        for (int j = 0; j < degree[u]; j++) {
+            neighborMarks[adj[u][j]] = neighborStamp;
+        }
+
+        for (int v = vs.nextSetBit(0); v >= 0; v = vs.nextSetBit(v + 1)) {
+            this.addVertex(v);
+            if (v == u || v == except) continue;
+            ensureNeighborMarks(v + 1);
+            if (neighborMarks[v] == neighborStamp) continue;
+            neighborMarks[v] = neighborStamp;
+            insertEdge(u, v);
+        }
+    }
+
+    private void ensureNeighborMarks(int size) {
+        if (neighborMarks.length < size) {
+            neighborMarks = Arrays.copyOf(neighborMarks, Math.max(size, getCapacity()));
+        }
+    }
+
+    /**
+     * Ajout d'une arête absente entre deux sommets présents
+     */
+    private void insertEdge(int u, int v) {
+        this.appendNeighbor(u, v);
+        this.appendNeighbor(v, u);
+        this.edgeCount++;
+    }
+
+    /**
+     * Mémoire occupée par les listes d'adjacence (tableaux indexés par sommet compris)
+     * @return taille estimée en octets
+     */
+    public long getAdjacencyMemory() {
+        long bytes = 3 * (16 + 4L * getCapacity());
+        for (int k = 0; k < vertexCount; k++) {
+            bytes += 16 + 4L * adj[vertices[k]].length;
+        }
+        return bytes;
+    }
+
+    /**
+     * Rapport mémoire des listes d'adjacence
+     * @return String
+     */
+    public String memoryReport() {
+        return String.format("%d sommets, %d arêtes, densité %.3f : listes %d o",
+                vertexCount, edgeCount, DenseEdgeIndex.density(edgeCount, vertexCount), getAdjacencyMemory());
+    }
+
+    /**
+     * Getter des voisins d'un sommet (copie)
+     * Pour parcourir sans allocation : getDegree(u) et getNeighbor(u, k)
+     * @param u sommet
+     * @return les voisins de u, ou null si u n'est pas un sommet
+     */
+    public int[] getNeighbors(int u) {
+        if (!hasVertex(u))
+            return null;
+        return Arrays.copyOf(adj[u], degree[u]);
+    }
+
+    /**
+     * Getter de la couleur d'un sommet
+     * @param u sommet
+     * @return int couleur, -1 si le sommet n'est pas coloré
+     */
+    public int getColor(int u) {
+        if (u < 0 || u >= colors.length) return -1;
+        return colors[u];
+    }
+
+    /**
+     * Algorithme glouton de coloration (sommets dans l'ordre d'insertion)
+     * @return int nombre de couleurs utilisées
+     */
+    public int color() {
+        return color(ColoringStrategy.INSERTION_ORDER);
+    }
+
+    /**
+     * Algorithme glouton de coloration, sur une copie CSR du graphe
+     * @param strategy ordre de traitement des sommets
+     * @return int nombre de couleurs utilisées
+     */
+    public int color(ColoringStrategy strategy) {
+        int[] idOf = new int[getCapacity()];
+        CsrGraph csr = CsrGraph.fromAdjacency(vertices, vertexCount, adj, degree, idOf);
+        int[] csrColors = new int[vertexCount];
+        Arrays.fill(csrColors, -1);
+        int nbColors = coloring.color(strategy, csr, csrColors);
+        setColors(csrColors);
+        return nbColors;
+    }
+
+    /**
+     * Coloration parallèle de Jones-Plassmann, sur une copie CSR du graphe (sommets prêts colorés par
+     * tours sur le pool). En dessous de PARALLEL_COLORING_THRESHOLD sommets, coloration gloutonne
+     * séquentielle dans l'ordre d'insertion.
+     * @param seed graine des priorités aléatoires : pour une graine donnée, la coloration ne dépend pas
+     *             du nombre de threads
+     * @param pool pool de threads
+     * @return int nombre de couleurs utilisées
+     */
+    public int colorParallel(long seed, ForkJoinPool pool) {
+        if (vertexCount < PARALLEL_COLORING_THRESHOLD) return color();
+
+        int[] idOf = new int[getCapacity()];
+        CsrGraph csr = CsrGraph.fromAdjacency(vertices, vertexCount, adj, degree, idOf);
+        int[] csrColors = new int[vertexCount];
+        Arrays.fill(csrColors, -1);
+        int nbColors = ParallelColoring.color(csr, seed, pool, csrColors);
+        setColors(csrColors);
+        return nbColors;
+    }
+
+    /**
+     * Reporte sur les sommets les couleurs calculées sur la copie CSR (sommet d'indice k = numéro k)
+     */
+    private void setColors(int[] csrColors) {
+        colors = new int[getCapacity()];
+        Arrays.fill(colors, -1);
+        for (int k = 0; k < vertexCount; k++) {
+            colors[vertices[k]] = csrColors[k];
+        }
+    }
+}
@@ -1,7 +1,23 @@
 package Graph;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 
 public class OrientedGraph<T> extends Graph<T> {
+    // Listes d'adjacence inverses (voisins entrants), tenues à jour à chaque ajout d'arc
+    protected HashMap<T,ArrayList<T>> inAdjList = new HashMap<T,ArrayList<T>>();
+
+    /**
+     * Ajout d'un sommet
+     * @param u sommet
+     */
+    @Override
+    public void addVertex(T u) {
+        if (this.hasVertex(u)) return;
+        super.addVertex(u);
+        this.inAdjList.put(u, new ArrayList<T>());
+    }
     
     /** 
      * Ajout d'un arc
@@ -12,6 +28,7 @@ public class OrientedGraph<T> extends Graph<T> {
         this.addVertex(u);
         this.addVertex(v);
         this.adjList.get(u).add(v);
+        this.inAdjList.get(v).add(u);
     }
 
     /**
@@ -26,17 +43,25 @@ public class OrientedGraph<T> extends Graph<T> {
     }
 
     /**
-     * Getter des voisins entrant d'un sommet
+     * Getter des voisins entrant d'un sommet, en O(1)
      * @param u sommet
-     * @return les voisins entrant de u
+     * @return vue non modifiable des voisins entrant de u
      */
-    public ArrayList<T> getInNeighbors(T u) {
-        if (!this.adjList.containsKey(u))
+    public List<T> getInNeighbors(T u) {
+        if (!this.inAdjList.containsKey(u))
             return null;
-        ArrayList<T> result = new ArrayList<T>();
-        for (T v : this.vertices) {
-            if (this.hasEdge(v, u)) result.add(v);
+        return Collections.unmodifiableList(this.inAdjList.get(u));
+    }
+
+    /**
+     * Surcoût mémoire des listes inverses (entrées de HashMap, ArrayList et tableaux de références)
+     * @return taille estimée en octets
+     */
+    public long getInNeighborsMemory() {
+        long bytes = 16 + 4L * this.inAdjList.size();
+        for (ArrayList<T> in : this.inAdjList.values()) {
+            bytes += 32 + 24 + 16 + 4L * in.size();
         }
-        return result;
+        return bytes;
     }
 }
@@ -0,0 +1,171 @@
+package Graph;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Coloration parallèle de Jones-Plassmann sur un graphe CSR.
+ *
+ * Chaque sommet reçoit une priorité pseudo-aléatoire tirée de la graine (à égalité, le plus petit
+ * numéro passe devant). Un sommet est coloré, avec la plus petite couleur absente de ses voisins,
+ * dès que tous ses voisins plus prioritaires le sont : les sommets prêts en même temps forment un
+ * ensemble indépendant et sont colorés en parallèle, par tours.
+ * Chaque sommet tient le compte de ses voisins plus prioritaires non colorés (waiting) ; colorer un
+ * sommet décrémente le compte de ses voisins moins prioritaires, et ceux qui tombent à zéro sont
+ * prêts pour le tour suivant. Le travail total reste en O(sommets + arêtes).
+ *
+ * Le résultat est celui de la coloration gloutonne séquentielle par priorité décroissante :
+ * pour une graine donnée, il ne dépend ni du nombre de threads ni de l'ordonnancement.
+ */
+final class ParallelColoring {
+    // Nombre de sommets traités par une tâche feuille
+    private static final int GRAIN = 512;
+
+    private final CsrGraph graph;
+    private final long seed;
+    private final long[] priority;
+    private final AtomicIntegerArray waiting;
+    private final int[] colors;
+
+    // Sommets prêts pour le tour en cours, et pour le tour suivant (remplis en parallèle)
+    private int[] ready;
+    private int[] next;
+    private final AtomicInteger nextCount = new AtomicInteger();
+
+    private enum Phase { PRIORITY, COUNT, COLOR }
+
+    private ParallelColoring(CsrGraph graph, long seed, int[] colors) {
+        int n = graph.getVertexCount();
+        this.graph = graph;
+        this.seed = seed;
+        this.priority = new long[n];
+        this.waiting = new AtomicIntegerArray(n);
+        this.colors = colors;
+        this.ready = new int[n];
+        this.next = new int[n];
+    }
+
+    /**
+     * Colore le graphe
+     * @param graph le graphe
+     * @param seed graine des priorités
+     * @param pool pool de threads
+     * @param colors couleur de chaque sommet, indexée par numéro, à remplir (doit valoir -1 pour tous les sommets)
+     * @return nombre de couleurs utilisées
+     */
+    static int color(CsrGraph graph, long seed, ForkJoinPool pool, int[] colors) {
+        int n = graph.getVertexCount();
+        ParallelColoring coloring = new ParallelColoring(graph, seed, colors);
+        pool.invoke(coloring.new Slice(Phase.PRIORITY, 0, n));
+        pool.invoke(coloring.new Slice(Phase.COUNT, 0, n));
+        while (coloring.nextCount.get() > 0) {
+            int count = coloring.nextCount.getAndSet(0);
+            int[] swap = coloring.ready;
+            coloring.ready = coloring.next;
+            coloring.next = swap;
+            // Ordre de remplissage quelconque : le tri par numéro rend le parcours des listes séquentiel
+            Arrays.sort(coloring.ready, 0, count);
+            pool.invoke(coloring.new Slice(Phase.COLOR, 0, count));
+        }
+
+        int maxCol = -1;
+        for (int u = 0; u < n; u++) {
+            maxCol = Math.max(maxCol, colors[u]);
+        }
+        return maxCol + 1;
+    }
+
+    /**
+     * Priorité pseudo-aléatoire d'un sommet (mélange de SplitMix64)
+     */
+    private long hash(int u) {
+        long z = seed + (u + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Teste si u est coloré avant v
+     */
+    private boolean before(int u, int v) {
+        return priority[u] > priority[v] || (priority[u] == priority[v] && u < v);
+    }
+
+    private void pushNext(int u) {
+        next[nextCount.getAndIncrement()] = u;
+    }
+
+    /**
+     * Tâche sur une tranche de sommets : numéros from à to - 1 (PRIORITY, COUNT)
+     * ou sommets prêts ready[from] à ready[to - 1] (COLOR)
+     */
+    private final class Slice extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Phase phase;
+        private final int from;
+        private final int to;
+
+        Slice(Phase phase, int from, int to) {
+            this.phase = phase;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > GRAIN) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new Slice(phase, from, mid), new Slice(phase, mid, to));
+                return;
+            }
+            switch (phase) {
+                case PRIORITY -> {
+                    for (int u = from; u < to; u++) {
+                        priority[u] = hash(u);
+                    }
+                }
+                case COUNT -> {
+                    for (int u = from; u < to; u++) {
+                        int count = 0;
+                        for (int k = graph.getOffset(u); k < graph.getOffset(u + 1); k++) {
+                            if (before(graph.getTarget(k), u)) count++;
+                        }
+                        waiting.set(u, count);
+                        if (count == 0) pushNext(u);
+                    }
+                }
+                case COLOR -> colorReady();
+            }
+        }
+
+        private void colorReady() {
+            // marks[c + 1] == stamp <=> la couleur c est prise par un voisin du sommet traité
+            // (décalage d'une case : un voisin non coloré marque la case 0, sans test)
+            int[] marks = new int[graph.getMaxDegree() + 2];
+            int stamp = 0;
+            for (int i = from; i < to; i++) {
+                int u = ready[i];
+                stamp++;
+                // Les voisins plus prioritaires sont tous colorés (tours précédents), les autres pas encore
+                int start = graph.getOffset(u);
+                int end = graph.getOffset(u + 1);
+                for (int k = start; k < end; k++) {
+                    marks[colors[graph.getTarget(k)] + 1] = stamp;
+                }
+                int c = 0;
+                while (marks[c + 1] == stamp) c++;
+
+                // Les voisins non colorés sont exactement les moins prioritaires : ils attendent u
+                for (int k = start; k < end; k++) {
+                    int v = graph.getTarget(k);
+                    if (colors[v] < 0 && waiting.decrementAndGet(v) == 0) pushNext(v);
+                }
+                colors[u] = c;
+            }
+        }
+    }
+}
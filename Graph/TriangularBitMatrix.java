@@ -0,0 +1,110 @@
+package Graph;
+import java.util.Arrays;
+
+/**
+ * Matrice d'adjacence triangulaire inférieure stockée sur des bits (comme dans l'allocateur de Chaitin).
+ * La paire {i, j} avec i > j occupe le bit i*(i-1)/2 + j : ajouter une ligne ne déplace pas les bits
+ * déjà présents, la matrice peut donc grandir avec le nombre de sommets.
+ */
+class TriangularBitMatrix {
+    // En dessous de ce nombre de sommets on garde seulement les listes d'adjacence
+    static final int MIN_VERTICES = 64;
+
+    private long[] words;
+    private int size;
+
+    /**
+     * Constructeur
+     * @param size nombre de sommets (identifiants de 0 à size - 1)
+     */
+    TriangularBitMatrix(int size) {
+        this.size = 0;
+        this.words = new long[0];
+        ensureSize(size);
+    }
+
+    /**
+     * Agrandit la matrice pour contenir les sommets 0 à size - 1
+     * @param newSize nombre de sommets
+     */
+    void ensureSize(int newSize) {
+        if (newSize <= size) return;
+        long bits = pairCount(newSize);
+        int nbWords = (int) ((bits + 63) >>> 6);
+        if (nbWords > words.length) {
+            words = Arrays.copyOf(words, Math.max(nbWords, words.length + words.length / 2));
+        }
+        size = newSize;
+    }
+
+    int getSize() {
+        return size;
+    }
+
+    private static long bitIndex(int u, int v) {
+        int i = Math.max(u, v);
+        int j = Math.min(u, v);
+        return (long) i * (i - 1) / 2 + j;
+    }
+
+    /**
+     * Teste la présence de l'arête uv (u != v)
+     * @param u sommet
+     * @param v sommet
+     * @return boolean
+     */
+    boolean get(int u, int v) {
+        if (u == v || u >= size || v >= size) return false;
+        long bit = bitIndex(u, v);
+        return (words[(int) (bit >>> 6)] & (1L << bit)) != 0;
+    }
+
+    /**
+     * Ajoute l'arête uv (u != v)
+     * @param u sommet
+     * @param v sommet
+     */
+    void set(int u, int v) {
+        if (u == v) return;
+        ensureSize(Math.max(u, v) + 1);
+        long bit = bitIndex(u, v);
+        words[(int) (bit >>> 6)] |= 1L << bit;
+    }
+
+    /**
+     * Mémoire occupée par la matrice
+     * @return taille en octets
+     */
+    long memoryBytes() {
+        return 16 + 8L * words.length;
+    }
+
+    /**
+     * Nombre de paires de sommets distincts parmi n sommets
+     * @param n nombre de sommets
+     * @return n(n-1)/2
+     */
+    static long pairCount(int n) {
+        return (long) n * (n - 1) / 2;
+    }
+
+    /**
+     * Mémoire qu'occuperait une matrice pour n sommets
+     * @param n nombre de sommets
+     * @return taille en octets
+     */
+    static long memoryBytesFor(int n) {
+        return 16 + 8 * ((pairCount(n) + 63) >>> 6);
+    }
+
+    /**
+     * Indique si un graphe est assez dense pour justifier la matrice
+     * @param edges nombre d'arêtes
+     * @param vertices nombre de sommets
+     * @param threshold densité minimale (arêtes / paires de sommets)
+     * @return boolean
+     */
+    static boolean isDenseEnough(long edges, int vertices, double threshold) {
+        return vertices >= MIN_VERTICES && edges >= threshold * pairCount(vertices);
+    }
+}
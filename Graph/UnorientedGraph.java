@@ -1,13 +1,51 @@
 package Graph;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.concurrent.ForkJoinPool;
 
+/**
+ * Graphe non orienté, en représentation hybride (DenseEdgeIndex) : listes d'adjacence,
+ * complétées par une matrice de bits au-delà du seuil de densité.
+ */
 public class UnorientedGraph<T> extends Graph<T> {
-    private HashMap<T,Integer> colors = new HashMap<T,Integer>(); 
+    // Couleur de chaque sommet, indexée par son numéro (null avant la coloration)
+    private int[] colors = null;
+
+    // Coloration (tableaux de travail réutilisés d'un appel à l'autre)
+    private final GraphColoring coloring = new GraphColoring();
+
+    // Numéros des sommets, pour la matrice de bits
+    private HashMap<T,Integer> ids = new HashMap<T,Integer>();
+    private final DenseEdgeIndex edgeIndex = new DenseEdgeIndex(this::forEachEdge);
     
     public UnorientedGraph() {
     	super();
-    	this.colors = new HashMap<T,Integer>();
+    }
+
+    /**
+     * Ajout d'un sommet (qui reçoit un numéro pour la matrice de bits)
+     * @param u sommet
+     */
+    @Override
+    public void addVertex(T u) {
+        if (this.hasVertex(u)) return;
+        super.addVertex(u);
+        this.ids.put(u, this.ids.size());
+    }
+
+    /**
+     * Teste si uv est une arête : O(1) avec la matrice, sinon parcours de la liste de u
+     * @param u sommet
+     * @param v sommet
+     * @return boolean
+     */
+    @Override
+    public boolean hasEdge(T u, T v) {
+        if (!edgeIndex.isUsed()) return super.hasEdge(u, v);
+        Integer i = this.ids.get(u);
+        Integer j = this.ids.get(v);
+        return i != null && j != null && edgeIndex.get(i, j);
     }
 
     /** 
@@ -21,8 +59,84 @@ public class UnorientedGraph<T> extends Graph<T> {
             this.addVertex(v);
             this.adjList.get(u).add(v);
             this.adjList.get(v).add(u);
+            edgeIndex.edgeAdded(this.ids.get(u), this.ids.get(v), this.vertices.size());
+        }
+    }
+
+    /**
+     * Copie figée du graphe au format CSR : les voisins entrants sont les voisins sortants
+     * (un seul tableau), les numéros sont ceux de la matrice de bits
+     * @return le graphe figé
+     */
+    @Override
+    public FrozenGraph<T> freeze() {
+        CsrGraph adjacency = toCsr(this.ids);
+        return new FrozenGraph<T>(this.vertices, new HashMap<T,Integer>(this.ids), adjacency, adjacency);
+    }
+
+    /**
+     * Setter du seuil de densité au-delà duquel la matrice de bits est utilisée
+     * @param densityThreshold densité entre 0 et 1 (au-dessus de 1 : jamais de matrice)
+     */
+    public void setDensityThreshold(double densityThreshold) {
+        edgeIndex.setDensityThreshold(densityThreshold, this.vertices.size());
+    }
+
+    /**
+     * Indique si la matrice de bits est utilisée pour les tests d'arête
+     * @return boolean
+     */
+    public boolean usesBitMatrix() {
+        return edgeIndex.isUsed();
+    }
+
+    /**
+     * Nombre d'arêtes
+     * @return long
+     */
+    public long getEdgeCount() {
+        return edgeIndex.getEdgeCount();
+    }
+
+    /**
+     * Parcours des arêtes par numéros de sommets (chaque arête deux fois)
+     */
+    private void forEachEdge(DenseEdgeIndex.EdgeVisitor visitor) {
+        for (T u : this.vertices) {
+            for (T v : this.adjList.get(u)) {
+                visitor.visit(this.ids.get(u), this.ids.get(v));
+            }
         }
     }
+
+    /**
+     * Mémoire occupée par la matrice de bits (numéros de sommets compris),
+     * ou qu'elle occuperait si elle n'est pas encore créée
+     * @return taille estimée en octets
+     */
+    public long getBitMatrixMemory() {
+        long idBytes = 48L * this.ids.size();
+        return idBytes + edgeIndex.getMatrixMemory(this.vertices.size());
+    }
+
+    /**
+     * Mémoire occupée par le graphe : les listes d'adjacence, plus la matrice de bits une fois
+     * créée (chaque arête est alors dans les deux)
+     * @return taille estimée en octets
+     */
+    public long getMemory() {
+        return getAdjacencyMemory() + (edgeIndex.isUsed() ? getBitMatrixMemory() : 0);
+    }
+
+    /**
+     * Rapport mémoire, pour régler le seuil de densité : total des listes et de la matrice si elle est
+     * utilisée, sinon taille des listes et de la matrice qui les compléterait
+     * @return String
+     */
+    public String memoryReport() {
+        return edgeIndex.memoryReport(this.vertices.size(), getAdjacencyMemory(), getBitMatrixMemory());
+    }
+
     /**
      * Getter des voisins d'un sommet
      * @param u sommet
@@ -37,39 +151,48 @@ public class UnorientedGraph<T> extends Graph<T> {
     /**
      * Getter de la couleur d'un sommet
      * @param u sommet
-     * @return int couleur
+     * @return int couleur, -1 si le sommet n'est pas coloré
      */
     public int getColor(T u) {
-        if (!this.colors.containsKey(u)) return -1;
-        return this.colors.get(u).intValue();
+        Integer id = this.ids.get(u);
+        if (colors == null || id == null || id >= colors.length) return -1;
+        return colors[id];
     }
 
     /**
-     * Algorithme glouton de coloration
+     * Algorithme glouton de coloration (sommets dans l'ordre d'insertion)
      * @return int nombre de couleurs utilisées
      */
     public int color() {
-        int maxCol = 0;
-        for (T u : this.vertices) {
-            boolean[] usedColors = new boolean[maxCol+1]; 
-            for (int i = 0; i <= maxCol; i++) {
-                usedColors[i] = false;
-            }
-            for (T v : getNeighbors(u)) {
-                if (getColor(v) != -1)
-                    usedColors[getColor(v)] = true;
-            }
-            for (int i = 0; i <= maxCol; i++) {
-                if (!usedColors[i]) {
-                    this.colors.put(u,i);
-                    break;
-                }
-            }
-            if (!this.colors.containsKey(u)) {
-                maxCol++;
-                this.colors.put(u,maxCol);
-            }
-        }
-        return maxCol+1;
+        return color(ColoringStrategy.INSERTION_ORDER);
+    }
+
+    /**
+     * Algorithme glouton de coloration, sur les numéros des sommets
+     * (les listes d'adjacence sont converties une fois au format CSR)
+     * @param strategy ordre de traitement des sommets
+     * @return int nombre de couleurs utilisées
+     */
+    public int color(ColoringStrategy strategy) {
+        colors = new int[this.vertices.size()];
+        Arrays.fill(colors, -1);
+        return coloring.color(strategy, toCsr(this.ids), colors);
+    }
+
+    /**
+     * Coloration parallèle de Jones-Plassmann, sur une copie CSR du graphe (numéros des sommets).
+     * En dessous de IntUnorientedGraph.PARALLEL_COLORING_THRESHOLD sommets, coloration gloutonne
+     * séquentielle dans l'ordre d'insertion.
+     * @param seed graine des priorités aléatoires : pour une graine donnée, la coloration ne dépend pas
+     *             du nombre de threads
+     * @param pool pool de threads
+     * @return int nombre de couleurs utilisées
+     */
+    public int colorParallel(long seed, ForkJoinPool pool) {
+        if (this.vertices.size() < IntUnorientedGraph.PARALLEL_COLORING_THRESHOLD) return color();
+
+        colors = new int[this.vertices.size()];
+        Arrays.fill(colors, -1);
+        return ParallelColoring.color(toCsr(this.ids), seed, pool, colors);
     }
 }
@@ -1,4 +1,5 @@
 import Asm.Program;
+import Peephole.PeepholeOptimizer;
 import Type.UnknownType;
 import Type.Type;
 import RegisterAllocator.RegisterAllocator;
@@ -15,7 +16,16 @@ import java.util.Map;
 public class Main {
 	public static void main(String[] args) {
 		try {
-			String inputFile = args.length > 0 ? args[0] : "input";
+			// Arguments : [--linear-scan] [fichier d'entrée]
+			String inputFile = "input";
+			RegisterAllocator.Strategy strategy = RegisterAllocator.Strategy.GRAPH_COLORING;
+			for (String arg : args) {
+				if (arg.equals("--linear-scan")) {
+					strategy = RegisterAllocator.Strategy.LINEAR_SCAN;
+				} else {
+					inputFile = arg;
+				}
+			}
 			CharStream stream = CharStreams.fromFileName(inputFile);
 
 			grammarTCLLexer lexer = new grammarTCLLexer(stream);
@@ -45,8 +55,13 @@ public class Main {
             System.out.println(tree.toStringTree(parser));
 			Program prog = codegen.visit(tree);
 
+			// Optimisation à lucarne, sur les registres virtuels
+			PeepholeOptimizer peephole = new PeepholeOptimizer(prog);
+			prog = peephole.optimize();
+			System.out.println("Optimisation à lucarne : " + peephole.getHits());
+
 			// Groupe 3: Allocation de registres
-			RegisterAllocator ra = new RegisterAllocator(prog);
+			RegisterAllocator ra = new RegisterAllocator(prog, strategy);
 			prog = ra.minimizeRegisters();
 
 			PrintWriter writer = new PrintWriter("prog.asm");
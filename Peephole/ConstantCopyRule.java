@@ -0,0 +1,31 @@
+package Peephole;
+
+import Asm.*;
+
+/**
+ * XOR Rn Rn Rn suivi de ADDi Rm Rn k, Rn n'étant plus lu ensuite : la constante est construite
+ * directement dans Rm (XOR Rm Rm Rm, ADDi Rm Rm k). Le jeu d'instructions n'a pas de registre nul,
+ * la paire reste donc de deux instructions, mais le registre Rn disparaît du graphe d'interférence.
+ * (ADDi Rm Rn k vient de la copie de la constante, réécrite par CopyForwardingRule.)
+ */
+public class ConstantCopyRule implements PeepholeRule {
+
+  @Override
+  public String getName() {
+    return "constant-copy";
+  }
+
+  @Override
+  public boolean apply(PeepholeWindow window) {
+    if (!(window.get(0) instanceof UAL zero) || !(window.get(1) instanceof UALi add) || window.hasLabel(1)) return false;
+
+    int reg = zero.getDest();
+    boolean isZero = zero.getName().equals("XOR") && zero.getSr1() == reg && zero.getSr2() == reg;
+    if (!isZero || !add.getName().equals("ADD") || add.getSr() != reg || add.getDest() == reg) return false;
+    if (window.isLiveAfter(1, reg)) return false;
+
+    int dest = add.getDest();
+    window.replace(0, 2, new UAL(UAL.Op.XOR, dest, dest, dest), new UALi(UALi.Op.ADD, dest, dest, add.getImm()));
+    return true;
+  }
+}
@@ -0,0 +1,57 @@
+package Peephole;
+
+import Asm.*;
+
+/**
+ * Rn := f(...) suivi de la copie ADDi Rm Rn 0, Rn n'étant plus lu ensuite : le calcul écrit
+ * directement dans Rm (Rm := f(...)). Raccourcit aussi les chaînes de copies ADDi Rx Ry 0.
+ */
+public class CopyForwardingRule implements PeepholeRule {
+
+  @Override
+  public String getName() {
+    return "copy-forwarding";
+  }
+
+  @Override
+  public boolean apply(PeepholeWindow window) {
+    Instruction def = window.get(0);
+    Instruction copy = window.get(1);
+    if (copy == null || !SelfCopyRule.isCopy(copy) || window.hasLabel(1)) return false;
+
+    int source = ((UALi) copy).getSr();
+    int dest = ((UALi) copy).getDest();
+    if (source == dest || destination(def) != source || window.isLiveAfter(1, source)) return false;
+
+    window.replace(0, 2, retarget(def, dest));
+    return true;
+  }
+
+  /**
+   * Registre écrit par un calcul sans effet de bord
+   * @param i l'instruction
+   * @return le registre, -1 pour une autre instruction
+   */
+  static int destination(Instruction i) {
+    return switch (i) {
+      case UAL ual -> ual.getDest();
+      case UALi ualI -> ualI.getDest();
+      case Mem mem when i.getName().equals("LD") -> mem.getDest();
+      case null, default -> -1;
+    };
+  }
+
+  /**
+   * Même calcul avec un autre registre destination (XOR Rn Rn Rn devient XOR Rm Rm Rm)
+   */
+  private static Instruction retarget(Instruction i, int dest) {
+    return switch (i) {
+      case UAL ual when ual.getSr1() == ual.getDest() && ual.getSr2() == ual.getDest() ->
+              new UAL(UAL.Op.valueOf(i.getName()), dest, dest, dest);
+      case UAL ual -> new UAL(UAL.Op.valueOf(i.getName()), dest, ual.getSr1(), ual.getSr2());
+      case UALi ualI -> new UALi(UALi.Op.valueOf(i.getName()), dest, ualI.getSr(), ualI.getImm());
+      case Mem mem -> new Mem(Mem.Op.LD, dest, mem.getAddress());
+      default -> throw new RuntimeException("(Peephole.CopyForwardingRule) Instruction inattendue : " + i);
+    };
+  }
+}
@@ -0,0 +1,25 @@
+package Peephole;
+
+import Asm.*;
+
+/**
+ * Calcul (UAL, UALi, LD) dont le résultat n'est jamais lu : supprimé, son label passe à l'instruction
+ * suivante. Enlève en particulier les XOR Rf Rf Rf que CodeGenerator ajoute pour porter un label,
+ * et le chargement d'un paramètre jamais lu (son dépilement, ADDi R1 R1 1, reste).
+ */
+public class DeadDefinitionRule implements PeepholeRule {
+
+  @Override
+  public String getName() {
+    return "dead-definition";
+  }
+
+  @Override
+  public boolean apply(PeepholeWindow window) {
+    Instruction i = window.get(0);
+    int dest = CopyForwardingRule.destination(i);
+    if (dest < 0 || window.isLiveAfter(0, dest) || !window.canRemove(0)) return false;
+    window.replace(0, 1);
+    return true;
+  }
+}
@@ -0,0 +1,26 @@
+package Peephole;
+
+import Asm.*;
+
+/**
+ * JMP L (ou saut conditionnel vers L) juste avant l'instruction L : le saut est supprimé
+ */
+public class JumpToNextRule implements PeepholeRule {
+
+  @Override
+  public String getName() {
+    return "jump-to-next";
+  }
+
+  @Override
+  public boolean apply(PeepholeWindow window) {
+    Instruction i = window.get(0);
+    String address = null;
+    if (i instanceof JumpCall jc && i.getName().equals("JMP")) address = jc.getAddress();
+    if (i instanceof CondJump cj) address = cj.getAddress();
+    if (address == null || !window.hasLabel(1) || !window.get(1).getLabels().contains(address)) return false;
+    if (!window.canRemove(0)) return false;
+    window.replace(0, 1);
+    return true;
+  }
+}
@@ -0,0 +1,194 @@
+package Peephole;
+
+import Asm.*;
+import RegisterAllocator.CFGAnalysis;
+import RegisterAllocator.ControlGraph;
+
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Optimiseur à lucarne sur un Program en registres virtuels (à appliquer entre la génération
+ * de code et l'allocation de registres).
+ *
+ * Une fenêtre glisse sur le programme ; à chaque position, la première règle qui s'applique
+ * réécrit le début de la fenêtre, puis on reprend une instruction plus tôt pour voir les motifs
+ * que la réécriture a formés. Les passes se répètent jusqu'au point fixe (aucune règle ne s'applique).
+ * Les règles qui suppriment une écriture s'appuient sur la vivacité (CFGAnalysis), calculée au début
+ * de chaque passe : les règles ne font que réduire les ensembles de registres vivants, donc un
+ * registre mort au début de la passe le reste jusqu'à la fin.
+ * Les registres R0 (valeur de retour) et R1 (pile) sont toujours considérés comme vivants.
+ */
+public class PeepholeOptimizer {
+  static final int RETURN_REGISTER = 0;
+  static final int STACK_POINTER = 1;
+
+  private final Program program;
+  private final List<PeepholeRule> rules;
+
+  // Nombre d'applications de chaque règle, dans l'ordre des règles
+  private final Map<String, Integer> hits = new LinkedHashMap<>();
+  private int passCount = 0;
+
+  // Vivacité du début de la passe, et position de chaque instruction à ce moment-là
+  private CFGAnalysis liveness;
+  private IdentityHashMap<Instruction, Integer> snapshotIndex;
+  // Labels appelés par un CALL au début de la passe (les règles ne créent pas de CALL)
+  private Set<String> callTargets;
+
+  public PeepholeOptimizer(Program program) {
+    this(program, defaultRules());
+  }
+
+  /**
+   * Constructeur
+   * @param program programme à optimiser (modifié sur place)
+   * @param rules règles, essayées dans l'ordre à chaque position
+   */
+  public PeepholeOptimizer(Program program, List<PeepholeRule> rules) {
+    this.program = program;
+    this.rules = rules;
+    for (PeepholeRule rule : rules) {
+      hits.put(rule.getName(), 0);
+    }
+  }
+
+  /**
+   * Règles par défaut, pour le code produit par CodeGenerator
+   * @return la liste des règles
+   */
+  public static List<PeepholeRule> defaultRules() {
+    return List.of(new SelfCopyRule(), new JumpToNextRule(), new CopyForwardingRule(), new ConstantCopyRule(),
+            new DeadDefinitionRule());
+  }
+
+  /**
+   * Applique les règles jusqu'au point fixe
+   * @return le programme optimisé (le même objet)
+   */
+  public Program optimize() {
+    List<Instruction> instructions = program.getInstructions();
+    boolean changed = true;
+    while (changed) {
+      changed = false;
+      passCount++;
+      snapshot();
+
+      PeepholeWindow window = new PeepholeWindow(this, instructions);
+      int i = 0;
+      while (i < instructions.size()) {
+        window.moveTo(i);
+        PeepholeRule applied = null;
+        for (PeepholeRule rule : rules) {
+          if (rule.apply(window)) {
+            applied = rule;
+            break;
+          }
+        }
+        if (applied == null) {
+          i++;
+        } else {
+          hits.merge(applied.getName(), 1, Integer::sum);
+          changed = true;
+          i = Math.max(0, i - 1);
+        }
+      }
+    }
+    return program;
+  }
+
+  /**
+   * Calcule la vivacité sur une copie de la liste d'instructions : le programme peut ensuite
+   * être modifié pendant la passe sans que l'analyse ne soit recalculée
+   */
+  private void snapshot() {
+    Program copy = new Program();
+    copy.addInstructions(program);
+    liveness = new CFGAnalysis(new ControlGraph(copy));
+    // Découpage en blocs fait maintenant, avant que des labels ne soient déplacés
+    liveness.getBasicBlocks();
+
+    snapshotIndex = new IdentityHashMap<>();
+    callTargets = new HashSet<>();
+    List<Instruction> instructions = copy.getInstructions();
+    for (int k = 0; k < instructions.size(); k++) {
+      snapshotIndex.put(instructions.get(k), k);
+      if (instructions.get(k) instanceof JumpCall jc && jc.getName().equals("CALL")) callTargets.add(jc.getAddress());
+    }
+  }
+
+  /**
+   * Indique si un registre peut être lu après une instruction
+   * @param instruction instruction du programme
+   * @param reg numéro du registre
+   * @return false seulement si le registre était mort après l'instruction au début de la passe
+   */
+  boolean isLiveAfter(Instruction instruction, int reg) {
+    if (reg == RETURN_REGISTER || reg == STACK_POINTER) return true;
+    Integer index = snapshotIndex.get(instruction);
+    return index == null || liveness.getLiveOut(index).contains(reg);
+  }
+
+  void markModified() {
+    program.markModified();
+  }
+
+  /**
+   * Indique si le label de l'instruction index peut passer à l'instruction suivante
+   */
+  boolean canMoveLabel(int index) {
+    List<Instruction> instructions = program.getInstructions();
+    if (index + 1 >= instructions.size()) return false;
+    Instruction next = instructions.get(index + 1);
+    return !PeepholeWindow.hasLabel(next)
+            || !(isCallTarget(instructions.get(index)) && isCallTarget(next));
+  }
+
+  /**
+   * Donne les labels d'une instruction supprimée à l'instruction qui la suit
+   * (ils deviennent des alias si celle-ci a déjà un label : les sauts gardent leur cible)
+   * @param removed instruction supprimée
+   * @param nextIndex indice de l'instruction suivante
+   */
+  void moveLabel(Instruction removed, int nextIndex) {
+    List<Instruction> instructions = program.getInstructions();
+    if (nextIndex >= instructions.size()) {
+      throw new RuntimeException("(Peephole.PeepholeOptimizer) Label " + removed.getLabel() + " sans instruction");
+    }
+    Instruction next = instructions.get(nextIndex);
+    for (String label : removed.getLabels()) {
+      next.addLabel(label);
+    }
+  }
+
+  /**
+   * Indique si l'un des labels d'une instruction est appelé par un CALL (début de fonction) :
+   * deux fonctions ne peuvent pas commencer à la même instruction
+   */
+  private boolean isCallTarget(Instruction instruction) {
+    for (String label : instruction.getLabels()) {
+      if (callTargets.contains(label)) return true;
+    }
+    return false;
+  }
+
+  /**
+   * Nombre d'applications de chaque règle
+   * @return nom de la règle -> nombre d'applications
+   */
+  public Map<String, Integer> getHits() {
+    return hits;
+  }
+
+  /**
+   * Nombre de passes faites (la dernière ne modifie plus rien)
+   * @return int
+   */
+  public int getPassCount() {
+    return passCount;
+  }
+}
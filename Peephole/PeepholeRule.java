@@ -0,0 +1,22 @@
+package Peephole;
+
+/**
+ * Règle de l'optimiseur à lucarne : reconnaît un motif au début de la fenêtre et le réécrit
+ * avec PeepholeWindow.replace(). Une règle ne doit jamais allonger le programme (sinon le point
+ * fixe de PeepholeOptimizer pourrait ne pas terminer).
+ */
+public interface PeepholeRule {
+
+  /**
+   * Nom de la règle, utilisé pour les compteurs d'application
+   * @return String
+   */
+  String getName();
+
+  /**
+   * Essaie la règle sur la fenêtre
+   * @param window instructions à partir de la position courante
+   * @return true si le programme a été modifié
+   */
+  boolean apply(PeepholeWindow window);
+}
@@ -0,0 +1,161 @@
+package Peephole;
+
+import Asm.CondJump;
+import Asm.Instruction;
+import Asm.JumpCall;
+import Asm.LabelTable;
+import Asm.Program;
+import RegisterAllocator.ProgramGenerator;
+
+import java.util.Map;
+
+/*
+ * Test de l'optimiseur à lucarne sur du code de la forme produite par CodeGenerator :
+ * copies ADDi Rx Ry 0 après chaque expression, XOR Rf Rf Rf qui ne servent qu'à porter un label.
+ */
+public class PeepholeTest {
+
+  /**
+   * Optimise un programme, l'affiche et vérifie le nombre d'instructions obtenu
+   * @param name nom du cas
+   * @param lines programme
+   * @param expectedSize nombre d'instructions attendu après optimisation
+   */
+  private static void check(String name, String[] lines, int expectedSize) {
+    Program p = ProgramGenerator.compile(lines);
+    int before = p.getInstructions().size();
+    PeepholeOptimizer optimizer = new PeepholeOptimizer(p);
+    optimizer.optimize();
+
+    System.out.println("=== " + name + " ===");
+    System.out.print(p);
+    System.out.println(before + " -> " + p.getInstructions().size() + " instructions, "
+            + optimizer.getPassCount() + " passes, " + optimizer.getHits());
+
+    if (p.getInstructions().size() != expectedSize) {
+      throw new RuntimeException(name + " : " + expectedSize + " instructions attendues, "
+              + p.getInstructions().size() + " obtenues");
+    }
+
+    // Point fixe : une seconde optimisation ne change plus rien
+    PeepholeOptimizer again = new PeepholeOptimizer(p);
+    again.optimize();
+    for (Map.Entry<String, Integer> hit : again.getHits().entrySet()) {
+      if (hit.getValue() != 0) throw new RuntimeException(name + " : " + hit.getKey() + " s'applique encore");
+    }
+
+    // Chaque saut doit toujours avoir une cible
+    LabelTable labels = new LabelTable(p.getInstructions());
+    for (int k = 0; k < p.getInstructions().size(); k++) {
+      Instruction i = p.getInstructions().get(k);
+      if ((i instanceof JumpCall || i instanceof CondJump) && labels.getTarget(k) < 0) {
+        throw new RuntimeException(name + " : label de " + i.toString().trim() + " introuvable");
+      }
+    }
+  }
+
+  public static void main(String[] args) {
+    // if / else : x = 1; if (x) y = 10; else y = 20; print(y); return y;
+    check("if-else", new String[] {
+            "          CALL main",
+            "          STOP",
+            "main:     XOR R3 R3 R3",
+            "          ADDi R3 R3 1",
+            "          ADDi R2 R3 0",
+            "          XOR R5 R5 R5",
+            "          JEQU R2 R5 else_2",
+            "          XOR R6 R6 R6",
+            "          ADDi R6 R6 10",
+            "          ADDi R4 R6 0",
+            "          JMP end_if_2",
+            "else_2:   XOR R5 R5 R5",
+            "          XOR R7 R7 R7",
+            "          ADDi R7 R7 20",
+            "          ADDi R4 R7 0",
+            "end_if_2: XOR R5 R5 R5",
+            "          PRINT R4",
+            "          ADDi R0 R4 0",
+            "          RET"
+    }, 14);
+
+    // while : i = 0; while (3 - i) { i = i + 1; } return i;
+    check("while", new String[] {
+            "             CALL main",
+            "             STOP",
+            "main:        XOR R2 R2 R2",
+            "             XOR R3 R3 R3",
+            "             ADDi R3 R3 3",
+            "             ADDi R4 R3 0",
+            "             SUB R5 R4 R2",
+            "             XOR R6 R6 R6",
+            "start_w_5:   JEQU R5 R6 end_w_5",
+            "             XOR R7 R7 R7",
+            "             ADDi R7 R7 1",
+            "             ADD R8 R2 R7",
+            "             ADDi R2 R8 0",
+            "             SUB R5 R4 R2",
+            "             JMP start_w_5",
+            "end_w_5:     XOR R6 R6 R6",
+            "             ADDi R0 R2 0",
+            "             RET"
+    }, 15);
+
+    // Saut vers l'instruction suivante, copie d'un registre dans lui-même, label d'un XOR inutile
+    // suivi d'une instruction qui a déjà un label
+    check("jump-to-next", new String[] {
+            "          CALL main",
+            "          STOP",
+            "main:     XOR R2 R2 R2",
+            "          ADDi R2 R2 0",
+            "          JEQU R2 R2 end_2",
+            "          JMP next",
+            "end_2:    XOR R3 R3 R3",
+            "next:     PRINT R2",
+            "          ADDi R0 R2 0",
+            "          RET"
+    }, 6);
+
+    // Paramètres d'une fonction : le LD p R1 d'un paramètre jamais lu disparaît, son dépilement reste
+    check("parameters", new String[] {
+            "          CALL main",
+            "          STOP",
+            "main:     XOR R2 R2 R2",
+            "          ADDi R2 R2 4",
+            "          ADDi R1 R1 -1",
+            "          ST R2 R1",
+            "          ADDi R1 R1 -1",
+            "          ST R2 R1",
+            "          CALL F",
+            "          PRINT R0",
+            "          RET",
+            "F:        LD R3 R1",
+            "          ADDi R1 R1 1",
+            "          LD R4 R1",
+            "          ADDi R1 R1 1",
+            "          ADDi R5 R3 0",
+            "          ADDi R0 R5 0",
+            "          RET"
+    }, 16);
+
+    // Labels seuls sur leur ligne (bloc else vide) : ils vont, avec loop, sur le PRINT qui suit
+    check("aliases", new String[] {
+            "          CALL main",
+            "          STOP",
+            "main:     XOR R2 R2 R2",
+            "          ADDi R2 R2 1",
+            "          XOR R3 R3 R3",
+            "          JEQU R2 R3 else_4",
+            "          ADDi R5 R2 0",
+            "          JMP end_if_4",
+            "else_4:",
+            "end_if_4:",
+            "loop:     PRINT R2",
+            "          SUBi R2 R2 1",
+            "          JSUP R2 R3 loop",
+            "          ADDi R0 R2 0",
+            "          RET"
+    }, 10);
+
+    System.out.println("OK");
+  }
+}
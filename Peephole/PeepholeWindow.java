@@ -0,0 +1,105 @@
+package Peephole;
+
+import Asm.*;
+
+import java.util.List;
+
+/**
+ * Fenêtre de l'optimiseur à lucarne : les instructions à partir d'une position du programme.
+ * get(0) est l'instruction courante, get(1) la suivante, etc.
+ *
+ * Les labels sont des points d'entrée : une règle qui fusionne plusieurs instructions ne doit pas
+ * remplacer une instruction avec label autre que la première (hasLabel). replace() garde le label
+ * de la première instruction remplacée ; s'il n'y a plus d'instruction à sa place, il passe à
+ * l'instruction suivante (dont il devient un alias si elle a déjà un label).
+ */
+public class PeepholeWindow {
+  private final PeepholeOptimizer optimizer;
+  private final List<Instruction> instructions;
+  private int start;
+
+  PeepholeWindow(PeepholeOptimizer optimizer, List<Instruction> instructions) {
+    this.optimizer = optimizer;
+    this.instructions = instructions;
+  }
+
+  void moveTo(int start) {
+    this.start = start;
+  }
+
+  /**
+   * Instruction à une position de la fenêtre
+   * @param offset position à partir de l'instruction courante
+   * @return l'instruction, null après la fin du programme
+   */
+  public Instruction get(int offset) {
+    int index = start + offset;
+    return index < instructions.size() ? instructions.get(index) : null;
+  }
+
+  /**
+   * Indique si une instruction de la fenêtre porte un label (on peut y arriver par un saut)
+   * @param offset position à partir de l'instruction courante
+   * @return boolean
+   */
+  public boolean hasLabel(int offset) {
+    Instruction i = get(offset);
+    return i != null && hasLabel(i);
+  }
+
+  static boolean hasLabel(Instruction i) {
+    return i.getLabel() != null && !i.getLabel().isEmpty();
+  }
+
+  /**
+   * Indique si un registre peut encore être lu après une instruction de la fenêtre
+   * (vivacité calculée au début de la passe ; true pour une instruction créée depuis)
+   * @param offset position à partir de l'instruction courante
+   * @param reg numéro du registre
+   * @return boolean
+   */
+  public boolean isLiveAfter(int offset, int reg) {
+    return optimizer.isLiveAfter(get(offset), reg);
+  }
+
+  /**
+   * Remplace des instructions de la fenêtre
+   * @param offset position de la première instruction remplacée
+   * @param count nombre d'instructions remplacées
+   * @param replacement nouvelles instructions (sans label), éventuellement aucune
+   */
+  public void replace(int offset, int count, Instruction... replacement) {
+    int from = start + offset;
+    for (int k = 1; k < count; k++) {
+      if (hasLabel(instructions.get(from + k))) {
+        throw new RuntimeException("(Peephole.PeepholeWindow) Remplacement d'une instruction avec label : "
+                + instructions.get(from + k));
+      }
+    }
+
+    Instruction first = instructions.get(from);
+    if (hasLabel(first)) {
+      if (replacement.length > 0) {
+        replacement[0].copyLabels(first);
+      } else {
+        optimizer.moveLabel(first, from + count);
+      }
+    }
+
+    List<Instruction> range = instructions.subList(from, from + count);
+    range.clear();
+    range.addAll(List.of(replacement));
+    optimizer.markModified();
+  }
+
+  /**
+   * Indique si le label d'une instruction peut être déplacé vers l'instruction suivante,
+   * ce que fait replace() quand elle supprime l'instruction sans la remplacer
+   * @param offset position de l'instruction
+   * @return true si l'instruction n'a pas de label ou si son label peut être déplacé
+   */
+  public boolean canRemove(int offset) {
+    Instruction i = get(offset);
+    return !hasLabel(i) || optimizer.canMoveLabel(start + offset);
+  }
+}
@@ -0,0 +1,31 @@
+package Peephole;
+
+import Asm.*;
+
+/**
+ * ADDi Rx Rx 0 : copie d'un registre dans lui-même, supprimée
+ */
+public class SelfCopyRule implements PeepholeRule {
+
+  /**
+   * Teste si une instruction est une copie ADDi Rd Rs 0
+   * @param i l'instruction
+   * @return boolean
+   */
+  static boolean isCopy(Instruction i) {
+    return i instanceof UALi ualI && i.getName().equals("ADD") && ualI.getImm() == 0;
+  }
+
+  @Override
+  public String getName() {
+    return "self-copy";
+  }
+
+  @Override
+  public boolean apply(PeepholeWindow window) {
+    Instruction i = window.get(0);
+    if (!isCopy(i) || ((UALi) i).getDest() != ((UALi) i).getSr() || !window.canRemove(0)) return false;
+    window.replace(0, 1);
+    return true;
+  }
+}
@@ -0,0 +1,48 @@
+package RegisterAllocator;
+
+import Asm.Program;
+
+import java.util.Map;
+
+/**
+ * Allocateur utilisé par RegisterAllocator : donne une couleur (registre physique - COLOR_OFFSET)
+ * à chaque registre virtuel, en ajoutant du code de débordement si les couleurs ne suffisent pas.
+ */
+public interface Allocator {
+
+  /**
+   * Alloue les registres du programme
+   */
+  void allocate();
+
+  /**
+   * Getter du programme alloué (avec le code de débordement éventuel)
+   * @return le programme, toujours en registres virtuels
+   */
+  Program getProgram();
+
+  /**
+   * Getter de l'analyse de vivacité du programme alloué
+   * @return l'analyse (déjà calculée)
+   */
+  CFGAnalysis getAnalysis();
+
+  /**
+   * Getter de la couleur d'un registre virtuel
+   * @param reg registre virtuel
+   * @return couleur entre 0 et nbColors - 1, -1 pour un registre réservé ou inconnu
+   */
+  int getColor(int reg);
+
+  int getColorCount();
+
+  int getSpilledCount();
+
+  int getRounds();
+
+  /**
+   * Nombre de copies supprimées, par fonction
+   * @return nom de la fonction -> nombre de copies supprimées
+   */
+  Map<String, Integer> getRemovedMoves();
+}
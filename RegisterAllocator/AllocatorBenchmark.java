@@ -0,0 +1,121 @@
+package RegisterAllocator;
+
+import Asm.Program;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/*
+ * Comparaison des deux stratégies d'allocation (coloration de graphe et balayage linéaire)
+ * sur les mêmes programmes : temps d'allocation et nombre d'instructions produites.
+ */
+public class AllocatorBenchmark {
+  private static final int[] SIZES = {1_000, 3_000, 6_000, 20_000, 60_000};
+  private static final int RUNS = 3;
+
+  /**
+   * Génère un programme dans le style de CodeGenerator : chaque valeur dans un nouveau registre,
+   * beaucoup de copies ADDi d s 0, des boucles et des appels de fonctions feuilles avec paramètres sur la pile
+   * @param size nombre d'instructions visé
+   * @param seed graine du générateur aléatoire
+   * @return le programme généré
+   */
+  static Program generateProgram(int size, long seed) {
+    Random random = new Random(seed);
+    List<String> lines = new ArrayList<>();
+    int nbFunctions = Math.max(1, size / 200);
+    // Les dernières fonctions sont des feuilles : les autres n'appellent qu'elles
+    int firstLeaf = Math.max(1, nbFunctions - 4);
+    int[] nextRegister = {2};
+
+    lines.add("CALL main");
+    lines.add("STOP");
+    for (int f = 0; f < nbFunctions; f++) {
+      String name = f == 0 ? "main" : "F" + f;
+      List<Integer> values = new ArrayList<>();
+
+      // Paramètres chargés depuis la pile, puis copiés dans les variables
+      int param = nextRegister[0]++;
+      lines.add(name + ": LD R" + param + " R1");
+      lines.add("ADDi R1 R1 1");
+      int variable = nextRegister[0]++;
+      lines.add("ADDi R" + variable + " R" + param + " 0");
+      values.add(variable);
+
+      int body = Math.max(20, (size - 4) / nbFunctions - 6);
+      int loops = 0;
+      for (int k = 0; k < body; k++) {
+        int dest = nextRegister[0]++;
+        int a = values.get(random.nextInt(values.size()));
+        int b = values.get(Math.max(0, values.size() - 1 - random.nextInt(Math.min(values.size(), 8))));
+        switch (random.nextInt(6)) {
+          case 0, 1 -> lines.add("ADDi R" + dest + " R" + a + " 0");
+          case 2 -> lines.add("ADD R" + dest + " R" + a + " R" + b);
+          case 3 -> lines.add("MUL R" + dest + " R" + a + " R" + b);
+          case 4 -> lines.add("ADDi R" + dest + " R" + a + " " + random.nextInt(10));
+          default -> {
+            if (f < firstLeaf && nbFunctions > 1 && random.nextInt(4) == 0) {
+              // Appel : argument empilé, résultat copié depuis R0
+              lines.add("SUBi R1 R1 1");
+              lines.add("ST R" + a + " R1");
+              lines.add("CALL F" + (firstLeaf + random.nextInt(nbFunctions - firstLeaf)));
+              lines.add("ADDi R1 R1 1");
+              lines.add("ADDi R" + dest + " R0 0");
+            } else if (k > 10 && random.nextInt(2) == 0) {
+              // Boucle : saut arrière vers un label posé plus haut
+              String label = name + "_L" + loops++;
+              lines.add(label + ": ADDi R" + dest + " R" + a + " 1");
+              lines.add("JINF R" + dest + " R" + b + " " + label);
+            } else {
+              lines.add("SUB R" + dest + " R" + a + " R" + b);
+            }
+          }
+        }
+        values.add(dest);
+        // Les vieilles valeurs finissent par ne plus être utilisées
+        if (values.size() > 12) values.remove(random.nextInt(values.size() / 2));
+      }
+      lines.add("ADDi R0 R" + values.getLast() + " 0");
+      lines.add("RET");
+    }
+    return ProgramGenerator.compile(lines.toArray(new String[0]));
+  }
+
+  /**
+   * Meilleur temps d'allocation sur RUNS essais
+   * @param program le programme
+   * @param strategy la stratégie d'allocation
+   * @param result reçoit le programme alloué (case 0)
+   * @return temps en nanosecondes
+   */
+  static long timeAllocation(Program program, RegisterAllocator.Strategy strategy, Program[] result) {
+    long best = Long.MAX_VALUE;
+    for (int run = 0; run < RUNS; run++) {
+      System.gc();
+      long start = System.nanoTime();
+      result[0] = new RegisterAllocator(program, strategy).minimizeRegisters();
+      best = Math.min(best, System.nanoTime() - start);
+    }
+    return best;
+  }
+
+  public static void main(String[] args) {
+    // Préchauffage de la JVM
+    Program warmup = generateProgram(SIZES[0], 0);
+    for (RegisterAllocator.Strategy strategy : RegisterAllocator.Strategy.values()) {
+      timeAllocation(warmup, strategy, new Program[1]);
+    }
+
+    System.out.printf("%-12s %-16s %12s %14s%n", "entrée", "stratégie", "temps (ms)", "instructions");
+    for (int size : SIZES) {
+      Program p = generateProgram(size, size);
+      for (RegisterAllocator.Strategy strategy : RegisterAllocator.Strategy.values()) {
+        Program[] result = new Program[1];
+        long time = timeAllocation(p, strategy, result);
+        System.out.printf("%-12d %-16s %12.2f %14d%n", p.getInstructions().size(), strategy,
+                time / 1e6, result[0].getInstructions().size());
+      }
+    }
+  }
+}
@@ -0,0 +1,206 @@
+package RegisterAllocator;
+
+import Asm.*;
+import Graph.CsrGraph;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Graphe de contrôle au niveau des blocs de base.
+ * Un bloc commence sur une instruction avec label (ou après un saut, un CALL, un RET ou un STOP)
+ * et se termine sur un CondJump, JumpCall, Ret ou Stop (ou juste avant le bloc suivant).
+ * Les arcs entre blocs sont ceux du ControlGraph entre la dernière instruction d'un bloc
+ * et ses successeurs.
+ */
+public class BasicBlockGraph {
+  private final List<Instruction> instructions;
+
+  // Bornes de chaque bloc : [blockStart[b], blockEnd[b][
+  private int[] blockStart;
+  private int[] blockEnd;
+
+  // Numéro du bloc de chaque instruction
+  private int[] blockOf;
+
+  // Arcs entre blocs au format CSR, et arcs renversés
+  private CsrGraph successors;
+  private CsrGraph predecessors;
+
+  // Résumés gen/kill de chaque bloc
+  private BitSet[] gen;
+  private BitSet[] kill;
+
+  public BasicBlockGraph(ControlGraph cfg) {
+    this.instructions = cfg.getInstructions();
+    splitBlocks();
+    buildEdges(cfg);
+    computeGenKill();
+  }
+
+  /**
+   * Indique si une instruction termine forcément un bloc
+   * @param i l'instruction
+   * @return true pour CondJump, JumpCall, Ret et Stop
+   */
+  private static boolean endsBlock(Instruction i) {
+    return i instanceof CondJump || i instanceof JumpCall || i instanceof Ret || i instanceof Stop;
+  }
+
+  private static boolean hasLabel(Instruction i) {
+    return i.getLabel() != null && !i.getLabel().isEmpty();
+  }
+
+  /**
+   * Découpage du programme en blocs de base
+   */
+  private void splitBlocks() {
+    int n = instructions.size();
+    blockOf = new int[n];
+    ArrayList<Integer> starts = new ArrayList<>();
+
+    for (int i = 0; i < n; i++) {
+      boolean leader = i == 0 || hasLabel(instructions.get(i)) || endsBlock(instructions.get(i - 1));
+      if (leader) starts.add(i);
+      blockOf[i] = starts.size() - 1;
+    }
+
+    int nbBlocks = starts.size();
+    blockStart = new int[nbBlocks];
+    blockEnd = new int[nbBlocks];
+    for (int b = 0; b < nbBlocks; b++) {
+      blockStart[b] = starts.get(b);
+      blockEnd[b] = b + 1 < nbBlocks ? starts.get(b + 1) : n;
+    }
+  }
+
+  /**
+   * Construction des arcs entre blocs à partir des arcs sortants
+   * de la dernière instruction de chaque bloc
+   * @param cfg le graphe de contrôle par instruction
+   */
+  private void buildEdges(ControlGraph cfg) {
+    int nbBlocks = blockStart.length;
+
+    int[] offsets = new int[nbBlocks + 1];
+    for (int b = 0; b < nbBlocks; b++) {
+      offsets[b + 1] = offsets[b] + cfg.getSuccessorCount(blockEnd[b] - 1);
+    }
+    int[] targets = new int[offsets[nbBlocks]];
+    for (int b = 0; b < nbBlocks; b++) {
+      int last = blockEnd[b] - 1;
+      for (int k = 0; k < cfg.getSuccessorCount(last); k++) {
+        targets[offsets[b] + k] = blockOf[cfg.getSuccessor(last, k)];
+      }
+    }
+
+    successors = new CsrGraph(offsets, targets);
+    predecessors = successors.transpose();
+  }
+
+  /**
+   * Calcul des résumés de chaque bloc :
+   * gen(B) = registres lus dans B avant d'y être écrits, kill(B) = registres écrits dans B
+   */
+  private void computeGenKill() {
+    int nbBlocks = blockStart.length;
+    gen = new BitSet[nbBlocks];
+    kill = new BitSet[nbBlocks];
+
+    for (int b = 0; b < nbBlocks; b++) {
+      gen[b] = new BitSet();
+      kill[b] = new BitSet();
+
+      // Parcours à l'envers : gen = (gen - kill(i)) + gen(i)
+      for (int i = blockEnd[b] - 1; i >= blockStart[b]; i--) {
+        Instruction instr = instructions.get(i);
+        Integer killedReg = CFGAnalysis.kill(instr);
+        if (killedReg != null) {
+          gen[b].clear(killedReg);
+          kill[b].set(killedReg);
+        }
+        Set<Integer> usedRegs = CFGAnalysis.gen(instr);
+        for (Integer reg : usedRegs) {
+          gen[b].set(reg);
+        }
+      }
+    }
+  }
+
+  public List<Instruction> getInstructions() {
+    return instructions;
+  }
+
+  public int getBlockCount() {
+    return blockStart.length;
+  }
+
+  /**
+   * Indice de la première instruction du bloc
+   * @param b numéro du bloc
+   * @return indice dans le programme
+   */
+  public int getStart(int b) {
+    return blockStart[b];
+  }
+
+  /**
+   * Indice qui suit la dernière instruction du bloc
+   * @param b numéro du bloc
+   * @return indice (exclu) dans le programme
+   */
+  public int getEnd(int b) {
+    return blockEnd[b];
+  }
+
+  /**
+   * Numéro du bloc contenant une instruction
+   * @param index indice de l'instruction dans le programme
+   * @return numéro du bloc
+   */
+  public int getBlockOf(int index) {
+    return blockOf[index];
+  }
+
+  /**
+   * Arcs entre blocs (numéros des blocs), à parcourir avec getDegree/getNeighbor
+   * @return CsrGraph
+   */
+  public CsrGraph getSuccessors() {
+    return successors;
+  }
+
+  /**
+   * Arcs renversés entre blocs
+   * @return CsrGraph
+   */
+  public CsrGraph getPredecessors() {
+    return predecessors;
+  }
+
+  public BitSet getGen(int b) {
+    return gen[b];
+  }
+
+  public BitSet getKill(int b) {
+    return kill[b];
+  }
+
+  /**
+   * Conversion pour l'affichage
+   * @return String
+   */
+  public String toString() {
+    StringBuilder s = new StringBuilder();
+    for (int b = 0; b < blockStart.length; b++) {
+      s.append("B").append(b).append(" [").append(blockStart[b]).append(", ").append(blockEnd[b]).append("[ -> ");
+      for (int k = 0; k < successors.getDegree(b); k++) {
+        s.append("B").append(successors.getNeighbor(b, k)).append(" ");
+      }
+      s.append(" gen=").append(gen[b]).append(" kill=").append(kill[b]).append("\n");
+    }
+    return s.toString();
+  }
+}
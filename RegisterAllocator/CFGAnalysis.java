@@ -1,10 +1,13 @@
 package RegisterAllocator;
 
 import Asm.*;
-import Graph.UnorientedGraph;
+import Graph.IntUnorientedGraph;
 
 import java.util.ArrayList;
+import java.util.AbstractSet;
+import java.util.BitSet;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
 
@@ -47,7 +50,9 @@ public class CFGAnalysis {
 
     switch (i) {
       case UAL ual:
-        // Dans une opération UAL, les registres générés sont les deux sources
+        // Dans une opération UAL, les registres générés sont les deux sources,
+        // sauf pour XOR d s s et SUB d s s qui valent 0 sans lire s
+        if (isZeroing(ual)) break;
         genList.add(ual.getSr1());
         genList.add(ual.getSr2());
         break;
@@ -79,6 +84,20 @@ public class CFGAnalysis {
   }
 
 
+  /**
+   * Indique si une opération UAL vaut toujours 0, quelle que soit la valeur de ses sources
+   * (XOR d s s ou SUB d s s, en particulier XOR r r r que CodeGenerator utilise pour les constantes)
+   * @param ual l'instruction
+   * @return boolean
+   */
+  public static boolean isZeroing(UAL ual) {
+    return ual.getSr1() == ual.getSr2() && (ual.getName().equals("XOR") || ual.getName().equals("SUB"));
+  }
+
+
+  /**
+   * Registres vivants en entrée et en sortie d'une instruction (ensembles non modifiables)
+   */
   public static class LiveVars {
     public Set<Integer> entry;
     public Set<Integer> exit;
@@ -90,95 +109,260 @@ public class CFGAnalysis {
   }
 
   /**
-   * Calcule les variables vivantes pour tous les blocs
+   * Vivacité comme problème de flot de données : analyse en arrière, rencontre par union,
+   * LVentry(B) = (LVexit(B) - kill(B)) + gen(B) avec les résumés du BasicBlockGraph
+   */
+  private static class Liveness implements DataflowProblem {
+    private final BasicBlockGraph blocks;
+
+    Liveness(BasicBlockGraph blocks) {
+      this.blocks = blocks;
+    }
+
+    @Override
+    public Direction getDirection() {
+      return Direction.BACKWARD;
+    }
+
+    @Override
+    public Meet getMeet() {
+      return Meet.UNION;
+    }
+
+    @Override
+    public void transfer(int block, BitSet input, BitSet output) {
+      output.or(input);
+      output.andNot(blocks.getKill(block));
+      output.or(blocks.getGen(block));
+    }
+  }
+
+  private DataflowSolver.SolverStats stats = new DataflowSolver.SolverStats();
+
+  // Résultat mémorisé de l'analyse de vivacité au niveau des blocs (null tant qu'il n'a pas été calculé)
+  private BasicBlockGraph blocks = null;
+  private DataflowSolver liveness;
+
+  // Ensembles par instruction, calculés bloc par bloc à la demande
+  private LiveVars[] instructionLiveVars;
+  private List<LiveVars> liveVars = null;
+
+  /**
+   * Getter des compteurs du dernier calcul de vivacité
+   * @return le nombre de passes (iterations) et de blocs traités (visits)
+   */
+  public DataflowSolver.SolverStats getStats() {
+    return stats;
+  }
+
+  /**
+   * Getter du graphe des blocs de base utilisé par l'analyse
+   * @return le graphe des blocs de base (à jour avec le programme)
+   */
+  public BasicBlockGraph getBasicBlocks() {
+    ensureSolved();
+    return blocks;
+  }
+
+  /**
+   * Calcule les variables vivantes pour tous les blocs.
+   * Le résultat est calculé une seule fois puis mémorisé, et n'est recalculé
+   * que si le programme a été modifié depuis.
    * @return Une liste de LiveVars (une LiveVars pour chaque instruction)
    */
   public List<LiveVars> computeLiveVariables() {
-    List<Instruction> instructions = cfg.getInstructions();
+    ensureSolved();
+    if (liveVars == null) {
+      for (int b = 0; b < blocks.getBlockCount(); b++) {
+        expandBlock(b);
+      }
+      liveVars = List.of(instructionLiveVars);
+    }
+    return liveVars;
+  }
+
+  /**
+   * Variables vivantes en entrée d'une instruction (résultat mémorisé)
+   * @param index indice de l'instruction dans le programme
+   * @return LVentry de l'instruction
+   */
+  public Set<Integer> getLiveIn(int index) {
+    return getLiveVars(index).entry;
+  }
 
-    // Initialiser les ensembles de variables vivantes (vides)
-    List<LiveVars> liveVarsList = new ArrayList<>();
-    for (Instruction _ : instructions) {
-      liveVarsList.add(new LiveVars(new HashSet<>(), new HashSet<>()));
+  /**
+   * Variables vivantes en sortie d'une instruction (résultat mémorisé)
+   * @param index indice de l'instruction dans le programme
+   * @return LVexit de l'instruction
+   */
+  public Set<Integer> getLiveOut(int index) {
+    return getLiveVars(index).exit;
+  }
+
+  /**
+   * Variables vivantes d'une instruction : seul le bloc qui la contient est détaillé
+   * @param index indice de l'instruction dans le programme
+   * @return LiveVars de l'instruction
+   */
+  public LiveVars getLiveVars(int index) {
+    ensureSolved();
+    if (instructionLiveVars[index] == null) {
+      expandBlock(blocks.getBlockOf(index));
     }
+    return instructionLiveVars[index];
+  }
 
-    // Algorithme de saturation jusqu'à ce qu'il n'y ait plus de changement
-    boolean changed;
-    do {
-      changed = false;
-      for (Instruction instr : instructions) {
-        int index = instructions.indexOf(instr);
+  /**
+   * Variables vivantes en entrée d'un bloc de base (sans détailler ses instructions)
+   * @param b numéro du bloc dans getBasicBlocks()
+   * @return LVentry du bloc (à ne pas modifier)
+   */
+  public BitSet getBlockLiveIn(int b) {
+    ensureSolved();
+    return liveness.getEntry(b);
+  }
 
-        // Calcul de LVEntry
-        Set<Integer> prevExit = liveVarsList.get(index).exit;
-        Set<Integer> newEntry = new HashSet<>(prevExit); // LVEntry(i) = LVExit(i) au départ
-        Integer killedReg = kill(instr);
-        if (killedReg != null) {
-          newEntry.remove(killedReg); // LVEntry(i) = LVExit(i) - kill(i)
-        }
-        Set<Integer> genReg = gen(instr);
-        newEntry.addAll(genReg); // LVEntry(i) = LVEntry(i) + gen(i)
-
-
-        // Calcul de LVExit
-        Set<Integer> newExit = new HashSet<>();
-        List<Instruction> successeurs = cfg.getGraph().getOutNeighbors(instr);
-        if (successeurs != null) {
-          for (Instruction succ : successeurs) {
-            int succIndex = instructions.indexOf(succ);
-            Set<Integer> succEntry = liveVarsList.get(succIndex).entry;
-            newExit.addAll(succEntry);
-          }
-        }
+  /**
+   * Variables vivantes en sortie d'un bloc de base (sans détailler ses instructions)
+   * @param b numéro du bloc dans getBasicBlocks()
+   * @return LVexit du bloc (à ne pas modifier)
+   */
+  public BitSet getBlockLiveOut(int b) {
+    ensureSolved();
+    return liveness.getExit(b);
+  }
 
-        // Mettre à jour les ensembles si ils ont changé
-        if (!newExit.equals(liveVarsList.get(index).exit)) {
-          liveVarsList.get(index).exit = newExit;
-          changed = true;
-        }
+  /**
+   * Oublie le résultat mémorisé : il sera recalculé au prochain accès
+   */
+  public void invalidate() {
+    blocks = null;
+    liveVars = null;
+  }
 
-        if (!newEntry.equals(liveVarsList.get(index).entry)) {
-          liveVarsList.get(index).entry = newEntry;
-          changed = true;
-        }
+  /**
+   * Calcule la vivacité au niveau des blocs si elle n'est pas à jour
+   */
+  private void ensureSolved() {
+    if (blocks != null && cfg.isUpToDate()) return;
+    cfg.refresh();
+    blocks = new BasicBlockGraph(cfg);
+    instructionLiveVars = new LiveVars[cfg.getInstructions().size()];
+    liveVars = null;
+    liveness = new DataflowSolver(blocks, new Liveness(blocks));
+    stats = liveness.getStats();
+  }
+
+  /**
+   * Calcule les ensembles de chaque instruction d'un bloc, en remontant depuis LVexit(B)
+   * @param b numéro du bloc
+   */
+  private void expandBlock(int b) {
+    List<Instruction> instructions = blocks.getInstructions();
+    if (blocks.getStart(b) < blocks.getEnd(b) && instructionLiveVars[blocks.getStart(b)] != null) return;
+
+    // Dans un bloc, LVexit d'une instruction est LVentry de la suivante : un seul ensemble pour les deux
+    Set<Integer> exit = new RegisterSet((BitSet) liveness.getExit(b).clone());
+    BitSet live = (BitSet) liveness.getExit(b).clone();
+    for (int i = blocks.getEnd(b) - 1; i >= blocks.getStart(b); i--) {
+      Instruction instr = instructions.get(i);
+      Integer killedReg = kill(instr);
+      if (killedReg != null) live.clear(killedReg);
+      for (Integer reg : gen(instr)) {
+        live.set(reg);
       }
-    } while (changed);
 
-    return liveVarsList;
+      Set<Integer> entry = new RegisterSet((BitSet) live.clone());
+      instructionLiveVars[i] = new LiveVars(entry, exit);
+      exit = entry;
+    }
   }
 
+  /**
+   * Ensemble de registres non modifiable, lu directement dans un BitSet (sans Integer boxés à la construction)
+   */
+  private static final class RegisterSet extends AbstractSet<Integer> {
+    private final BitSet bits;
+    private final int size;
 
-  public UnorientedGraph<Integer> buildInterferenceGraph() {
-    UnorientedGraph<Integer> interferenceGraph = new UnorientedGraph<Integer>();
-
-    List<Instruction> instructions = cfg.getInstructions();
-    List<LiveVars> liveVars = computeLiveVariables();
+    RegisterSet(BitSet bits) {
+      this.bits = bits;
+      this.size = bits.cardinality();
+    }
 
-    for (Instruction inst : instructions) {
-      int i = instructions.indexOf(inst);
+    @Override
+    public boolean contains(Object o) {
+      return o instanceof Integer reg && reg >= 0 && bits.get(reg);
+    }
 
-      // Copie locale de LVexit
-      Set<Integer> live = new HashSet<>(liveVars.get(i).exit);
+    @Override
+    public int size() {
+      return size;
+    }
 
-      Integer killReg = kill(inst);
+    @Override
+    public Iterator<Integer> iterator() {
+      return bits.stream().iterator();
+    }
+  }
 
-      if (killReg != null) {
-        interferenceGraph.addVertex(killReg);
 
-        for (Integer v : live) {
-          interferenceGraph.addVertex(v);
-          if (!v.equals(killReg)) {
-            interferenceGraph.addEdge(killReg, v);
-          }
+  /**
+   * Construit le graphe d'interférence sur des sommets entiers (numéros de registres), sans boxing :
+   * le registre écrit par une instruction interfère avec les registres vivants après elle.
+   * Une copie ADDi d s 0 ne rend pas d et s interférents (ils ont la même valeur),
+   * ce qui permet de les fusionner (Coalescer) ou de leur donner la même couleur.
+   * @return le graphe d'interférence
+   */
+  public IntUnorientedGraph buildIntInterferenceGraph() {
+    ensureSolved();
+    List<Instruction> instructions = blocks.getInstructions();
+    IntUnorientedGraph interferenceGraph = new IntUnorientedGraph(maxRegister(instructions) + 1);
+
+    for (int b = 0; b < blocks.getBlockCount(); b++) {
+      int start = blocks.getStart(b);
+      int end = blocks.getEnd(b);
+
+      // LVexit de chaque instruction du bloc, en remontant depuis LVexit(B)
+      BitSet[] exits = new BitSet[end - start];
+      BitSet live = (BitSet) liveness.getExit(b).clone();
+      for (int i = end - 1; i >= start; i--) {
+        exits[i - start] = (BitSet) live.clone();
+        Instruction instr = instructions.get(i);
+        Integer killedReg = kill(instr);
+        if (killedReg != null) live.clear(killedReg);
+        for (Integer reg : gen(instr)) {
+          live.set(reg);
         }
       }
 
-      // Mise à jour du live
-      live.remove(killReg);
-      live.addAll(gen(inst));
+      for (int i = start; i < end; i++) {
+        Integer killReg = kill(instructions.get(i));
+        if (killReg == null) continue;
+
+        // Arêtes entre killReg et LVexit (sauf la source d'une copie)
+        interferenceGraph.addEdges(killReg, exits[i - start], Coalescer.moveSource(instructions.get(i)));
+      }
     }
 
     return interferenceGraph;
   }
 
+  /**
+   * Plus grand numéro de registre utilisé dans une liste d'instructions
+   * @param instructions les instructions
+   * @return le plus grand numéro de registre, -1 si aucun
+   */
+  static int maxRegister(List<Instruction> instructions) {
+    int max = -1;
+    for (Instruction instr : instructions) {
+      Integer killedReg = kill(instr);
+      if (killedReg != null) max = Math.max(max, killedReg);
+      for (Integer reg : gen(instr)) {
+        max = Math.max(max, reg);
+      }
+    }
+    return max;
+  }
+
 }
\ No newline at end of file
@@ -0,0 +1,267 @@
+package RegisterAllocator;
+
+import Asm.*;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Graphe d'appel d'un programme.
+ * Une fonction est un label appelé par un CALL ; son corps est l'ensemble des instructions
+ * atteignables depuis ce label sans suivre les CALL (on continue sur l'instruction suivante)
+ * ni les RET et STOP. Les composantes fortement connexes (Tarjan) sont rangées des appelées
+ * vers les appelantes ; une composante est récursive si elle contient un cycle d'appels.
+ */
+public class CallGraph {
+  private final List<Instruction> instructions;
+
+  // Indice de chaque label et cible de chaque saut (le premier label rencontré l'emporte, comme dans ControlGraph)
+  private final LabelTable labels;
+
+  private final HashMap<String, Integer> functionIndex = new HashMap<>();
+  private final List<String> names = new ArrayList<>();
+  private final List<BitSet> bodies = new ArrayList<>();
+  private final List<List<Integer>> callees = new ArrayList<>();
+  private final List<List<Integer>> returns = new ArrayList<>();
+
+  // Composantes fortement connexes, les appelées avant les appelantes
+  private final List<List<Integer>> components = new ArrayList<>();
+  private int[] componentOf;
+  private boolean[] recursiveComponent;
+
+  // CALL vers une fonction de la même composante récursive que l'appelant
+  private final BitSet recursiveCalls = new BitSet();
+
+  // État du parcours de Tarjan
+  private int[] tarjanIndex;
+  private int[] lowLink;
+  private boolean[] onStack;
+  private int[] stack;
+  private int stackSize;
+  private int nextIndex;
+
+  public CallGraph(List<Instruction> instructions) {
+    this(instructions, new LabelTable(instructions));
+  }
+
+  /**
+   * Constructeur, avec la table des labels déjà construite pour ces instructions
+   * @param instructions instructions du programme
+   * @param labels table des labels des instructions
+   */
+  public CallGraph(List<Instruction> instructions, LabelTable labels) {
+    this.instructions = instructions;
+    this.labels = labels;
+    for (Instruction i : instructions) {
+      if (i instanceof JumpCall jc && jc.getName().equals("CALL")) functionOf(jc.getAddress());
+    }
+    for (int f = 0; f < names.size(); f++) {
+      scanBody(f);
+    }
+    computeComponents();
+    findRecursiveCalls();
+  }
+
+  /**
+   * Numéro d'une fonction, créée si elle n'est pas encore connue
+   */
+  private int functionOf(String name) {
+    Integer f = functionIndex.get(name);
+    if (f != null) return f;
+    functionIndex.put(name, names.size());
+    names.add(name);
+    bodies.add(new BitSet());
+    callees.add(new ArrayList<>());
+    returns.add(new ArrayList<>());
+    return names.size() - 1;
+  }
+
+  /**
+   * Parcours du corps d'une fonction depuis son label
+   * @param f numéro de la fonction
+   */
+  private void scanBody(int f) {
+    int entry = labels.getIndex(names.get(f));
+    if (entry < 0) return;
+
+    BitSet body = bodies.get(f);
+    ArrayList<Integer> pending = new ArrayList<>();
+    pending.add(entry);
+    while (!pending.isEmpty()) {
+      int k = pending.removeLast();
+      if (k < 0 || k >= instructions.size() || body.get(k)) continue;
+      body.set(k);
+
+      switch (instructions.get(k)) {
+        case JumpCall jc when jc.getName().equals("CALL") -> {
+          int callee = functionOf(jc.getAddress());
+          if (!callees.get(f).contains(callee)) callees.get(f).add(callee);
+          pending.add(k + 1);
+        }
+        case JumpCall _ -> pending.add(labels.getTarget(k));
+        case CondJump _ -> {
+          pending.add(labels.getTarget(k));
+          pending.add(k + 1);
+        }
+        case Ret _ -> returns.get(f).add(k);
+        case Stop _ -> { }
+        default -> pending.add(k + 1);
+      }
+    }
+  }
+
+  /**
+   * Calcul des composantes fortement connexes (Tarjan)
+   */
+  private void computeComponents() {
+    int n = names.size();
+    componentOf = new int[n];
+    tarjanIndex = new int[n];
+    lowLink = new int[n];
+    onStack = new boolean[n];
+    stack = new int[n];
+    stackSize = 0;
+    nextIndex = 1;
+
+    for (int f = 0; f < n; f++) {
+      if (tarjanIndex[f] == 0) strongConnect(f);
+    }
+
+    recursiveComponent = new boolean[components.size()];
+    for (int c = 0; c < components.size(); c++) {
+      List<Integer> component = components.get(c);
+      int first = component.getFirst();
+      recursiveComponent[c] = component.size() > 1 || callees.get(first).contains(first);
+    }
+  }
+
+  /**
+   * Parcours de Tarjan depuis une fonction : chaque composante est terminée
+   * après toutes celles qu'elle appelle
+   */
+  private void strongConnect(int f) {
+    tarjanIndex[f] = nextIndex;
+    lowLink[f] = nextIndex;
+    nextIndex++;
+    stack[stackSize++] = f;
+    onStack[f] = true;
+
+    for (int g : callees.get(f)) {
+      if (tarjanIndex[g] == 0) {
+        strongConnect(g);
+        lowLink[f] = Math.min(lowLink[f], lowLink[g]);
+      } else if (onStack[g]) {
+        lowLink[f] = Math.min(lowLink[f], tarjanIndex[g]);
+      }
+    }
+
+    if (lowLink[f] != tarjanIndex[f]) return;
+
+    // f est la racine d'une composante : on la dépile
+    List<Integer> component = new ArrayList<>();
+    int g;
+    do {
+      g = stack[--stackSize];
+      onStack[g] = false;
+      componentOf[g] = components.size();
+      component.add(g);
+    } while (g != f);
+    components.add(component);
+  }
+
+  /**
+   * Repère les CALL d'une fonction récursive vers sa propre composante
+   */
+  private void findRecursiveCalls() {
+    for (int f = 0; f < names.size(); f++) {
+      if (!recursiveComponent[componentOf[f]]) continue;
+      BitSet body = bodies.get(f);
+      for (int k = body.nextSetBit(0); k >= 0; k = body.nextSetBit(k + 1)) {
+        if (instructions.get(k) instanceof JumpCall jc && jc.getName().equals("CALL")
+                && componentOf[functionIndex.get(jc.getAddress())] == componentOf[f]) {
+          recursiveCalls.set(k);
+        }
+      }
+    }
+  }
+
+  public int getFunctionCount() {
+    return names.size();
+  }
+
+  /**
+   * Numéro d'une fonction
+   * @param name label de la fonction
+   * @return son numéro, -1 si aucun CALL ne l'appelle
+   */
+  public int getFunction(String name) {
+    return functionIndex.getOrDefault(name, -1);
+  }
+
+  public String getName(int f) {
+    return names.get(f);
+  }
+
+  /**
+   * Indice de la première instruction d'une fonction
+   * @param f numéro de la fonction
+   * @return indice dans le programme, -1 si son label n'existe pas
+   */
+  public int getEntry(int f) {
+    return labels.getIndex(names.get(f));
+  }
+
+  /**
+   * Instructions du corps d'une fonction
+   * @param f numéro de la fonction
+   * @return indices des instructions (à ne pas modifier)
+   */
+  public BitSet getBody(int f) {
+    return bodies.get(f);
+  }
+
+  public List<Integer> getCallees(int f) {
+    return callees.get(f);
+  }
+
+  /**
+   * Indices des RET du corps d'une fonction
+   * @param f numéro de la fonction
+   * @return liste d'indices
+   */
+  public List<Integer> getReturns(int f) {
+    return returns.get(f);
+  }
+
+  /**
+   * Composantes fortement connexes, les fonctions appelées avant leurs appelantes
+   * @return liste de composantes (numéros de fonctions)
+   */
+  public List<List<Integer>> getComponents() {
+    return components;
+  }
+
+  public int getComponent(int f) {
+    return componentOf[f];
+  }
+
+  /**
+   * Indique si une fonction fait partie d'un cycle d'appels
+   * @param f numéro de la fonction
+   * @return boolean
+   */
+  public boolean isRecursive(int f) {
+    return recursiveComponent[componentOf[f]];
+  }
+
+  /**
+   * Indique si un CALL appelle une fonction de la même composante récursive que la fonction qui le contient
+   * @param index indice du CALL dans le programme
+   * @return boolean
+   */
+  public boolean isRecursiveCall(int index) {
+    return recursiveCalls.get(index);
+  }
+}
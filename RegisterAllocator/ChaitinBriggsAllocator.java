@@ -0,0 +1,410 @@
+package RegisterAllocator;
+
+import Asm.*;
+import Graph.IntUnorientedGraph;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Allocation de registres par coloration de graphe (Chaitin-Briggs) :
+ * fusion conservative des copies (Coalescer), simplification puis sélection optimiste
+ * sur le graphe d'interférence,
+ * et, si des registres ne peuvent pas être colorés, génération de code de
+ * débordement (spill) en mémoire puis nouvelle tentative jusqu'à ce que le
+ * programme tienne dans le nombre de couleurs disponibles.
+ *
+ * Les registres en dessous de firstVirtualRegister (R0 : valeur de retour, R1 : pointeur de pile)
+ * sont réservés : ils ne sont ni colorés ni débordés.
+ */
+public class ChaitinBriggsAllocator implements Allocator {
+  private final static boolean DEBUG_MODE = false;
+
+  // Poids d'une occurrence par niveau de boucle (coût = somme des LOOP_WEIGHT^profondeur)
+  private static final double LOOP_WEIGHT = 10.0;
+  private static final int MAX_LOOP_DEPTH = 8;
+
+  private final int nbColors;
+  private final int firstVirtualRegister;
+
+  private Program program;
+  private ControlGraph cfg;
+  private CFGAnalysis analysis;
+  private IntUnorientedGraph interferenceGraph;
+  private int[] colors = new int[0];
+
+  // Code de débordement (garde les registres à ne pas déborder à leur tour)
+  private final SpillCodeGenerator spillCode = new SpillCodeGenerator();
+
+  private int rounds = 0;
+  private int spilledCount = 0;
+  private int coalescedCount = 0;
+
+  // Nombre de copies supprimées par fonction
+  private final Map<String, Integer> removedMoves = new LinkedHashMap<>();
+
+  /**
+   * Constructeur
+   * @param program le programme (registres virtuels)
+   * @param nbColors nombre de registres physiques disponibles pour la coloration
+   * @param firstVirtualRegister premier registre à allouer (les précédents sont réservés)
+   */
+  public ChaitinBriggsAllocator(Program program, int nbColors, int firstVirtualRegister) {
+    this.program = program;
+    this.nbColors = nbColors;
+    this.firstVirtualRegister = firstVirtualRegister;
+  }
+
+  /**
+   * Colore le programme, en ajoutant du code de débordement tant que nécessaire.
+   * Chaque tour fusionne au moins une copie ou déborde au moins un registre du programme d'origine ou
+   * un temporaire réutilisé du code de débordement (ceux qu'il crée alors ne sont jamais débordés),
+   * ce qui garantit la terminaison. Les registres du code de débordement ne sont jamais fusionnés.
+   */
+  @Override
+  public void allocate() {
+    while (true) {
+      rounds++;
+      cfg = new ControlGraph(program);
+      analysis = new CFGAnalysis(cfg);
+      interferenceGraph = analysis.buildIntInterferenceGraph();
+
+      // Fusion des copies : le graphe est reconstruit sur le programme renommé
+      Coalescer coalescer = new Coalescer(interferenceGraph, nbColors, firstVirtualRegister, spillCode.getSpillTemps());
+      int merged = coalescer.coalesce(program.getInstructions());
+      if (merged > 0) {
+        if (DEBUG_MODE) System.out.println("Tour " + rounds + " : " + merged + " copies fusionnées");
+        coalescedCount += merged;
+        program = coalescer.rewrite(program, removedMoves);
+        continue;
+      }
+
+      BitSet spilled = simplifyAndSelect(computeSpillCosts());
+      if (DEBUG_MODE) System.out.println("Tour " + rounds + " : " + spilled.cardinality() + " registres débordés");
+
+      if (spilled.isEmpty()) {
+        colorUnconstrainedRegisters();
+        return;
+      }
+      if (spilled.intersects(spillCode.getUnspillable())) {
+        throw new RuntimeException("(RegisterAllocator.ChaitinBriggsAllocator) Impossible d'allouer les registres avec "
+                + nbColors + " couleurs : trop de registres de débordement vivants simultanément");
+      }
+      spilledCount += spilled.cardinality();
+      program = spillCode.insertSpillCode(program, spilled);
+    }
+  }
+
+  /**
+   * Getter du programme alloué (avec le code de débordement éventuel)
+   * @return le programme, toujours en registres virtuels
+   */
+  @Override
+  public Program getProgram() {
+    return program;
+  }
+
+  /**
+   * Getter de l'analyse de vivacité du programme alloué
+   * @return l'analyse (déjà calculée)
+   */
+  @Override
+  public CFGAnalysis getAnalysis() {
+    return analysis;
+  }
+
+  /**
+   * Getter du graphe d'interférence du programme alloué
+   * @return le graphe
+   */
+  public IntUnorientedGraph getInterferenceGraph() {
+    return interferenceGraph;
+  }
+
+  /**
+   * Getter de la couleur d'un registre virtuel
+   * @param reg registre virtuel
+   * @return couleur entre 0 et nbColors - 1, -1 pour un registre réservé ou inconnu
+   */
+  @Override
+  public int getColor(int reg) {
+    if (reg < firstVirtualRegister || reg >= colors.length) return -1;
+    return colors[reg];
+  }
+
+  /**
+   * Nombre de couleurs utilisées
+   * @return int
+   */
+  @Override
+  public int getColorCount() {
+    int max = -1;
+    for (int c : colors) max = Math.max(max, c);
+    return max + 1;
+  }
+
+  @Override
+  public int getRounds() {
+    return rounds;
+  }
+
+  @Override
+  public int getSpilledCount() {
+    return spilledCount;
+  }
+
+  public int getCoalescedCount() {
+    return coalescedCount;
+  }
+
+  /**
+   * Nombre de copies supprimées par la fusion, par fonction
+   * @return nom de la fonction -> nombre de copies supprimées
+   */
+  @Override
+  public Map<String, Integer> getRemovedMoves() {
+    return removedMoves;
+  }
+
+  /**
+   * Coût de débordement de chaque registre : nombre de lectures et d'écritures,
+   * chaque occurrence étant pondérée par LOOP_WEIGHT^(profondeur dans la forêt des boucles du graphe de contrôle)
+   * @return le coût de chaque registre (infini pour les registres à ne pas déborder)
+   */
+  private double[] computeSpillCosts() {
+    List<Instruction> instructions = program.getInstructions();
+    LoopForest loops = cfg.getLoopForest();
+    double[] costs = new double[interferenceGraph.getCapacity()];
+
+    for (int k = 0; k < instructions.size(); k++) {
+      double weight = Math.pow(LOOP_WEIGHT, Math.min(loops.getDepth(k), MAX_LOOP_DEPTH));
+      Instruction instr = instructions.get(k);
+      Integer killedReg = CFGAnalysis.kill(instr);
+      if (killedReg != null && killedReg < costs.length) costs[killedReg] += weight;
+      for (Integer reg : CFGAnalysis.gen(instr)) {
+        if (reg < costs.length) costs[reg] += weight;
+      }
+    }
+
+    BitSet unspillable = spillCode.getUnspillable();
+    for (int reg = unspillable.nextSetBit(0); reg >= 0 && reg < costs.length; reg = unspillable.nextSetBit(reg + 1)) {
+      costs[reg] = Double.POSITIVE_INFINITY;
+    }
+    return costs;
+  }
+
+  /**
+   * Simplification puis sélection optimiste (Briggs).
+   * Simplification : on retire les sommets de degré < nbColors ; s'il n'y en a plus, on retire
+   * celui de plus petit rapport coût / degré (candidat au débordement, pris dans un tas tenu à jour
+   * quand les degrés baissent) en le gardant quand même sur la pile. Sélection : on dépile en donnant à chaque sommet la plus petite couleur libre ;
+   * les candidats qui n'en trouvent pas sont réellement débordés.
+   * @param costs coût de débordement de chaque registre
+   * @return les registres à déborder (vide si la coloration a réussi)
+   */
+  private BitSet simplifyAndSelect(double[] costs) {
+    IntUnorientedGraph g = interferenceGraph;
+    int capacity = g.getCapacity();
+
+    // Degrés en ne comptant que les registres à allouer
+    int[] degree = new int[capacity];
+    boolean[] removed = new boolean[capacity];
+    int remaining = 0;
+    for (int k = 0; k < g.getVertexCount(); k++) {
+      int u = g.getVertex(k);
+      if (u < firstVirtualRegister) continue;
+      remaining++;
+      for (int j = 0; j < g.getDegree(u); j++) {
+        if (g.getNeighbor(u, j) >= firstVirtualRegister) degree[u]++;
+      }
+    }
+
+    int[] stack = new int[remaining];
+    int top = 0;
+    int[] lowDegree = new int[remaining];
+    int lowCount = 0;
+    boolean[] queued = new boolean[capacity];
+    // Sommets de degré >= nbColors, candidats au débordement
+    SpillCandidates candidates = new SpillCandidates(g, costs, degree, remaining);
+    for (int k = 0; k < g.getVertexCount(); k++) {
+      int u = g.getVertex(k);
+      if (u < firstVirtualRegister) continue;
+      if (degree[u] < nbColors) {
+        lowDegree[lowCount++] = u;
+        queued[u] = true;
+      } else {
+        candidates.add(u);
+      }
+    }
+
+    while (top < remaining) {
+      int u;
+      if (lowCount > 0) {
+        u = lowDegree[--lowCount];
+      } else {
+        // Plus de sommet de faible degré : candidat au débordement
+        u = candidates.poll();
+      }
+
+      removed[u] = true;
+      stack[top++] = u;
+      for (int j = 0; j < g.getDegree(u); j++) {
+        int v = g.getNeighbor(u, j);
+        if (v < firstVirtualRegister || removed[v]) continue;
+        degree[v]--;
+        if (queued[v]) continue;
+        if (degree[v] < nbColors) {
+          candidates.remove(v);
+          lowDegree[lowCount++] = v;
+          queued[v] = true;
+        } else {
+          candidates.degreeDecreased(v);
+        }
+      }
+    }
+
+    // Sélection
+    colors = new int[capacity];
+    Arrays.fill(colors, -1);
+    int[] marks = new int[nbColors];
+    BitSet spilled = new BitSet();
+    while (top > 0) {
+      int u = stack[--top];
+      int stamp = top + 1;
+      for (int j = 0; j < g.getDegree(u); j++) {
+        int c = colors[g.getNeighbor(u, j)];
+        if (c >= 0) marks[c] = stamp;
+      }
+      int c = 0;
+      while (c < nbColors && marks[c] == stamp) c++;
+      if (c < nbColors) {
+        colors[u] = c;
+      } else {
+        spilled.set(u);
+      }
+    }
+    return spilled;
+  }
+
+  /**
+   * Tas binaire indexé des sommets de degré >= nbColors, du plus petit rapport coût / degré au plus grand
+   * (à égalité, ordre d'insertion dans le graphe). Le degré d'un sommet ne fait que baisser pendant
+   * la simplification, son rapport que monter : il redescend alors dans le tas.
+   */
+  private static final class SpillCandidates {
+    private final double[] costs;
+    private final int[] degree;
+    // Rang de chaque sommet dans le graphe, pour départager les égalités
+    private final int[] order;
+    private final int[] heap;
+    // Position de chaque sommet dans heap, -1 s'il n'y est pas
+    private final int[] position;
+    private int size = 0;
+
+    SpillCandidates(IntUnorientedGraph g, double[] costs, int[] degree, int maxSize) {
+      this.costs = costs;
+      this.degree = degree;
+      this.order = new int[g.getCapacity()];
+      for (int k = 0; k < g.getVertexCount(); k++) {
+        order[g.getVertex(k)] = k;
+      }
+      this.heap = new int[maxSize];
+      this.position = new int[g.getCapacity()];
+      Arrays.fill(position, -1);
+    }
+
+    private boolean before(int u, int v) {
+      int cmp = Double.compare(costs[u] / Math.max(1, degree[u]), costs[v] / Math.max(1, degree[v]));
+      return cmp < 0 || (cmp == 0 && order[u] < order[v]);
+    }
+
+    void add(int u) {
+      heap[size] = u;
+      position[u] = size;
+      siftUp(size++);
+    }
+
+    /**
+     * Retire et renvoie le sommet de plus petit rapport coût / degré
+     */
+    int poll() {
+      int u = heap[0];
+      remove(u);
+      return u;
+    }
+
+    void remove(int u) {
+      int k = position[u];
+      if (k < 0) return;
+      position[u] = -1;
+      int last = heap[--size];
+      if (k == size) return;
+      heap[k] = last;
+      position[last] = k;
+      siftDown(k);
+      siftUp(position[last]);
+    }
+
+    /**
+     * À appeler quand degree[u] baisse
+     */
+    void degreeDecreased(int u) {
+      if (position[u] >= 0) siftDown(position[u]);
+    }
+
+    private void siftUp(int k) {
+      int u = heap[k];
+      while (k > 0) {
+        int parent = (k - 1) / 2;
+        if (!before(u, heap[parent])) break;
+        heap[k] = heap[parent];
+        position[heap[k]] = k;
+        k = parent;
+      }
+      heap[k] = u;
+      position[u] = k;
+    }
+
+    private void siftDown(int k) {
+      int u = heap[k];
+      while (2 * k + 1 < size) {
+        int child = 2 * k + 1;
+        if (child + 1 < size && before(heap[child + 1], heap[child])) child++;
+        if (!before(heap[child], u)) break;
+        heap[k] = heap[child];
+        position[heap[k]] = k;
+        k = child;
+      }
+      heap[k] = u;
+      position[u] = k;
+    }
+  }
+
+  /**
+   * Donne la couleur 0 aux registres du programme absents du graphe d'interférence
+   * (registres lus sans jamais être vivants en sortie d'une écriture)
+   */
+  private void colorUnconstrainedRegisters() {
+    for (Instruction instr : program.getInstructions()) {
+      Integer killedReg = CFGAnalysis.kill(instr);
+      if (killedReg != null) colorIfMissing(killedReg);
+      for (Integer reg : CFGAnalysis.gen(instr)) {
+        colorIfMissing(reg);
+      }
+    }
+  }
+
+  private void colorIfMissing(int reg) {
+    if (reg < firstVirtualRegister) return;
+    if (reg >= colors.length) {
+      int old = colors.length;
+      colors = Arrays.copyOf(colors, Math.max(reg + 1, 2 * old));
+      Arrays.fill(colors, old, colors.length, -1);
+    }
+    if (colors[reg] == -1) colors[reg] = 0;
+  }
+
+}
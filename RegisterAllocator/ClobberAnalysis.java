@@ -0,0 +1,128 @@
+package RegisterAllocator;
+
+import Asm.*;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Analyse interprocédurale des registres écrasés (clobber) par chaque fonction,
+ * sur un programme dont les registres sont déjà les registres physiques.
+ *
+ * Une fonction écrase les registres écrits dans son corps (CallGraph) et, transitivement,
+ * ceux des fonctions qu'elle appelle : les composantes du graphe d'appel sont traitées
+ * des appelées vers les appelantes. Une composante récursive est traitée de façon
+ * conservative : elle écrase tous les registres allouables.
+ * Les registres écrits plus tard par le code ajouté autour des appels (registres de parking
+ * de SaveRestoreGenerator) sont ajoutés avec addClobbered.
+ */
+public class ClobberAnalysis {
+  private final CallGraph callGraph;
+  private final int firstRegister;
+  private final int nbRegisters;
+
+  private final BitSet[] clobbered;
+
+  // Fonctions qui appellent chaque fonction (arcs inverses du graphe d'appel)
+  private final List<List<Integer>> callers = new ArrayList<>();
+
+  /**
+   * Constructeur : l'analyse est faite immédiatement
+   * @param instructions le programme, en registres physiques
+   * @param firstRegister premier registre allouable (les précédents ne sont jamais sauvegardés)
+   * @param nbRegisters nombre total de registres physiques
+   */
+  public ClobberAnalysis(List<Instruction> instructions, int firstRegister, int nbRegisters) {
+    this.callGraph = new CallGraph(instructions);
+    this.firstRegister = firstRegister;
+    this.nbRegisters = nbRegisters;
+    this.clobbered = new BitSet[callGraph.getFunctionCount()];
+
+    for (int f = 0; f < callGraph.getFunctionCount(); f++) {
+      callers.add(new ArrayList<>());
+    }
+    for (int f = 0; f < callGraph.getFunctionCount(); f++) {
+      for (int callee : callGraph.getCallees(f)) {
+        callers.get(callee).add(f);
+      }
+    }
+
+    for (int c = 0; c < callGraph.getComponents().size(); c++) {
+      List<Integer> component = callGraph.getComponents().get(c);
+      BitSet writes = new BitSet();
+
+      if (callGraph.isRecursive(component.getFirst())) {
+        writes.set(firstRegister, nbRegisters);
+      } else {
+        int f = component.getFirst();
+        if (callGraph.getEntry(f) < 0) {
+          // Fonction introuvable : on suppose qu'elle écrase tout
+          writes.set(firstRegister, nbRegisters);
+        }
+        BitSet body = callGraph.getBody(f);
+        for (int k = body.nextSetBit(0); k >= 0; k = body.nextSetBit(k + 1)) {
+          Integer killedReg = CFGAnalysis.kill(instructions.get(k));
+          if (killedReg != null && killedReg >= firstRegister && killedReg < nbRegisters) writes.set(killedReg);
+        }
+        // Les appelées sont dans des composantes déjà traitées
+        for (int callee : callGraph.getCallees(f)) {
+          writes.or(clobbered[callee]);
+        }
+      }
+
+      for (int member : component) {
+        clobbered[member] = writes;
+      }
+    }
+  }
+
+  /**
+   * Registres physiques écrasés par un appel à une fonction
+   * @param function label de la fonction
+   * @return les registres écrasés (tous les registres allouables si la fonction est inconnue)
+   */
+  public BitSet getClobbered(String function) {
+    int f = callGraph.getFunction(function);
+    if (f < 0) {
+      BitSet all = new BitSet();
+      all.set(firstRegister, nbRegisters);
+      return all;
+    }
+    return clobbered[f];
+  }
+
+  /**
+   * Ajoute un registre écrit par une fonction, et donc par toutes les fonctions qui l'appellent
+   * (transitivement)
+   * @param function numéro de la fonction dans le graphe d'appel
+   * @param reg registre physique écrit
+   */
+  public void addClobbered(int function, int reg) {
+    List<Integer> pending = new ArrayList<>();
+    pending.add(function);
+    while (!pending.isEmpty()) {
+      int f = pending.removeLast();
+      if (clobbered[f].get(reg)) continue;
+      clobbered[f].set(reg);
+      pending.addAll(callers.get(f));
+    }
+  }
+
+  public CallGraph getCallGraph() {
+    return callGraph;
+  }
+
+  /**
+   * Conversion pour l'affichage
+   * @return String
+   */
+  public String toString() {
+    StringBuilder s = new StringBuilder();
+    for (int f = 0; f < callGraph.getFunctionCount(); f++) {
+      s.append(callGraph.getName(f)).append(callGraph.isRecursive(f) ? " (récursive)" : "")
+              .append(" : ").append(clobbered[f]).append("\n");
+    }
+    return s.toString();
+  }
+}
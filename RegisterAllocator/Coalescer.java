@@ -0,0 +1,250 @@
+package RegisterAllocator;
+
+import Asm.*;
+import Graph.IntUnorientedGraph;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Fusion (coalescing) des copies ADDi d s 0 sur le graphe d'interférence.
+ * La fusion est conservative : deux registres ne sont fusionnés que si le graphe
+ * reste colorable aussi facilement qu'avant (test de Briggs ou de George),
+ * pour ne jamais provoquer de débordement supplémentaire.
+ * Les registres fusionnés sont ensuite renommés dans le programme et les copies
+ * devenues ADDi r r 0 sont supprimées.
+ */
+public class Coalescer {
+  // Nom d'affichage de la région qui précède la première fonction
+  static final String START_REGION = "(départ)";
+
+  private final IntUnorientedGraph interferenceGraph;
+  private final int nbColors;
+  private final int firstVirtualRegister;
+
+  // Registres à ne pas fusionner (registres créés par le code de débordement)
+  private final BitSet excluded;
+
+  // Union-find : représentant de chaque registre fusionné
+  private int[] alias;
+
+  // Voisins (registres à allouer) de chaque représentant et leur nombre, mis à jour à chaque fusion
+  private BitSet[] neighbors;
+  private int[] degree;
+
+  /**
+   * Constructeur
+   * @param interferenceGraph graphe d'interférence du programme (construit par buildIntInterferenceGraph)
+   * @param nbColors nombre de couleurs disponibles
+   * @param firstVirtualRegister premier registre à allouer (les précédents sont réservés)
+   * @param excluded registres à ne jamais fusionner
+   */
+  public Coalescer(IntUnorientedGraph interferenceGraph, int nbColors, int firstVirtualRegister, BitSet excluded) {
+    this.interferenceGraph = interferenceGraph;
+    this.nbColors = nbColors;
+    this.firstVirtualRegister = firstVirtualRegister;
+    this.excluded = excluded;
+  }
+
+  /**
+   * Source d'une copie
+   * @param instr l'instruction
+   * @return s si instr est ADDi d s 0 avec d != s, -1 sinon
+   */
+  static int moveSource(Instruction instr) {
+    if (instr instanceof UALi uali && uali.getName().equals("ADD") && uali.getImm() == 0
+            && uali.getDest() != uali.getSr()) {
+      return uali.getSr();
+    }
+    return -1;
+  }
+
+  /**
+   * Indique si une instruction est une copie inutile ADDi r r 0
+   * @param instr l'instruction
+   * @return true si la copie peut être supprimée
+   */
+  static boolean isSelfMove(Instruction instr) {
+    return instr instanceof UALi uali && uali.getName().equals("ADD") && uali.getImm() == 0
+            && uali.getDest() == uali.getSr();
+  }
+
+  private static boolean hasLabel(Instruction i) {
+    return i.getLabel() != null && !i.getLabel().isEmpty();
+  }
+
+  /**
+   * Représentant d'un registre après les fusions
+   * @param reg registre
+   * @return le registre qui le remplace
+   */
+  public int find(int reg) {
+    if (alias == null || reg >= alias.length) return reg;
+    int root = reg;
+    while (alias[root] != root) root = alias[root];
+    // Compression des chemins
+    while (alias[reg] != root) {
+      int next = alias[reg];
+      alias[reg] = root;
+      reg = next;
+    }
+    return root;
+  }
+
+  /**
+   * Fusionne les copies d'une liste d'instructions quand c'est sans risque
+   * @param instructions les instructions (dont le graphe d'interférence a été construit)
+   * @return le nombre de fusions effectuées
+   */
+  public int coalesce(List<Instruction> instructions) {
+    int capacity = Math.max(interferenceGraph.getCapacity(), CFGAnalysis.maxRegister(instructions) + 1);
+    alias = new int[capacity];
+    for (int r = 0; r < capacity; r++) alias[r] = r;
+
+    neighbors = new BitSet[capacity];
+    degree = new int[capacity];
+    for (int k = 0; k < interferenceGraph.getVertexCount(); k++) {
+      int u = interferenceGraph.getVertex(k);
+      if (u < firstVirtualRegister) continue;
+      BitSet adj = new BitSet();
+      for (int j = 0; j < interferenceGraph.getDegree(u); j++) {
+        int v = interferenceGraph.getNeighbor(u, j);
+        if (v >= firstVirtualRegister) adj.set(v);
+      }
+      neighbors[u] = adj;
+      degree[u] = adj.cardinality();
+    }
+
+    int merged = 0;
+    for (Instruction instr : instructions) {
+      int s = moveSource(instr);
+      if (s < 0) continue;
+
+      int a = find(CFGAnalysis.kill(instr));
+      int b = find(s);
+      if (a == b || a < firstVirtualRegister || b < firstVirtualRegister) continue;
+      if (excluded.get(a) || excluded.get(b)) continue;
+      if (adjacency(a).get(b)) continue;
+
+      if (briggs(a, b) || george(a, b)) {
+        merge(a, b);
+        merged++;
+      } else if (george(b, a)) {
+        merge(b, a);
+        merged++;
+      }
+    }
+    return merged;
+  }
+
+  private BitSet adjacency(int u) {
+    if (neighbors[u] == null) neighbors[u] = new BitSet();
+    return neighbors[u];
+  }
+
+  /**
+   * Test de Briggs : le sommet fusionné a moins de nbColors voisins de degré >= nbColors
+   */
+  private boolean briggs(int a, int b) {
+    BitSet union = (BitSet) adjacency(a).clone();
+    union.or(adjacency(b));
+    int significant = 0;
+    for (int t = union.nextSetBit(0); t >= 0; t = union.nextSetBit(t + 1)) {
+      int d = degree[t];
+      // Un voisin commun perd un voisin dans la fusion
+      if (adjacency(a).get(t) && adjacency(b).get(t)) d--;
+      if (d >= nbColors) significant++;
+    }
+    return significant < nbColors;
+  }
+
+  /**
+   * Test de George : chaque voisin de a interfère déjà avec b ou est de degré < nbColors
+   */
+  private boolean george(int a, int b) {
+    BitSet adjA = adjacency(a);
+    BitSet adjB = adjacency(b);
+    for (int t = adjA.nextSetBit(0); t >= 0; t = adjA.nextSetBit(t + 1)) {
+      if (!adjB.get(t) && degree[t] >= nbColors) return false;
+    }
+    return true;
+  }
+
+  /**
+   * Fusionne a dans b
+   */
+  private void merge(int a, int b) {
+    alias[a] = b;
+    BitSet adjA = adjacency(a);
+    BitSet adjB = adjacency(b);
+    for (int t = adjA.nextSetBit(0); t >= 0; t = adjA.nextSetBit(t + 1)) {
+      BitSet adjT = adjacency(t);
+      adjT.clear(a);
+      if (adjB.get(t)) {
+        // t était voisin des deux : il perd un voisin
+        degree[t]--;
+      } else {
+        adjT.set(b);
+        adjB.set(t);
+        degree[b]++;
+      }
+    }
+    neighbors[a] = null;
+    degree[a] = 0;
+  }
+
+  /**
+   * Renomme les registres fusionnés et supprime les copies devenues inutiles
+   * @param program le programme
+   * @param removedMoves nombre de copies supprimées par fonction, complété par cette méthode
+   * @return le nouveau programme
+   */
+  public Program rewrite(Program program, Map<String, Integer> removedMoves) {
+    List<Instruction> renamed = new ArrayList<>();
+    for (Instruction instr : program.getInstructions()) {
+      renamed.add(RegisterAllocator.mapRegisters(instr, this::find));
+    }
+
+    Program result = removeSelfMoves(renamed, removedMoves);
+    result.addParameterCounts(program);
+    return result;
+  }
+
+  /**
+   * Supprime les copies ADDi r r 0. Le label d'une copie supprimée passe sur l'instruction
+   * suivante ; si celle-ci a déjà un label, la copie est gardée.
+   * @param instructions les instructions (elles peuvent recevoir le label d'une copie supprimée)
+   * @param removedMoves nombre de copies supprimées par fonction, complété par cette méthode
+   * @return le programme sans les copies inutiles
+   */
+  static Program removeSelfMoves(List<Instruction> instructions, Map<String, Integer> removedMoves) {
+    FunctionTable functions = new FunctionTable(instructions);
+    Program result = new Program();
+
+    for (int k = 0; k < instructions.size(); k++) {
+      Instruction instr = instructions.get(k);
+      if (isSelfMove(instr)) {
+        boolean removable = !hasLabel(instr)
+                || (k + 1 < instructions.size() && !hasLabel(instructions.get(k + 1)));
+        if (removable) {
+          if (hasLabel(instr)) instructions.get(k + 1).copyLabels(instr);
+          removedMoves.merge(functionName(functions, k), 1, Integer::sum);
+          continue;
+        }
+      }
+      result.addInstruction(instr);
+    }
+    return result;
+  }
+
+  /**
+   * Nom d'affichage de la fonction contenant une instruction
+   */
+  private static String functionName(FunctionTable functions, int index) {
+    String name = functions.getName(functions.getFunctionOf(index));
+    return name == null ? START_REGION : name;
+  }
+
+}
@@ -0,0 +1,235 @@
+package RegisterAllocator;
+
+import Asm.Program;
+import Asm.UAL;
+import Asm.UALi;
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.Lexer;
+import org.antlr.v4.runtime.Parser;
+import org.antlr.v4.runtime.TokenStream;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.ParseTreeVisitor;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Constructor;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.IntSupplier;
+
+/*
+ * Mémoire allouée et temps de la génération de code sur des programmes très imbriqués :
+ * - programmes emboîtés construits directement, de la forme produite par CodeGenerator pour une expression
+ *   (opérande gauche, sous-expression, opération), avec ajout des sous-programmes sans recopie (buffer partagé)
+ *   ou avec recopie à chaque niveau (liste demandée avant l'ajout, comme avant InstructionBuffer) ;
+ * - CodeGenerator sur des expressions parenthésées et des blocs if/while imbriqués sur depth niveaux.
+ * La mémoire est celle allouée par le thread pendant la génération (liste finale comprise), quand la JVM
+ * la fournit (com.sun.management.ThreadMXBean, cherché à l'exécution) ; sinon seul le temps est mesuré.
+ * CodeGenerator et l'analyseur sont dans le paquetage par défaut, qu'un paquetage ne peut pas importer :
+ * ils sont chargés par leur nom.
+ */
+public class CodeGeneratorBenchmark {
+  private static final int[] DEPTHS = {100, 200, 400, 800};
+  private static final int RUNS = 5;
+
+  // Le code étudié est dans f, dont le paramètre n'est pas connu à la compilation (pas de propagation de constantes)
+  private static final String MAIN = "int main() {\n int r = f(3);\n print(r);\n return r;\n}\n";
+
+  // Constructeur de CodeGenerator (cherché une fois, hors des mesures)
+  private static final Constructor<?> CODE_GENERATOR = codeGeneratorConstructor();
+
+  // Octets alloués par le thread courant, null si la JVM ne les mesure pas
+  private static final MethodHandle ALLOCATED_BYTES = allocatedBytesCounter();
+
+  /**
+   * Compteur d'octets alloués par le thread courant, cherché à l'exécution
+   * @return () -> long, ou null s'il n'est pas disponible
+   */
+  private static MethodHandle allocatedBytesCounter() {
+    ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    try {
+      Class<?> beanClass = Class.forName("com.sun.management.ThreadMXBean");
+      if (!beanClass.isInstance(threads)) return null;
+      MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+      MethodType test = MethodType.methodType(boolean.class);
+      boolean supported = (boolean) lookup.findVirtual(beanClass, "isThreadAllocatedMemorySupported", test).invoke(threads)
+              && (boolean) lookup.findVirtual(beanClass, "isThreadAllocatedMemoryEnabled", test).invoke(threads);
+      if (!supported) return null;
+      return lookup.findVirtual(beanClass, "getCurrentThreadAllocatedBytes", MethodType.methodType(long.class))
+              .bindTo(threads);
+    } catch (Throwable e) {
+      return null;
+    }
+  }
+
+  private static long allocatedBytes() {
+    try {
+      return (long) ALLOCATED_BYTES.invokeExact();
+    } catch (Throwable e) {
+      throw new RuntimeException("(RegisterAllocator.CodeGeneratorBenchmark) Mesure de l'allocation impossible", e);
+    }
+  }
+
+  /**
+   * Programme emboîté sur depth niveaux : chaque niveau contient une instruction, le niveau inférieur
+   * et une instruction de calcul
+   * @param depth nombre de niveaux
+   * @param copy si true, la liste de chaque sous-programme est construite avant son ajout, qui le recopie
+   * @return nombre d'instructions du programme
+   */
+  static int nestedPrograms(int depth, boolean copy) {
+    Program program = new Program();
+    program.addInstruction(new UAL(UAL.Op.XOR, 2, 2, 2));
+    for (int level = 0; level < depth; level++) {
+      int reg = 3 + 2 * level;
+      Program parent = new Program();
+      parent.addInstruction(new UALi(UALi.Op.ADD, reg, 2, level));
+      if (copy) program.getInstructions();
+      parent.addInstructions(program);
+      parent.addInstruction(new UAL(UAL.Op.ADD, reg + 1, reg, reg - 1));
+      program = parent;
+    }
+    return program.getInstructions().size();
+  }
+
+  /**
+   * Expression parenthésée sur depth niveaux : a + (a * (a + (... (a + 1))))
+   * @param depth nombre de niveaux
+   * @return le code source
+   */
+  static String nestedExpression(int depth) {
+    StringBuilder expr = new StringBuilder();
+    for (int level = 0; level < depth; level++) {
+      expr.append("a ").append(level % 2 == 0 ? "+" : "*").append(" (");
+    }
+    expr.append("a + 1");
+    expr.append(")".repeat(depth));
+    return "int f(int a) {\n int b = " + expr + ";\n print(b);\n return b;\n}\n" + MAIN;
+  }
+
+  /**
+   * Blocs if et while imbriqués sur depth niveaux, avec deux instructions à chaque niveau
+   * @param depth nombre de niveaux
+   * @return le code source
+   */
+  static String nestedBlocks(int depth) {
+    StringBuilder code = new StringBuilder("int f(int a) {\n int b = a + 1;\n");
+    for (int level = 0; level < depth; level++) {
+      code.append(level % 2 == 0 ? " if (a < b + " + level + ") {\n" : " while (b < a * " + level + ") {\n");
+      code.append("  a = a + b;\n  b = b + ").append(level).append(";\n");
+    }
+    code.append("  print(a);\n");
+    code.append(" }\n".repeat(depth));
+    code.append(" return a;\n}\n");
+    return code + MAIN;
+  }
+
+  /**
+   * Arbre syntaxique d'un programme (grammarTCLLexer et grammarTCLParser, règle main)
+   * @param source le code source
+   * @return l'arbre
+   */
+  static ParseTree parse(String source) {
+    try {
+      Lexer lexer = (Lexer) Class.forName("grammarTCLLexer").getConstructor(CharStream.class)
+              .newInstance(CharStreams.fromString(source));
+      Parser parser = (Parser) Class.forName("grammarTCLParser").getConstructor(TokenStream.class)
+              .newInstance(new CommonTokenStream(lexer));
+      return (ParseTree) parser.getClass().getMethod("main").invoke(parser);
+    } catch (ReflectiveOperationException e) {
+      throw new RuntimeException("(RegisterAllocator.CodeGeneratorBenchmark) Analyseur introuvable", e);
+    }
+  }
+
+  /**
+   * Nouveau CodeGenerator (sans types inférés)
+   */
+  private static ParseTreeVisitor<?> newCodeGenerator() {
+    try {
+      return (ParseTreeVisitor<?>) CODE_GENERATOR.newInstance(new HashMap<>());
+    } catch (ReflectiveOperationException e) {
+      throw new RuntimeException("(RegisterAllocator.CodeGeneratorBenchmark) CodeGenerator non instanciable", e);
+    }
+  }
+
+  private static Constructor<?> codeGeneratorConstructor() {
+    try {
+      return Class.forName("CodeGenerator").getConstructor(Map.class);
+    } catch (ReflectiveOperationException e) {
+      throw new RuntimeException("(RegisterAllocator.CodeGeneratorBenchmark) CodeGenerator introuvable", e);
+    }
+  }
+
+  /**
+   * Génération de code d'un arbre, jusqu'à la liste d'instructions (les traces de CodeGenerator sont ignorées)
+   * @return nombre d'instructions générées
+   */
+  static int generate(ParseTree tree) {
+    ParseTreeVisitor<?> generator = newCodeGenerator();
+    PrintStream out = System.out;
+    System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    try {
+      return ((Program) generator.visit(tree)).getInstructions().size();
+    } finally {
+      System.setOut(out);
+    }
+  }
+
+  /**
+   * Meilleur temps et plus petite allocation sur RUNS essais (après un essai de chauffe)
+   * @param task génération mesurée, qui donne le nombre d'instructions
+   * @param result reçoit le nombre d'instructions (case 0) et les octets alloués (case 1, -1 si non mesurés)
+   * @return temps en nanosecondes
+   */
+  static long measure(IntSupplier task, long[] result) {
+    task.getAsInt();
+    long best = Long.MAX_VALUE;
+    result[1] = ALLOCATED_BYTES == null ? -1 : Long.MAX_VALUE;
+    for (int run = 0; run < RUNS; run++) {
+      long bytes = ALLOCATED_BYTES == null ? 0 : allocatedBytes();
+      long start = System.nanoTime();
+      result[0] = task.getAsInt();
+      best = Math.min(best, System.nanoTime() - start);
+      if (ALLOCATED_BYTES != null) result[1] = Math.min(result[1], allocatedBytes() - bytes);
+    }
+    return best;
+  }
+
+  private static void report(String name, int depth, IntSupplier task) {
+    long[] result = new long[2];
+    long time = measure(task, result);
+    if (result[1] < 0) {
+      System.out.printf("%-18s %-7d %-13d %14s %12s %10.3f%n", name, depth, result[0], "-", "-", time / 1e6);
+    } else {
+      System.out.printf("%-18s %-7d %-13d %14d %12.1f %10.3f%n", name, depth, result[0],
+              result[1], (double) result[1] / result[0], time / 1e6);
+    }
+  }
+
+  public static void main(String[] args) {
+    if (ALLOCATED_BYTES == null) {
+      System.out.println("Mémoire allouée par thread non disponible sur cette JVM : seul le temps est mesuré");
+    }
+    System.out.printf("%-18s %-7s %-13s %14s %12s %10s%n", "cas", "niveaux", "instructions",
+            "octets alloués", "octets/instr", "temps (ms)");
+    for (int depth : DEPTHS) {
+      report("emboîté, partagé", depth, () -> nestedPrograms(depth, false));
+      report("emboîté, recopié", depth, () -> nestedPrograms(depth, true));
+    }
+    for (int depth : DEPTHS) {
+      ParseTree tree = parse(nestedExpression(depth));
+      report("expression", depth, () -> generate(tree));
+    }
+    for (int depth : DEPTHS) {
+      ParseTree tree = parse(nestedBlocks(depth));
+      report("blocs", depth, () -> generate(tree));
+    }
+  }
+}
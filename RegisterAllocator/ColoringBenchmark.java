@@ -0,0 +1,102 @@
+package RegisterAllocator;
+
+import Asm.Program;
+import Graph.ColoringStrategy;
+import Graph.IntUnorientedGraph;
+import Graph.UnorientedGraph;
+
+/*
+ * Comparaison des stratégies de coloration gloutonne (ordre d'insertion, smallest-last, DSatur)
+ * sur des graphes d'interférence de programmes compilés : nombre de couleurs et temps,
+ * pour UnorientedGraph (sommets Integer) et IntUnorientedGraph.
+ * Les graphes sont ceux du programme entier, vivacité interprocédurale comprise (les plus denses).
+ */
+public class ColoringBenchmark {
+  private static final int[] SIZES = {300, 1_000, 3_000};
+  private static final int RUNS = 5;
+
+  /**
+   * Meilleur temps de coloration sur RUNS essais
+   * @param graph le graphe
+   * @param strategy la stratégie
+   * @param colorCount reçoit le nombre de couleurs (case 0)
+   * @return temps en nanosecondes
+   */
+  static long timeColoring(UnorientedGraph<Integer> graph, ColoringStrategy strategy, int[] colorCount) {
+    long best = Long.MAX_VALUE;
+    for (int run = 0; run < RUNS; run++) {
+      long start = System.nanoTime();
+      colorCount[0] = graph.color(strategy);
+      best = Math.min(best, System.nanoTime() - start);
+    }
+    return best;
+  }
+
+  static long timeColoring(IntUnorientedGraph graph, ColoringStrategy strategy, int[] colorCount) {
+    long best = Long.MAX_VALUE;
+    for (int run = 0; run < RUNS; run++) {
+      long start = System.nanoTime();
+      colorCount[0] = graph.color(strategy);
+      best = Math.min(best, System.nanoTime() - start);
+    }
+    return best;
+  }
+
+  /**
+   * Copie d'un graphe d'interférence en sommets Integer (mêmes sommets, dans le même ordre, mêmes arêtes)
+   * @param graph le graphe construit par buildIntInterferenceGraph
+   * @return la copie
+   */
+  static UnorientedGraph<Integer> boxedCopy(IntUnorientedGraph graph) {
+    UnorientedGraph<Integer> boxed = new UnorientedGraph<Integer>();
+    for (int k = 0; k < graph.getVertexCount(); k++) {
+      boxed.addVertex(graph.getVertex(k));
+    }
+    for (int k = 0; k < graph.getVertexCount(); k++) {
+      int u = graph.getVertex(k);
+      for (int j = 0; j < graph.getDegree(u); j++) {
+        if (graph.getNeighbor(u, j) > u) boxed.addEdge(u, graph.getNeighbor(u, j));
+      }
+    }
+    return boxed;
+  }
+
+  /**
+   * Vérifie que chaque sommet est coloré et qu'aucune arête ne relie deux sommets de même couleur
+   * (aussi utilisé par ParallelColoringBenchmark)
+   */
+  static void checkColoring(IntUnorientedGraph graph) {
+    for (int k = 0; k < graph.getVertexCount(); k++) {
+      int u = graph.getVertex(k);
+      if (graph.getColor(u) < 0) throw new RuntimeException("Sommet non coloré : " + u);
+      for (int j = 0; j < graph.getDegree(u); j++) {
+        if (graph.getColor(u) == graph.getColor(graph.getNeighbor(u, j))) {
+          throw new RuntimeException("Coloration invalide : " + u + " et " + graph.getNeighbor(u, j));
+        }
+      }
+    }
+  }
+
+  public static void main(String[] args) {
+    System.out.printf("%-10s %-9s %-9s %-16s %8s %14s %8s %14s%n",
+            "programme", "sommets", "arêtes", "stratégie", "couleurs", "Integer (ms)", "couleurs", "int (ms)");
+    for (int size : SIZES) {
+      Program p = AllocatorBenchmark.generateProgram(size, size);
+      CFGAnalysis analysis = new CFGAnalysis(new ControlGraph(p));
+      IntUnorientedGraph graph = analysis.buildIntInterferenceGraph();
+      UnorientedGraph<Integer> boxed = boxedCopy(graph);
+
+      for (ColoringStrategy strategy : ColoringStrategy.values()) {
+        int[] boxedColors = new int[1];
+        int[] colors = new int[1];
+        long boxedTime = timeColoring(boxed, strategy, boxedColors);
+        long time = timeColoring(graph, strategy, colors);
+        checkColoring(graph);
+        // Même graphe (boxedCopy) : mêmes sommets dans le même ordre, donc les mêmes couleurs
+        System.out.printf("%-10d %-9d %-9d %-16s %8d %14.3f %8d %14.3f%n", p.getInstructions().size(),
+                graph.getVertexCount(), graph.getEdgeCount(), strategy,
+                boxedColors[0], boxedTime / 1e6, colors[0], time / 1e6);
+      }
+    }
+  }
+}
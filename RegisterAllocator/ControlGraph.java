@@ -1,26 +1,60 @@
 package RegisterAllocator;
 
-import Graph.OrientedGraph;
+import Graph.CsrGraph;
+import Graph.FrozenGraph;
 import Asm.*;
 
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 
-public class ControlGraph {
+public final class ControlGraph {
+  private static final List<Integer> NO_CALLERS = List.of();
+
   private final Program program;
-  private final OrientedGraph<Instruction> graph;
+
+  // Graphe figé : le numéro de chaque instruction est son indice dans le programme
+  private FrozenGraph<Instruction> graph;
+
+  // Tables construites en un seul passage par generate()
+  private LabelTable labels;
+  private CallGraph callGraph;
+
+  // Version du programme (et nombre d'instructions) au moment de la génération du graphe
+  private int programModCount;
+  private int programSize;
+
+  // Dominateurs et boucles, calculés à la première demande et oubliés à chaque génération
+  private DominatorTree dominators;
+  private LoopForest loops;
 
   public ControlGraph(Program program) {
     this.program = program;
-    this.graph = new OrientedGraph<Instruction>();
+    refresh();
+  }
+
+  /**
+   * Indique si le graphe correspond encore au programme (aucune modification depuis la génération)
+   * @return true si le graphe est à jour
+   */
+  public boolean isUpToDate() {
+    return programModCount == program.getModCount() && programSize == program.getInstructions().size();
+  }
+
+  /**
+   * Regénère le graphe de contrôle si le programme a été modifié depuis la dernière génération
+   */
+  public void refresh() {
+    if (graph != null && isUpToDate()) return;
+    this.programModCount = program.getModCount();
+    this.programSize = program.getInstructions().size();
     generate();
   }
 
   /**
-   * Retourne le graphe de contrôle
+   * Retourne le graphe de contrôle (figé : numéro d'une instruction = son indice)
    */
-  public OrientedGraph<Instruction> getGraph() {
+  public FrozenGraph<Instruction> getGraph() {
     return graph;
   }
 
@@ -29,114 +63,240 @@ public class ControlGraph {
   }
 
   /**
-   * Génération du graphe de contrôle à partir du programme
-   * fonction appelée automatiquement dans le constructeur
+   * Indice d'une instruction dans le programme
+   * @param instruction l'instruction
+   * @return son indice, ou -1 si elle n'appartient pas au programme
    */
-  private void generate() {
-    ArrayList<Instruction> instructions = program.getInstructions();
+  public int getIndex(Instruction instruction) {
+    return graph.getId(instruction);
+  }
 
-    // Une hashmap avec en clé les labels, et en valeur les instructions correspondantes
-    HashMap<String, Instruction> instructionsWithLabel = new HashMap<>();
+  /**
+   * Indice de l'instruction portant un label
+   * @param label le label
+   * @return son indice, ou -1 si aucune instruction ne porte ce label
+   */
+  public int getLabelIndex(String label) {
+    return labels.getIndex(label);
+  }
+
+  /**
+   * Table des labels du programme (numéro de chaque label, cible de chaque saut)
+   * @return la table construite par la dernière génération
+   */
+  public LabelTable getLabels() {
+    return labels;
+  }
 
-    // Une hashmap avec en clé les instructions RET et en valeur la liste des CALL qui y font référence
-    HashMap<Ret, ArrayList<Instruction>> retMap = new HashMap<>();
+  /**
+   * Graphe d'appel du programme (à jour avec le graphe de contrôle)
+   * @return le graphe d'appel
+   */
+  public CallGraph getCallGraph() {
+    return callGraph;
+  }
 
-    // Premier passage : on ajoute chaque instruction sur un sommet du graphe
-    // et on relie chaque instruction à la suivante (sauf pour les JMP/CALL)
-    Instruction prevInstruction = null;
-    for (Instruction i : instructions) {
-      // On remplit la HashMap des instructions avec labels
-      if (i.getLabel() != null) {
-        instructionsWithLabel.put(i.getLabel(), i);
-      }
+  /**
+   * Nombre de successeurs d'une instruction
+   * @param index indice de l'instruction
+   * @return int
+   */
+  public int getSuccessorCount(int index) {
+    return graph.getOutDegree(index);
+  }
 
-      // On remplit la HashMap des RET avec les CALLs qui y font référence
-      if (i instanceof JumpCall && i.getName().equals("CALL")) {
-        String callLabel = ((JumpCall) i).getAddress();
+  /**
+   * k-ième successeur d'une instruction, sans allocation
+   * @param index indice de l'instruction
+   * @param k indice entre 0 et getSuccessorCount(index) - 1
+   * @return l'indice du successeur
+   */
+  public int getSuccessor(int index, int k) {
+    return graph.getOutNeighbor(index, k);
+  }
 
-        // On cherche l'instruction RET suivante après le label pointé par le CALL
-        Instruction nextRetAfterLabel = getNextRetAfterLabel(callLabel, instructions);
+  /**
+   * Nombre de prédécesseurs d'une instruction
+   * @param index indice de l'instruction
+   * @return int
+   */
+  public int getPredecessorCount(int index) {
+    return graph.getInDegree(index);
+  }
 
-        // On a appelé une fonction, mais aucun RET n'existe après le label appelé
-        if (nextRetAfterLabel == null) {
-          throw new RuntimeException("No RET for label " + callLabel + "but was called here : " + i.toString());
-        }
+  /**
+   * k-ième prédécesseur d'une instruction, sans allocation
+   * @param index indice de l'instruction
+   * @param k indice entre 0 et getPredecessorCount(index) - 1
+   * @return l'indice du prédécesseur
+   */
+  public int getPredecessor(int index, int k) {
+    return graph.getInNeighbor(index, k);
+  }
 
-        // On ajoute le CALL (instruction courante i) dans la liste des CALLs pour le RET trouvé
-        // dans la HashMap retMap
-        if (!retMap.containsKey((Ret) nextRetAfterLabel)) {
-          retMap.put((Ret) nextRetAfterLabel, new ArrayList<>());
-        }
-        retMap.get((Ret) nextRetAfterLabel).add(i);
-      }
+  /**
+   * Arbre des dominateurs du graphe intraprocédural (voir DominatorTree), regénéré avec le graphe
+   * @return DominatorTree
+   */
+  public DominatorTree getDominatorTree() {
+    refresh();
+    if (dominators == null) dominators = new DominatorTree(this);
+    return dominators;
+  }
 
-      graph.addVertex(i);
+  /**
+   * Forêt des boucles naturelles (voir LoopForest), regénérée avec le graphe
+   * @return LoopForest
+   */
+  public LoopForest getLoopForest() {
+    DominatorTree tree = getDominatorTree();
+    if (loops == null) loops = new LoopForest(tree);
+    return loops;
+  }
+
+  /**
+   * Dominateur immédiat d'une instruction
+   * @param instruction l'instruction
+   * @return le dominateur immédiat, null pour la première instruction et l'entrée d'une fonction
+   */
+  public Instruction getImmediateDominator(Instruction instruction) {
+    int idom = getDominatorTree().getImmediateDominator(indexOf(instruction));
+    return idom < 0 ? null : program.getInstructions().get(idom);
+  }
 
-      if (prevInstruction != null) {
-        if (!(prevInstruction instanceof JumpCall) && !(prevInstruction instanceof Ret) && !(prevInstruction instanceof Stop)) {
-          // On relie l'instruction précédente à l'instruction courante
-          // sauf si la précédente est un JMP/CALL/RET/STOP
-          graph.addEdge(prevInstruction, i);
+  /**
+   * Teste si a domine b : tout chemin depuis l'entrée de la fonction jusqu'à b passe par a
+   * @param a instruction
+   * @param b instruction
+   * @return boolean (une instruction se domine elle-même)
+   */
+  public boolean dominates(Instruction a, Instruction b) {
+    DominatorTree tree = getDominatorTree();
+    return tree.dominates(indexOf(a), indexOf(b));
+  }
 
-          // si la précédente est un CondJump, on relie aussi le CondJump
-          // à l'instruction courante au cas ou la condition soit fausse
-        }
-      }
-      prevInstruction = i;
+  /**
+   * Nombre de boucles contenant une instruction
+   * @param instruction l'instruction
+   * @return 0 hors de toute boucle
+   */
+  public int getLoopDepth(Instruction instruction) {
+    return getLoopForest().getDepth(indexOf(instruction));
+  }
+
+  /**
+   * Nombre de boucles contenant une instruction
+   * @param index indice de l'instruction
+   * @return 0 hors de toute boucle
+   */
+  public int getLoopDepth(int index) {
+    return getLoopForest().getDepth(index);
+  }
+
+  private int indexOf(Instruction instruction) {
+    refresh();
+    int index = graph.getId(instruction);
+    if (index < 0) {
+      throw new RuntimeException("(RegisterAllocator.ControlGraph) L'instruction " + instruction + " n'appartient pas au programme");
+    }
+    return index;
+  }
+
+  /**
+   * Génération du graphe de contrôle à partir du programme
+   * fonction appelée automatiquement dans le constructeur.
+   * Un premier passage construit les tables (label -> indice, instruction -> indice),
+   * le graphe d'appel donne les RET de chaque fonction appelée, un second passage range les
+   * successeurs de chaque instruction directement au format CSR : la construction est en O(n + arcs),
+   * sans graphe intermédiaire. Les analyses ne font plus que lire le graphe figé.
+   * Chaque RET d'une fonction retourne après chacun de ses CALL, sauf pour les appels récursifs
+   * (vers la même composante du graphe d'appel) : ceux-ci sont traités comme une instruction
+   * qui continue en séquence, pour que les registres vivants de part et d'autre d'un appel
+   * récursif le restent (sinon ils semblent tués par l'entrée de la fonction).
+   * Un CALL vers un label absent du programme (fonction allouée séparément, voir
+   * RegisterAllocator) est traité de la même façon.
+   */
+  private void generate() {
+    ArrayList<Instruction> instructions = program.getInstructions();
+    int n = instructions.size();
+
+    // Table des labels : indice de l'instruction de chaque label et de la cible de chaque saut
+    labels = new LabelTable(instructions);
+
+    // Premier passage : numéro de chaque instruction (son indice)
+    HashMap<Instruction, Integer> ids = new HashMap<>(2 * n);
+    for (int k = 0; k < n; k++) {
+      ids.put(instructions.get(k), k);
+    }
+    if (ids.size() != n) {
+      throw new RuntimeException("(RegisterAllocator.ControlGraph) Une instruction apparaît deux fois dans le programme");
     }
 
+    // Graphe d'appel : corps, RET et appels récursifs de chaque fonction
+    callGraph = new CallGraph(instructions, labels);
 
-    // Second passage : on ajoute les arêtes pour les JMP/CALL et les CondJumps
-    // d'après les instructions avec labels stockés dans la HashMap
-    for (Instruction i : instructions) {
-      if (i instanceof JumpCall) {
-        // On relie le JumpCall à l'instruction pointée par son label
-        Instruction targetInstruction = instructionsWithLabel.get(((JumpCall) i).getAddress());
-        if (targetInstruction != null) {
-          graph.addEdge(i, targetInstruction);
-        }
-      }
+    // Pour chaque RET, les indices des CALL qui y font référence
+    HashMap<Integer, List<Integer>> retCallers = new HashMap<>();
 
-      if (i instanceof CondJump) {
-        // On relie le CondJump à l'instruction pointée par son label
-        Instruction targetInstruction = instructionsWithLabel.get(((CondJump) i).getAddress());
-        if (targetInstruction != null) {
-          graph.addEdge(i, targetInstruction);
-        }
-      }
+    int[] jumpTarget = new int[n];
+    boolean[] fallThroughCall = new boolean[n];
+    for (int k = 0; k < n; k++) {
+      Instruction i = instructions.get(k);
+      jumpTarget[k] = labels.getTarget(k);
 
-      if (i instanceof Ret) {
-        // On relie le RET à l'instruction suivant chaque CALL qui y fait référence
-        for (Instruction caller : retMap.getOrDefault(((Ret) i), new ArrayList<>())) {
-          int callerIndex = instructions.indexOf(caller);
-          if (callerIndex + 1 < instructions.size()) {
-            Instruction nextInstruction = instructions.get(callerIndex + 1);
-            graph.addEdge(i, nextInstruction);
+      if (i instanceof JumpCall jc) {
+        if (i.getName().equals("CALL") && jumpTarget[k] < 0) {
+          // Appel externe : on continue en séquence
+          fallThroughCall[k] = true;
+        } else if (i.getName().equals("CALL")) {
+          // Les RET du corps de la fonction appelée
+          List<Integer> rets = callGraph.getReturns(callGraph.getFunction(jc.getAddress()));
+
+          // On a appelé une fonction, mais aucun RET n'existe après le label appelé
+          if (rets.isEmpty()) {
+            throw new RuntimeException("No RET for label " + jc.getAddress() + "but was called here : " + i.toString());
+          }
+
+          if (callGraph.isRecursiveCall(k)) {
+            fallThroughCall[k] = true;
+            jumpTarget[k] = -1;
+            continue;
+          }
+          for (int retIndex : rets) {
+            retCallers.computeIfAbsent(retIndex, _ -> new ArrayList<>()).add(k);
           }
         }
       }
     }
-  }
-
 
-  /**
-   * Retourne la prochaine instruction RET après un label donné
-   * @param label le label à chercher
-   * @param instructions la liste des instructions
-   * @return
-   */
-  private Instruction getNextRetAfterLabel(String label, ArrayList<Instruction> instructions) {
-    boolean isAfterLabel = false;
-    for (Instruction j : instructions) {
-      if (j.getLabel() != null && j.getLabel().equals(label)) {
-        isAfterLabel = true;
+    // Second passage : les successeurs de chaque instruction, au format CSR
+    // - l'instruction suivante (sauf pour les JMP/CALL/RET/STOP, mais y compris pour un CALL récursif ou externe)
+    // - la cible des JMP/CALL et des CondJumps
+    // - pour un RET, l'instruction qui suit chaque CALL qui y fait référence
+    boolean[] fallsThrough = new boolean[n];
+    int[] offsets = new int[n + 1];
+    for (int k = 0; k < n; k++) {
+      Instruction i = instructions.get(k);
+      fallsThrough[k] = k + 1 < n && (fallThroughCall[k]
+              || (!(i instanceof JumpCall) && !(i instanceof Ret) && !(i instanceof Stop)));
+      int degree = (fallsThrough[k] ? 1 : 0) + (jumpTarget[k] >= 0 ? 1 : 0);
+      for (int caller : retCallers.getOrDefault(k, NO_CALLERS)) {
+        if (caller + 1 < n) degree++;
       }
-
-      if (isAfterLabel && j instanceof Ret) {
-        return j;
+      offsets[k + 1] = offsets[k] + degree;
+    }
+    int[] targets = new int[offsets[n]];
+    for (int k = 0; k < n; k++) {
+      int e = offsets[k];
+      if (fallsThrough[k]) targets[e++] = k + 1;
+      if (jumpTarget[k] >= 0) targets[e++] = jumpTarget[k];
+      for (int caller : retCallers.getOrDefault(k, NO_CALLERS)) {
+        if (caller + 1 < n) targets[e++] = caller + 1;
       }
     }
-    return null;
+    graph = FrozenGraph.fromCsr(instructions, ids, new CsrGraph(offsets, targets));
+    dominators = null;
+    loops = null;
   }
 
 
@@ -149,13 +309,11 @@ public class ControlGraph {
     System.out.println(instructions);
 
     String s = "digraph G {\n";
-    for (Instruction i : instructions) {
-      ArrayList<Instruction> outNeighbors = graph.getOutNeighbors(i);
-      if (outNeighbors == null) continue;
-
-      for (Instruction neighbor : outNeighbors) {
-        Integer index = instructions.indexOf(i);
-        Integer neighborIndex = instructions.indexOf(neighbor);
+    for (int k = 0; k < instructions.size(); k++) {
+      for (int j = 0; j < getSuccessorCount(k); j++) {
+        int target = getSuccessor(k, j);
+        Integer index = k;
+        Integer neighborIndex = target;
         s += "\t\""
                 + index.toString() + " : "
                 + instructions.get(index).toString().replace("\n", "")
@@ -0,0 +1,161 @@
+package RegisterAllocator;
+
+import Asm.Instruction;
+import Asm.Program;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/*
+ * Test de passage à l'échelle de la construction du graphe de contrôle :
+ * la construction doit rester linéaire en la taille du programme.
+ * On compte les lectures de la liste d'instructions plutôt que de mesurer un temps :
+ * le résultat ne dépend ni de la machine ni de sa charge.
+ */
+public class ControlGraphScalingTest {
+  private static final int[] SIZES = {1_000, 10_000, 100_000};
+
+  // Un facteur 10 sur la taille ne doit pas multiplier le nombre de lectures par instruction par plus
+  // de MAX_GROWTH (1 pour une construction linéaire, 10 pour une construction quadratique)
+  private static final double MAX_GROWTH = 1.5;
+
+  /**
+   * Liste d'instructions qui compte ses lectures : accès par indice, parcours et recherches
+   * (une recherche compte autant de lectures que la liste a d'éléments)
+   */
+  private static final class CountingList extends ArrayList<Instruction> {
+    private static final long serialVersionUID = 1L;
+
+    long reads = 0;
+
+    CountingList(List<Instruction> instructions) {
+      super(instructions);
+    }
+
+    @Override
+    public Instruction get(int index) {
+      reads++;
+      return super.get(index);
+    }
+
+    @Override
+    public Iterator<Instruction> iterator() {
+      Iterator<Instruction> it = super.iterator();
+      return new Iterator<Instruction>() {
+        public boolean hasNext() {
+          return it.hasNext();
+        }
+
+        public Instruction next() {
+          reads++;
+          return it.next();
+        }
+      };
+    }
+
+    @Override
+    public int indexOf(Object o) {
+      reads += size();
+      return super.indexOf(o);
+    }
+
+    @Override
+    public int lastIndexOf(Object o) {
+      reads += size();
+      return super.lastIndexOf(o);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+      reads += size();
+      return super.contains(o);
+    }
+  }
+
+  /**
+   * Programme dont la liste d'instructions est une CountingList
+   */
+  private static final class CountingProgram extends Program {
+    final CountingList instructions;
+
+    CountingProgram(Program program) {
+      this.instructions = new CountingList(program.getInstructions());
+    }
+
+    @Override
+    public ArrayList<Instruction> getInstructions() {
+      return instructions;
+    }
+  }
+
+  /**
+   * Génère un programme d'environ size instructions : un main qui appelle des fonctions
+   * dans une boucle, chaque fonction contenant elle-même des sauts conditionnels
+   * @param size nombre d'instructions visé
+   * @return le programme généré
+   */
+  static Program generateProgram(int size) {
+    List<String> lines = new ArrayList<>();
+    int nbFunctions = Math.max(1, size / 100);
+
+    lines.add("main: XOR R2 R2 R2");
+    lines.add("ADDi R3 R2 10");
+    lines.add("LOOP: JSEQ R2 R3 END");
+    for (int f = 0; f < nbFunctions; f++) {
+      lines.add("CALL F" + f);
+    }
+    lines.add("ADDi R2 R2 1");
+    lines.add("JMP LOOP");
+    lines.add("END: PRINT R2");
+    lines.add("STOP");
+
+    int perFunction = Math.max(4, (size - lines.size()) / nbFunctions);
+    for (int f = 0; f < nbFunctions; f++) {
+      lines.add("F" + f + ": ADDi R4 R2 " + f);
+      for (int k = 1; k < perFunction - 1; k++) {
+        if (k % 10 == 0) {
+          // Saut arrière vers le label précédent de la fonction
+          String target = k == 10 ? "F" + f : "F" + f + "_" + (k - 10);
+          lines.add("F" + f + "_" + k + ": JEQU R4 R2 " + target);
+        } else {
+          lines.add("ADD R" + (5 + k % 20) + " R4 R" + (4 + k % 20));
+        }
+      }
+      lines.add("RET");
+    }
+    return ProgramGenerator.compile(lines.toArray(new String[0]));
+  }
+
+  /**
+   * Nombre de lectures de la liste d'instructions pendant la construction du graphe de contrôle
+   * @param program le programme
+   * @return nombre de lectures
+   */
+  static long countReads(Program program) {
+    CountingProgram counting = new CountingProgram(program);
+    new ControlGraph(counting);
+    return counting.instructions.reads;
+  }
+
+  public static void main(String[] args) {
+    double[] readsPerInstruction = new double[SIZES.length];
+    for (int s = 0; s < SIZES.length; s++) {
+      Program p = generateProgram(SIZES[s]);
+      long reads = countReads(p);
+      readsPerInstruction[s] = (double) reads / p.getInstructions().size();
+      System.out.printf("%d instructions : %d lectures (%.2f par instruction)%n",
+              p.getInstructions().size(), reads, readsPerInstruction[s]);
+    }
+
+    for (int s = 1; s < SIZES.length; s++) {
+      double growth = readsPerInstruction[s] / readsPerInstruction[s - 1];
+      System.out.printf("x%d instructions -> x%.2f lectures par instruction%n", SIZES[s] / SIZES[s - 1], growth);
+      if (growth > MAX_GROWTH) {
+        throw new RuntimeException("Construction du graphe de contrôle non linéaire : x" + growth
+                + " lectures par instruction entre " + SIZES[s - 1] + " et " + SIZES[s] + " instructions");
+      }
+    }
+    System.out.println("OK");
+  }
+}
@@ -1,7 +1,7 @@
 package RegisterAllocator;
 
 import Asm.*;
-import Graph.UnorientedGraph;
+import Graph.IntUnorientedGraph;
 
 import java.util.List;
 
@@ -64,6 +64,7 @@ public class ControlGraphTest {
 
         CFGAnalysis analysis = new CFGAnalysis(cfg);
         List<CFGAnalysis.LiveVars> liveVars = analysis.computeLiveVariables();
+        System.out.println("\nLiveness : " + analysis.getStats());
         List<Instruction> instructions = cfg.getInstructions();
         for (int i = 0; i < instructions.size(); i++) {
             System.out.println("\nInstruction " + i + ":");
@@ -71,11 +72,19 @@ public class ControlGraphTest {
             System.out.println("LVexit = " + liveVars.get(i).exit);
         }
 
-        UnorientedGraph<Integer> interferenceGraph = analysis.buildInterferenceGraph();
+        IntUnorientedGraph interferenceGraph = analysis.buildIntInterferenceGraph();
         interferenceGraph.color();
 
         for (int i = 0; i <= 4; i++) {
             System.out.println("Reg " + i + " -> Color " + interferenceGraph.getColor(i));
         }
+
+        // Dominateurs et boucles (graphe intraprocédural : INC est une racine, WH une boucle de profondeur 1)
+        System.out.println();
+        for (Instruction i : instructions) {
+            Instruction idom = cfg.getImmediateDominator(i);
+            System.out.println(i.toString().replace("\n", "") + " : idom = "
+                    + (idom == null ? "-" : idom.toString().replace("\n", "")) + ", profondeur = " + cfg.getLoopDepth(i));
+        }
     }
 }
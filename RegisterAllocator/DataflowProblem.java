@@ -0,0 +1,52 @@
+package RegisterAllocator;
+
+import java.util.BitSet;
+
+/**
+ * Problème d'analyse de flot de données sur les blocs de base, résolu par DataflowSolver.
+ * Les valeurs sont des vecteurs de bits (registres, définitions, expressions...) ; le treillis
+ * est celui des parties de l'univers, ordonné par l'inclusion (UNION) ou par son inverse (INTERSECTION).
+ * La fonction de transfert doit être monotone : le solveur accumule les rencontres sur place.
+ */
+public interface DataflowProblem {
+
+  /**
+   * Sens de propagation : de l'entrée vers la sortie des blocs (FORWARD), ou l'inverse (BACKWARD)
+   */
+  enum Direction { FORWARD, BACKWARD }
+
+  /**
+   * Rencontre des valeurs venant de plusieurs blocs : UNION pour une analyse « il existe un chemin »
+   * (vivacité, définitions qui atteignent), INTERSECTION pour « sur tous les chemins » (expressions disponibles)
+   */
+  enum Meet { UNION, INTERSECTION }
+
+  Direction getDirection();
+
+  Meet getMeet();
+
+  /**
+   * Valeur de départ de chaque bloc, sommet du treillis : vide pour UNION, univers entier pour INTERSECTION
+   * @return un nouveau BitSet
+   */
+  default BitSet top() {
+    return new BitSet();
+  }
+
+  /**
+   * Valeur en entrée du programme et des blocs sans prédécesseur (FORWARD),
+   * ou en sortie des blocs sans successeur (BACKWARD)
+   * @return un nouveau BitSet
+   */
+  default BitSet boundary() {
+    return new BitSet();
+  }
+
+  /**
+   * Fonction de transfert d'un bloc
+   * @param block numéro du bloc dans le BasicBlockGraph
+   * @param input valeur en entrée du bloc dans le sens de l'analyse (à ne pas modifier)
+   * @param output reçoit la valeur en sortie du bloc (vide à l'appel)
+   */
+  void transfer(int block, BitSet input, BitSet output);
+}
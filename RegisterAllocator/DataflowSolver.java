@@ -0,0 +1,173 @@
+package RegisterAllocator;
+
+import Graph.CsrGraph;
+
+import java.util.BitSet;
+
+/**
+ * Résolution d'un DataflowProblem sur les blocs de base, par liste de travail à priorité.
+ *
+ * Les blocs sont rangés en postordre inverse du graphe (analyse en avant) ou en postordre (analyse
+ * en arrière), pour qu'un bloc soit en général traité après les blocs dont il dépend. La liste de
+ * travail est un BitSet de rangs parcouru par rangs croissants : un bloc remis dans la liste avec un
+ * rang supérieur est traité dans la même passe, les autres à la passe suivante. (Revenir tout de suite
+ * au plus petit rang fait plus de visites : dans le graphe interprocédural, chaque appel forme un cycle.)
+ * Les valeurs ne font que descendre dans le treillis : la rencontre est accumulée sur place
+ * (or/and) au lieu d'être recalculée depuis tous les voisins.
+ */
+public class DataflowSolver {
+
+  /**
+   * Compteurs d'une résolution
+   */
+  public static class SolverStats {
+    // Passes sur la liste de travail
+    public int iterations;
+    // Blocs traités
+    public int visits;
+
+    @Override
+    public String toString() {
+      return iterations + " iterations, " + visits + " visits";
+    }
+  }
+
+  private final BasicBlockGraph blocks;
+  private final DataflowProblem problem;
+
+  // Valeurs au début et à la fin de chaque bloc (dans l'ordre du programme, quel que soit le sens)
+  private final BitSet[] entry;
+  private final BitSet[] exit;
+
+  private final SolverStats stats = new SolverStats();
+
+  public DataflowSolver(BasicBlockGraph blocks, DataflowProblem problem) {
+    this.blocks = blocks;
+    this.problem = problem;
+    int n = blocks.getBlockCount();
+    this.entry = new BitSet[n];
+    this.exit = new BitSet[n];
+    solve();
+  }
+
+  private void solve() {
+    int n = blocks.getBlockCount();
+    boolean forward = problem.getDirection() == DataflowProblem.Direction.FORWARD;
+    boolean union = problem.getMeet() == DataflowProblem.Meet.UNION;
+
+    // Sources de la rencontre d'un bloc, et blocs à reprendre quand sa sortie change
+    CsrGraph sources = forward ? blocks.getPredecessors() : blocks.getSuccessors();
+    CsrGraph dependents = forward ? blocks.getSuccessors() : blocks.getPredecessors();
+    BitSet[] input = forward ? entry : exit;
+    BitSet[] output = forward ? exit : entry;
+
+    int[] post = postOrder(blocks.getSuccessors());
+    int[] order = new int[n];
+    int[] rank = new int[n];
+    for (int r = 0; r < n; r++) {
+      order[r] = forward ? post[n - 1 - r] : post[r];
+      rank[order[r]] = r;
+    }
+
+    BitSet top = problem.top();
+    BitSet boundary = problem.boundary();
+    for (int b = 0; b < n; b++) {
+      boolean atBoundary = sources.getDegree(b) == 0 || (forward && b == 0);
+      input[b] = (BitSet) (atBoundary ? boundary : top).clone();
+      output[b] = (BitSet) top.clone();
+    }
+
+    BitSet worklist = new BitSet(n);
+    worklist.set(0, n);
+    BitSet scratch = new BitSet();
+
+    while (!worklist.isEmpty()) {
+      stats.iterations++;
+      for (int r = worklist.nextSetBit(0); r >= 0; r = worklist.nextSetBit(r + 1)) {
+        worklist.clear(r);
+        int b = order[r];
+        stats.visits++;
+
+        // Rencontre des sorties des sources (les valeurs ne faisant que descendre, on accumule)
+        for (int k = 0; k < sources.getDegree(b); k++) {
+          BitSet value = output[sources.getNeighbor(b, k)];
+          if (union) input[b].or(value);
+          else input[b].and(value);
+        }
+
+        scratch.clear();
+        problem.transfer(b, input[b], scratch);
+        if (scratch.equals(output[b])) continue;
+
+        BitSet old = output[b];
+        output[b] = scratch;
+        scratch = old;
+        for (int k = 0; k < dependents.getDegree(b); k++) {
+          worklist.set(rank[dependents.getNeighbor(b, k)]);
+        }
+      }
+    }
+  }
+
+  /**
+   * Postordre itératif du graphe (depuis le premier bloc, puis depuis les blocs non atteints
+   * dans l'ordre du programme)
+   * @param succs successeurs de chaque bloc
+   * @return les numéros des blocs en postordre
+   */
+  static int[] postOrder(CsrGraph succs) {
+    int n = succs.getVertexCount();
+    int[] order = new int[n];
+    int count = 0;
+    boolean[] visited = new boolean[n];
+    int[] stack = new int[n];
+    int[] next = new int[n];
+
+    for (int root = 0; root < n; root++) {
+      if (visited[root]) continue;
+      int top = 0;
+      stack[0] = root;
+      visited[root] = true;
+      while (top >= 0) {
+        int u = stack[top];
+        if (next[u] < succs.getDegree(u)) {
+          int v = succs.getNeighbor(u, next[u]++);
+          if (!visited[v]) {
+            visited[v] = true;
+            stack[++top] = v;
+          }
+        } else {
+          order[count++] = u;
+          top--;
+        }
+      }
+    }
+    return order;
+  }
+
+  /**
+   * Valeur au début d'un bloc (dans l'ordre du programme)
+   * @param b numéro du bloc
+   * @return BitSet (à ne pas modifier)
+   */
+  public BitSet getEntry(int b) {
+    return entry[b];
+  }
+
+  /**
+   * Valeur à la fin d'un bloc (dans l'ordre du programme)
+   * @param b numéro du bloc
+   * @return BitSet (à ne pas modifier)
+   */
+  public BitSet getExit(int b) {
+    return exit[b];
+  }
+
+  /**
+   * Compteurs de la résolution
+   * @return SolverStats
+   */
+  public SolverStats getStats() {
+    return stats;
+  }
+}
@@ -0,0 +1,255 @@
+package RegisterAllocator;
+
+import Asm.*;
+import Graph.CsrGraph;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Arbre des dominateurs des instructions, fonction par fonction.
+ *
+ * Le graphe utilisé est le graphe de contrôle intraprocédural : un CALL continue sur l'instruction
+ * suivante et un RET n'a pas de successeur (dans ControlGraph, les arcs CALL -> fonction et
+ * RET -> retour relient les fonctions entre elles et formeraient de faux cycles entre deux appels).
+ * Les racines sont la première instruction, l'entrée de chaque fonction, puis les instructions
+ * encore non atteintes dans l'ordre du programme ; elles sont reliées à une racine virtuelle.
+ *
+ * Calcul itératif de Cooper, Harvey et Kennedy (« A Simple, Fast Dominance Algorithm ») sur le
+ * postordre inverse : deux passes suffisent pour un graphe réductible. dominates() est en O(1)
+ * grâce à une numérotation préfixe/suffixe de l'arbre.
+ */
+public class DominatorTree {
+  private final int n;
+
+  // Graphe intraprocédural et son renversé
+  private final CsrGraph successors;
+  private final CsrGraph predecessors;
+
+  // Ordre préfixe du parcours en profondeur du graphe (rang de chaque instruction)
+  private final int[] preorder;
+
+  // Dominateur immédiat de chaque instruction (n = racine virtuelle pour les racines)
+  private final int[] idom;
+
+  // Intervalle de chaque instruction dans le parcours de l'arbre des dominateurs
+  private final int[] enter;
+  private final int[] exit;
+
+  public DominatorTree(ControlGraph cfg) {
+    List<Instruction> instructions = cfg.getInstructions();
+    this.n = instructions.size();
+    this.successors = intraproceduralSuccessors(cfg);
+    this.predecessors = successors.transpose();
+    this.preorder = new int[n];
+    this.idom = new int[n + 1];
+    this.enter = new int[n + 1];
+    this.exit = new int[n + 1];
+
+    int[] postorder = new int[n + 1];
+    int[] order = depthFirstOrder(roots(cfg), postorder);
+    computeIdoms(order, postorder);
+    numberTree();
+  }
+
+  /**
+   * Successeurs intraproceduraux de chaque instruction, au format CSR
+   */
+  private static CsrGraph intraproceduralSuccessors(ControlGraph cfg) {
+    List<Instruction> instructions = cfg.getInstructions();
+    int n = instructions.size();
+    int[] offsets = new int[n + 1];
+    for (int k = 0; k < n; k++) {
+      offsets[k + 1] = offsets[k] + successorCount(cfg, k);
+    }
+    int[] targets = new int[offsets[n]];
+    for (int k = 0; k < n; k++) {
+      Instruction i = instructions.get(k);
+      if (isCall(i)) {
+        if (k + 1 < n) targets[offsets[k]] = k + 1;
+      } else if (!(i instanceof Ret)) {
+        for (int j = 0; j < cfg.getSuccessorCount(k); j++) {
+          targets[offsets[k] + j] = cfg.getSuccessor(k, j);
+        }
+      }
+    }
+    return new CsrGraph(offsets, targets);
+  }
+
+  private static int successorCount(ControlGraph cfg, int k) {
+    Instruction i = cfg.getInstructions().get(k);
+    if (isCall(i)) return k + 1 < cfg.getInstructions().size() ? 1 : 0;
+    if (i instanceof Ret) return 0;
+    return cfg.getSuccessorCount(k);
+  }
+
+  private static boolean isCall(Instruction i) {
+    return i instanceof JumpCall jc && jc.getName().equals("CALL");
+  }
+
+  /**
+   * Racines du parcours : première instruction puis entrée de chaque fonction
+   */
+  private int[] roots(ControlGraph cfg) {
+    CallGraph callGraph = cfg.getCallGraph();
+    int[] roots = new int[1 + callGraph.getFunctionCount()];
+    int count = 0;
+    if (n > 0) roots[count++] = 0;
+    for (int f = 0; f < callGraph.getFunctionCount(); f++) {
+      if (callGraph.getEntry(f) >= 0) roots[count++] = callGraph.getEntry(f);
+    }
+    return Arrays.copyOf(roots, count);
+  }
+
+  /**
+   * Parcours en profondeur itératif depuis les racines, puis depuis les instructions non atteintes.
+   * Remplit preorder et postorder (la racine virtuelle n a le plus grand numéro) ; idom vaut n
+   * pour les racines du parcours et -1 pour les autres instructions.
+   * @return les instructions en postordre inverse
+   */
+  private int[] depthFirstOrder(int[] roots, int[] postorder) {
+    boolean[] visited = new boolean[n];
+    int[] stack = new int[n];
+    int[] next = new int[n];
+    int[] reversePostorder = new int[n];
+    int preCount = 0;
+    int postCount = 0;
+    Arrays.fill(idom, -1);
+
+    for (int r = 0; r < roots.length + n; r++) {
+      int root = r < roots.length ? roots[r] : r - roots.length;
+      if (visited[root]) continue;
+      idom[root] = n;
+      int top = 0;
+      stack[0] = root;
+      visited[root] = true;
+      preorder[root] = preCount++;
+      while (top >= 0) {
+        int u = stack[top];
+        if (next[u] < successors.getDegree(u)) {
+          int v = successors.getNeighbor(u, next[u]++);
+          if (!visited[v]) {
+            visited[v] = true;
+            preorder[v] = preCount++;
+            stack[++top] = v;
+          }
+        } else {
+          postorder[u] = postCount;
+          reversePostorder[n - 1 - postCount] = u;
+          postCount++;
+          top--;
+        }
+      }
+    }
+    postorder[n] = n;
+    idom[n] = n;
+    return reversePostorder;
+  }
+
+  /**
+   * Point fixe de Cooper, Harvey et Kennedy : idom(b) = intersection des dominateurs
+   * des prédécesseurs déjà traités, dans l'ordre du postordre inverse
+   */
+  private void computeIdoms(int[] order, int[] postorder) {
+    boolean changed = true;
+    while (changed) {
+      changed = false;
+      for (int b : order) {
+        if (idom[b] == n) continue;
+        int newIdom = -1;
+        for (int k = 0; k < predecessors.getDegree(b); k++) {
+          int p = predecessors.getNeighbor(b, k);
+          if (idom[p] == -1) continue;
+          newIdom = newIdom == -1 ? p : intersect(p, newIdom, postorder);
+        }
+        if (newIdom != idom[b]) {
+          idom[b] = newIdom;
+          changed = true;
+        }
+      }
+    }
+  }
+
+  private int intersect(int a, int b, int[] postorder) {
+    while (a != b) {
+      while (postorder[a] < postorder[b]) a = idom[a];
+      while (postorder[b] < postorder[a]) b = idom[b];
+    }
+    return a;
+  }
+
+  /**
+   * Numérotation préfixe/suffixe de l'arbre des dominateurs depuis la racine virtuelle
+   */
+  private void numberTree() {
+    // Fils de chaque nœud (format CSR), la racine virtuelle comprise
+    int[] offsets = new int[n + 2];
+    for (int b = 0; b < n; b++) {
+      offsets[idom[b] + 1]++;
+    }
+    for (int b = 0; b <= n; b++) {
+      offsets[b + 1] += offsets[b];
+    }
+    int[] children = new int[n];
+    int[] fill = new int[n + 1];
+    for (int b = 0; b < n; b++) {
+      children[offsets[idom[b]] + fill[idom[b]]++] = b;
+    }
+
+    int[] stack = new int[n + 1];
+    int[] next = new int[n + 1];
+    int top = 0;
+    int counter = 0;
+    stack[0] = n;
+    enter[n] = counter++;
+    while (top >= 0) {
+      int u = stack[top];
+      if (offsets[u] + next[u] < offsets[u + 1]) {
+        int v = children[offsets[u] + next[u]++];
+        enter[v] = counter++;
+        stack[++top] = v;
+      } else {
+        exit[u] = counter++;
+        top--;
+      }
+    }
+  }
+
+  /**
+   * Dominateur immédiat d'une instruction
+   * @param index indice de l'instruction
+   * @return indice du dominateur immédiat, -1 pour une racine (première instruction, entrée de fonction)
+   */
+  public int getImmediateDominator(int index) {
+    return idom[index] == n ? -1 : idom[index];
+  }
+
+  /**
+   * Teste si a domine b (tout chemin depuis la racine de b passe par a ; a domine a)
+   * @param a indice d'instruction
+   * @param b indice d'instruction
+   * @return boolean
+   */
+  public boolean dominates(int a, int b) {
+    return enter[a] <= enter[b] && exit[b] <= exit[a];
+  }
+
+  /**
+   * Graphe intraprocédural utilisé (successeurs)
+   * @return CsrGraph
+   */
+  CsrGraph getSuccessors() {
+    return successors;
+  }
+
+  CsrGraph getPredecessors() {
+    return predecessors;
+  }
+
+  /**
+   * Rang d'une instruction dans l'ordre préfixe du parcours en profondeur
+   */
+  int getPreorder(int index) {
+    return preorder[index];
+  }
+}
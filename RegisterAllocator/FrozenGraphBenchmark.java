@@ -0,0 +1,152 @@
+package RegisterAllocator;
+
+import Asm.Instruction;
+import Asm.Program;
+import Graph.FrozenGraph;
+import Graph.Graph;
+import Graph.OrientedGraph;
+import Graph.UnorientedGraph;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/*
+ * Graphe modifiable (HashMap de listes) contre sa copie figée (Graph.freeze(), format CSR) :
+ * mémoire estimée (pour le graphe d'interférence, y compris les Integer distincts des listes)
+ * et temps d'un parcours en largeur de tout le graphe,
+ * sur des graphes de contrôle (ControlGraphScalingTest) et des graphes d'interférence (AllocatorBenchmark).
+ */
+public class FrozenGraphBenchmark {
+  private static final int[] CFG_SIZES = {10_000, 100_000, 300_000};
+  private static final int[] INTERFERENCE_SIZES = {1_000, 3_000};
+  private static final int RUNS = 7;
+
+  /**
+   * Mémoire des objets Integer (16 o chacun) référencés par les listes d'un graphe :
+   * les registres au-delà de 127 sont boxés à chaque ajout, un objet par arc ou presque
+   * @return octets
+   */
+  static long boxedMemory(UnorientedGraph<Integer> graph) {
+    Set<Integer> boxes = Collections.newSetFromMap(new IdentityHashMap<>());
+    for (Integer u : graph.vertices) {
+      boxes.add(u);
+      boxes.addAll(graph.getNeighbors(u));
+    }
+    return 16L * boxes.size();
+  }
+
+  /**
+   * Parcours en largeur depuis chaque sommet non visité, en suivant les arcs sortants
+   * @return nombre d'arcs parcourus
+   */
+  static <T> long traverse(Graph<T> graph, boolean oriented) {
+    long arcs = 0;
+    HashSet<T> visited = new HashSet<>();
+    ArrayDeque<T> queue = new ArrayDeque<>();
+    for (T root : graph.vertices) {
+      if (!visited.add(root)) continue;
+      queue.add(root);
+      while (!queue.isEmpty()) {
+        T u = queue.poll();
+        ArrayList<T> neighbors = oriented ? ((OrientedGraph<T>) graph).getOutNeighbors(u)
+                : ((UnorientedGraph<T>) graph).getNeighbors(u);
+        for (T v : neighbors) {
+          arcs++;
+          if (visited.add(v)) queue.add(v);
+        }
+      }
+    }
+    return arcs;
+  }
+
+  static <T> long traverse(FrozenGraph<T> graph) {
+    long arcs = 0;
+    int n = graph.getVertexCount();
+    boolean[] visited = new boolean[n];
+    int[] queue = new int[n];
+    for (int root = 0; root < n; root++) {
+      if (visited[root]) continue;
+      visited[root] = true;
+      int head = 0;
+      int tail = 0;
+      queue[tail++] = root;
+      while (head < tail) {
+        int u = queue[head++];
+        for (int k = 0; k < graph.getOutDegree(u); k++) {
+          int v = graph.getOutNeighbor(u, k);
+          arcs++;
+          if (!visited[v]) {
+            visited[v] = true;
+            queue[tail++] = v;
+          }
+        }
+      }
+    }
+    return arcs;
+  }
+
+  private static <T> void run(String name, Graph<T> graph, boolean oriented, long mutableMemory) {
+    long freezeTime = Long.MAX_VALUE;
+    FrozenGraph<T> frozen = null;
+    for (int run = 0; run < RUNS; run++) {
+      long start = System.nanoTime();
+      frozen = graph.freeze();
+      freezeTime = Math.min(freezeTime, System.nanoTime() - start);
+    }
+
+    long mutableTime = Long.MAX_VALUE;
+    long frozenTime = Long.MAX_VALUE;
+    long arcs = 0;
+    for (int run = 0; run < RUNS; run++) {
+      long start = System.nanoTime();
+      arcs = traverse(graph, oriented);
+      mutableTime = Math.min(mutableTime, System.nanoTime() - start);
+
+      start = System.nanoTime();
+      long frozenArcs = traverse(frozen);
+      frozenTime = Math.min(frozenTime, System.nanoTime() - start);
+      if (frozenArcs != arcs) {
+        throw new RuntimeException("Parcours différents : " + arcs + " arcs contre " + frozenArcs);
+      }
+    }
+
+    System.out.printf("%-14s %-9d %-9d %12d %12d %6.2f %10.3f %10.3f %10.3f%n", name, frozen.getVertexCount(), arcs,
+            mutableMemory, frozen.memoryBytes(), (double) frozen.memoryBytes() / mutableMemory,
+            mutableTime / 1e6, frozenTime / 1e6, freezeTime / 1e6);
+  }
+
+  public static void main(String[] args) {
+    System.out.printf("%-14s %-9s %-9s %12s %12s %6s %10s %10s %10s%n", "graphe", "sommets", "arcs",
+            "modif. (o)", "figé (o)", "ratio", "BFS (ms)", "figé (ms)", "freeze (ms)");
+
+    for (int size : CFG_SIZES) {
+      // Graphe de contrôle modifiable, reconstruit à partir du graphe figé de ControlGraph
+      ControlGraph cfg = new ControlGraph(ControlGraphScalingTest.generateProgram(size));
+      FrozenGraph<Instruction> cfgGraph = cfg.getGraph();
+      OrientedGraph<Instruction> graph = new OrientedGraph<>();
+      for (int u = 0; u < cfgGraph.getVertexCount(); u++) {
+        graph.addVertex(cfgGraph.getVertex(u));
+      }
+      for (int u = 0; u < cfgGraph.getVertexCount(); u++) {
+        for (int k = 0; k < cfgGraph.getOutDegree(u); k++) {
+          graph.addEdge(cfgGraph.getVertex(u), cfgGraph.getVertex(cfgGraph.getOutNeighbor(u, k)));
+        }
+      }
+      long memory = 16 + 4L * graph.vertices.size() + graph.getAdjacencyMemory() + graph.getInNeighborsMemory();
+      run("contrôle", graph, true, memory);
+    }
+
+    for (int size : INTERFERENCE_SIZES) {
+      Program p = AllocatorBenchmark.generateProgram(size, size);
+      UnorientedGraph<Integer> graph = ColoringBenchmark.boxedCopy(new CFGAnalysis(new ControlGraph(p)).buildIntInterferenceGraph());
+      // Listes, numéros des sommets (matrice de bits non comprise) et Integer boxés
+      long memory = 16 + 4L * graph.vertices.size() + graph.getAdjacencyMemory() + 48L * graph.vertices.size()
+              + boxedMemory(graph);
+      run("interférence", graph, false, memory);
+    }
+  }
+}
@@ -0,0 +1,108 @@
+package RegisterAllocator;
+
+import Asm.*;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Découpage d'un programme en fonctions.
+ * Une fonction commence sur une instruction dont le label est la cible d'un CALL
+ * et s'étend jusqu'au début de la fonction suivante. Les instructions placées avant
+ * la première fonction (le CALL main / STOP de départ) forment une région sans nom.
+ */
+public class FunctionTable {
+  private final List<Instruction> instructions;
+
+  // Bornes de chaque fonction : [starts[f], ends[f][
+  private final int[] starts;
+  private final int[] ends;
+  private final String[] names;
+
+  // Numéro de la fonction de chaque instruction
+  private final int[] functionOf;
+
+  public FunctionTable(List<Instruction> instructions) {
+    this.instructions = instructions;
+    int n = instructions.size();
+
+    // Les points d'entrée sont les labels appelés par un CALL
+    Set<String> entries = new HashSet<>();
+    for (Instruction i : instructions) {
+      if (i instanceof JumpCall jc && jc.getName().equals("CALL")) {
+        entries.add(jc.getAddress());
+      }
+    }
+
+    ArrayList<Integer> startList = new ArrayList<>();
+    ArrayList<String> nameList = new ArrayList<>();
+    functionOf = new int[n];
+    for (int k = 0; k < n; k++) {
+      String entry = null;
+      for (String label : instructions.get(k).getLabels()) {
+        if (entry == null && entries.contains(label)) entry = label;
+      }
+      if (k == 0 || entry != null) {
+        startList.add(k);
+        nameList.add(entry);
+      }
+      functionOf[k] = startList.size() - 1;
+    }
+
+    int nb = startList.size();
+    starts = new int[nb];
+    ends = new int[nb];
+    names = new String[nb];
+    for (int f = 0; f < nb; f++) {
+      starts[f] = startList.get(f);
+      ends[f] = f + 1 < nb ? startList.get(f + 1) : n;
+      names[f] = nameList.get(f);
+    }
+  }
+
+  public int getFunctionCount() {
+    return starts.length;
+  }
+
+  /**
+   * Indice de la première instruction d'une fonction
+   * @param f numéro de la fonction
+   * @return indice dans le programme
+   */
+  public int getStart(int f) {
+    return starts[f];
+  }
+
+  /**
+   * Indice qui suit la dernière instruction d'une fonction
+   * @param f numéro de la fonction
+   * @return indice (exclu) dans le programme
+   */
+  public int getEnd(int f) {
+    return ends[f];
+  }
+
+  /**
+   * Nom (label d'entrée) d'une fonction
+   * @param f numéro de la fonction
+   * @return le label, ou null pour la région qui précède la première fonction
+   */
+  public String getName(int f) {
+    return names[f];
+  }
+
+  /**
+   * Numéro de la fonction contenant une instruction
+   * @param index indice de l'instruction dans le programme
+   * @return numéro de la fonction
+   */
+  public int getFunctionOf(int index) {
+    return functionOf[index];
+  }
+
+  public List<Instruction> getInstructions() {
+    return instructions;
+  }
+}
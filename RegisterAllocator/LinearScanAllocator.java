@@ -0,0 +1,243 @@
+package RegisterAllocator;
+
+import Asm.*;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Allocation de registres par balayage linéaire (linear scan), plus rapide que la coloration
+ * mais de moins bonne qualité : pensée pour les compilations de mise au point.
+ *
+ * Chaque registre reçoit un intervalle de vie [début, fin] dans la numérotation des instructions
+ * de CFGAnalysis (enveloppe de tous les points où il est vivant, sans trous). Les intervalles
+ * sont parcourus une seule fois par début croissant, avec la liste des intervalles actifs triée
+ * par fin croissante. S'il n'y a plus de couleur libre, on déborde l'intervalle qui finit le plus loin.
+ * Le code de débordement est celui de la coloration (SpillCodeGenerator), puis on recommence.
+ *
+ * Les registres en dessous de firstVirtualRegister (R0 : valeur de retour, R1 : pointeur de pile)
+ * sont réservés : ils ne sont ni colorés ni débordés.
+ */
+public class LinearScanAllocator implements Allocator {
+  private final static boolean DEBUG_MODE = false;
+
+  private final int nbColors;
+  private final int firstVirtualRegister;
+
+  private Program program;
+  private CFGAnalysis analysis;
+  private int[] colors = new int[0];
+
+  // Intervalle de vie de chaque registre (intervalStart = Integer.MAX_VALUE si absent)
+  private int[] intervalStart;
+  private int[] intervalEnd;
+
+  private final SpillCodeGenerator spillCode = new SpillCodeGenerator();
+
+  private int rounds = 0;
+  private int spilledCount = 0;
+
+  // Nombre de copies supprimées par fonction (seulement celles entre registres de même couleur)
+  private final Map<String, Integer> removedMoves = new LinkedHashMap<>();
+
+  /**
+   * Constructeur
+   * @param program le programme (registres virtuels)
+   * @param nbColors nombre de registres physiques disponibles
+   * @param firstVirtualRegister premier registre à allouer (les précédents sont réservés)
+   */
+  public LinearScanAllocator(Program program, int nbColors, int firstVirtualRegister) {
+    this.program = program;
+    this.nbColors = nbColors;
+    this.firstVirtualRegister = firstVirtualRegister;
+  }
+
+  /**
+   * Alloue les registres, en ajoutant du code de débordement tant que nécessaire
+   */
+  @Override
+  public void allocate() {
+    while (true) {
+      rounds++;
+      analysis = new CFGAnalysis(new ControlGraph(program));
+      computeIntervals();
+
+      BitSet spilled = scan();
+      if (DEBUG_MODE) System.out.println("Tour " + rounds + " : " + spilled.cardinality() + " registres débordés");
+
+      if (spilled.isEmpty()) return;
+      if (spilled.intersects(spillCode.getUnspillable())) {
+        throw new RuntimeException("(RegisterAllocator.LinearScanAllocator) Impossible d'allouer les registres avec "
+                + nbColors + " couleurs : trop de registres de débordement vivants simultanément");
+      }
+      spilledCount += spilled.cardinality();
+      program = spillCode.insertSpillCode(program, spilled);
+    }
+  }
+
+  @Override
+  public Program getProgram() {
+    return program;
+  }
+
+  @Override
+  public CFGAnalysis getAnalysis() {
+    return analysis;
+  }
+
+  @Override
+  public int getColor(int reg) {
+    if (reg < firstVirtualRegister || reg >= colors.length) return -1;
+    return colors[reg];
+  }
+
+  @Override
+  public int getColorCount() {
+    int max = -1;
+    for (int c : colors) max = Math.max(max, c);
+    return max + 1;
+  }
+
+  @Override
+  public int getRounds() {
+    return rounds;
+  }
+
+  @Override
+  public int getSpilledCount() {
+    return spilledCount;
+  }
+
+  @Override
+  public Map<String, Integer> getRemovedMoves() {
+    return removedMoves;
+  }
+
+  /**
+   * Calcule l'intervalle de vie de chaque registre à partir de la vivacité des blocs de base :
+   * un registre vivant en entrée (sortie) d'un bloc est vivant sur sa première (dernière) instruction,
+   * et tout registre lu ou écrit par une instruction est vivant sur celle-ci
+   */
+  private void computeIntervals() {
+    List<Instruction> instructions = program.getInstructions();
+    int capacity = CFGAnalysis.maxRegister(instructions) + 1;
+    intervalStart = new int[capacity];
+    intervalEnd = new int[capacity];
+    Arrays.fill(intervalStart, Integer.MAX_VALUE);
+    Arrays.fill(intervalEnd, -1);
+
+    BasicBlockGraph blocks = analysis.getBasicBlocks();
+    for (int b = 0; b < blocks.getBlockCount(); b++) {
+      BitSet liveIn = analysis.getBlockLiveIn(b);
+      for (int r = liveIn.nextSetBit(0); r >= 0; r = liveIn.nextSetBit(r + 1)) {
+        extend(r, blocks.getStart(b));
+      }
+      BitSet liveOut = analysis.getBlockLiveOut(b);
+      for (int r = liveOut.nextSetBit(0); r >= 0; r = liveOut.nextSetBit(r + 1)) {
+        extend(r, blocks.getEnd(b) - 1);
+      }
+    }
+
+    for (int k = 0; k < instructions.size(); k++) {
+      Instruction instr = instructions.get(k);
+      Integer killedReg = CFGAnalysis.kill(instr);
+      if (killedReg != null) extend(killedReg, k);
+      for (Integer reg : CFGAnalysis.gen(instr)) {
+        extend(reg, k);
+      }
+    }
+  }
+
+  private void extend(int reg, int position) {
+    if (position < intervalStart[reg]) intervalStart[reg] = position;
+    if (position > intervalEnd[reg]) intervalEnd[reg] = position;
+  }
+
+  /**
+   * Balayage des intervalles par début croissant
+   * @return les registres à déborder (vide si l'allocation a réussi)
+   */
+  private BitSet scan() {
+    int capacity = intervalStart.length;
+
+    // Tri des registres par début d'intervalle (clé : début sur 32 bits de poids fort, registre ensuite)
+    int count = 0;
+    long[] order = new long[capacity];
+    for (int r = firstVirtualRegister; r < capacity; r++) {
+      if (intervalStart[r] != Integer.MAX_VALUE) {
+        order[count++] = ((long) intervalStart[r] << 32) | r;
+      }
+    }
+    Arrays.sort(order, 0, count);
+
+    colors = new int[capacity];
+    Arrays.fill(colors, -1);
+    BitSet unspillable = spillCode.getUnspillable();
+    BitSet spilled = new BitSet();
+
+    // Couleurs libres (pile) et intervalles actifs triés par fin croissante
+    int[] freeColors = new int[nbColors];
+    int freeCount = nbColors;
+    for (int c = 0; c < nbColors; c++) freeColors[c] = nbColors - 1 - c;
+    int[] active = new int[nbColors];
+    int activeCount = 0;
+
+    for (int k = 0; k < count; k++) {
+      int reg = (int) order[k];
+      int start = intervalStart[reg];
+
+      // Expiration des intervalles terminés avant le début de celui-ci
+      int expired = 0;
+      while (expired < activeCount && intervalEnd[active[expired]] < start) {
+        freeColors[freeCount++] = colors[active[expired]];
+        expired++;
+      }
+      System.arraycopy(active, expired, active, 0, activeCount - expired);
+      activeCount -= expired;
+
+      if (freeCount == 0) {
+        // Plus de couleur : on déborde l'intervalle qui finit le plus loin (parmi ceux que l'on peut déborder)
+        int victim = -1;
+        for (int a = activeCount - 1; a >= 0; a--) {
+          if (!unspillable.get(active[a])) {
+            victim = a;
+            break;
+          }
+        }
+        boolean spillCurrent = !unspillable.get(reg)
+                && (victim == -1 || intervalEnd[active[victim]] <= intervalEnd[reg]);
+        if (spillCurrent) {
+          spilled.set(reg);
+          continue;
+        }
+        if (victim == -1) {
+          // Que des registres de débordement vivants : l'appelant signalera l'échec
+          spilled.set(reg);
+          continue;
+        }
+        int victimReg = active[victim];
+        spilled.set(victimReg);
+        freeColors[freeCount++] = colors[victimReg];
+        colors[victimReg] = -1;
+        System.arraycopy(active, victim + 1, active, victim, activeCount - victim - 1);
+        activeCount--;
+      }
+
+      colors[reg] = freeColors[--freeCount];
+
+      // Insertion dans la liste active, triée par fin croissante
+      int pos = activeCount;
+      while (pos > 0 && intervalEnd[active[pos - 1]] > intervalEnd[reg]) {
+        active[pos] = active[pos - 1];
+        pos--;
+      }
+      active[pos] = reg;
+      activeCount++;
+    }
+    return spilled;
+  }
+
+}
@@ -0,0 +1,141 @@
+package RegisterAllocator;
+
+import Graph.CsrGraph;
+
+/**
+ * Forêt d'imbrication des boucles naturelles du graphe de contrôle intraprocédural (celui de DominatorTree).
+ *
+ * Un arc t -> h est un arc retour si h domine t : h est l'en-tête d'une boucle dont le corps est
+ * l'ensemble des instructions qui atteignent t sans passer par h. Les en-têtes sont traités dans
+ * l'ordre préfixe décroissant du parcours en profondeur, donc les boucles internes avant les boucles
+ * qui les contiennent ; une boucle déjà trouvée est réduite à son en-tête (union-find), si bien que
+ * chaque instruction n'est parcourue qu'une fois par niveau de découverte (algorithme de Tarjan/Havlak).
+ * Un arc qui entre dans une boucle sans passer par son en-tête (graphe irréductible) est ignoré.
+ */
+public class LoopForest {
+  private final int n;
+
+  // En-tête de la boucle la plus interne contenant chaque instruction (-1 hors boucle) ;
+  // pour un en-tête, la boucle qui contient la sienne
+  private final int[] parent;
+  private final boolean[] header;
+  private final int[] depth;
+
+  // Union-find : représentant de la boucle déjà réduite qui contient chaque instruction
+  private final int[] representative;
+
+  public LoopForest(DominatorTree dominators) {
+    CsrGraph successors = dominators.getSuccessors();
+    CsrGraph predecessors = dominators.getPredecessors();
+    this.n = successors.getVertexCount();
+    this.parent = new int[n];
+    this.header = new boolean[n];
+    this.depth = new int[n];
+    this.representative = new int[n];
+    for (int u = 0; u < n; u++) {
+      parent[u] = -1;
+      representative[u] = u;
+    }
+
+    // Instructions par ordre préfixe
+    int[] byPreorder = new int[n];
+    for (int u = 0; u < n; u++) {
+      byPreorder[dominators.getPreorder(u)] = u;
+    }
+
+    int[] worklist = new int[n];
+    int[] inBody = new int[n];
+    int stamp = 0;
+    for (int r = n - 1; r >= 0; r--) {
+      int h = byPreorder[r];
+      stamp++;
+      int size = 0;
+
+      // Sources des arcs retour vers h
+      for (int k = 0; k < predecessors.getDegree(h); k++) {
+        int t = predecessors.getNeighbor(h, k);
+        if (!dominators.dominates(h, t)) continue;
+        header[h] = true;
+        if (t == h) continue;
+        int x = find(t);
+        if (inBody[x] != stamp) {
+          inBody[x] = stamp;
+          worklist[size++] = x;
+        }
+      }
+      if (!header[h]) continue;
+
+      // Corps de la boucle : on remonte depuis les sources, les boucles internes sont réduites à leur en-tête
+      while (size > 0) {
+        int x = worklist[--size];
+        parent[x] = h;
+        representative[x] = h;
+        for (int k = 0; k < predecessors.getDegree(x); k++) {
+          int y = find(predecessors.getNeighbor(x, k));
+          if (y == h || inBody[y] == stamp || !dominators.dominates(h, y)) continue;
+          inBody[y] = stamp;
+          worklist[size++] = y;
+        }
+      }
+    }
+
+    // Profondeurs : un en-tête est traité après l'en-tête qui le contient (ordre préfixe croissant)
+    for (int r = 0; r < n; r++) {
+      int u = byPreorder[r];
+      if (header[u]) depth[u] = parent[u] < 0 ? 1 : depth[parent[u]] + 1;
+    }
+    for (int u = 0; u < n; u++) {
+      if (!header[u]) depth[u] = parent[u] < 0 ? 0 : depth[parent[u]];
+    }
+  }
+
+  /**
+   * Représentant d'une instruction (avec compression de chemin)
+   */
+  private int find(int u) {
+    int root = u;
+    while (representative[root] != root) root = representative[root];
+    while (representative[u] != root) {
+      int next = representative[u];
+      representative[u] = root;
+      u = next;
+    }
+    return root;
+  }
+
+  /**
+   * Nombre de boucles contenant une instruction
+   * @param index indice de l'instruction
+   * @return 0 hors de toute boucle
+   */
+  public int getDepth(int index) {
+    return depth[index];
+  }
+
+  /**
+   * Teste si une instruction est l'en-tête d'une boucle
+   * @param index indice de l'instruction
+   * @return boolean
+   */
+  public boolean isHeader(int index) {
+    return header[index];
+  }
+
+  /**
+   * En-tête de la boucle la plus interne contenant une instruction
+   * @param index indice de l'instruction
+   * @return index lui-même pour un en-tête, -1 hors de toute boucle
+   */
+  public int getHeader(int index) {
+    return header[index] ? index : parent[index];
+  }
+
+  /**
+   * En-tête de la boucle qui contient directement une boucle
+   * @param header indice de l'en-tête
+   * @return indice de l'en-tête englobant, -1 pour une boucle la plus externe
+   */
+  public int getParentLoop(int header) {
+    return parent[header];
+  }
+}
@@ -0,0 +1,111 @@
+package RegisterAllocator;
+
+import Graph.IntUnorientedGraph;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/*
+ * Accélération de la coloration parallèle (Jones-Plassmann) à 1, 2, 4 et 8 threads, comparée à la
+ * coloration gloutonne séquentielle, sur des graphes de plus de 100 000 sommets :
+ * - graphe d'intervalles : interférences d'un long code sans branchement (chaque registre vit de sa
+ *   définition à sa dernière utilisation, une trentaine de registres vivants à la fois) ;
+ * - graphe aléatoire peu dense, sans structure, où les tours sont les plus courts.
+ * (Le graphe d'un tel programme compilé n'est pas construit par CFGAnalysis : la vivacité sur
+ * plusieurs centaines de milliers d'instructions ne tient pas en mémoire.)
+ */
+public class ParallelColoringBenchmark {
+  private static final int[] THREADS = {1, 2, 4, 8};
+  private static final int RUNS = 5;
+  private static final long SEED = 42;
+
+  /**
+   * Graphe d'intervalles : le registre k vit de l'instruction k à l'instruction k + longueur
+   * @param n nombre de registres
+   * @param maxLength longueur maximale d'une durée de vie
+   */
+  static IntUnorientedGraph intervalGraph(int n, int maxLength, long seed) {
+    Random random = new Random(seed);
+    int[] end = new int[n];
+    IntUnorientedGraph graph = new IntUnorientedGraph(n);
+    for (int k = 0; k < n; k++) {
+      end[k] = k + 1 + random.nextInt(maxLength);
+      graph.addVertex(k);
+      for (int j = Math.max(0, k - maxLength); j < k; j++) {
+        if (end[j] > k) graph.addEdge(j, k);
+      }
+    }
+    return graph;
+  }
+
+  /**
+   * Graphe aléatoire à n sommets et environ n * averageDegree / 2 arêtes
+   */
+  static IntUnorientedGraph randomGraph(int n, int averageDegree, long seed) {
+    Random random = new Random(seed);
+    IntUnorientedGraph graph = new IntUnorientedGraph(n);
+    for (int k = 0; k < n; k++) {
+      graph.addVertex(k);
+    }
+    for (long e = 0; e < (long) n * averageDegree / 2; e++) {
+      int u = random.nextInt(n);
+      int v = random.nextInt(n);
+      if (u != v) graph.addEdge(u, v);
+    }
+    return graph;
+  }
+
+  private static int[] colorsOf(IntUnorientedGraph graph) {
+    int[] colors = new int[graph.getVertexCount()];
+    for (int k = 0; k < colors.length; k++) {
+      colors[k] = graph.getColor(graph.getVertex(k));
+    }
+    return colors;
+  }
+
+  private static void run(String name, IntUnorientedGraph graph) {
+    int colorCount = 0;
+    long sequential = Long.MAX_VALUE;
+    for (int run = 0; run < RUNS; run++) {
+      long start = System.nanoTime();
+      colorCount = graph.color();
+      sequential = Math.min(sequential, System.nanoTime() - start);
+    }
+    System.out.printf("%-12s %-8d %-9d %-12s %8d %10.3f %8s%n", name, graph.getVertexCount(), graph.getEdgeCount(),
+            "séquentiel", colorCount, sequential / 1e6, "");
+
+    int[] reference = null;
+    long oneThread = 0;
+    for (int threads : THREADS) {
+      ForkJoinPool pool = new ForkJoinPool(threads);
+      long best = Long.MAX_VALUE;
+      for (int run = 0; run < RUNS; run++) {
+        long start = System.nanoTime();
+        colorCount = graph.colorParallel(SEED, pool);
+        best = Math.min(best, System.nanoTime() - start);
+      }
+      pool.shutdown();
+      ColoringBenchmark.checkColoring(graph);
+
+      // Même graine : même coloration quel que soit le nombre de threads
+      int[] colors = colorsOf(graph);
+      if (reference == null) {
+        reference = colors;
+        oneThread = best;
+      } else if (!Arrays.equals(reference, colors)) {
+        throw new RuntimeException("Coloration différente à " + threads + " threads");
+      }
+      System.out.printf("%-12s %-8d %-9d %-12s %8d %10.3f %8.2f%n", name, graph.getVertexCount(), graph.getEdgeCount(),
+              threads + " thread(s)", colorCount, best / 1e6, (double) oneThread / best);
+    }
+  }
+
+  public static void main(String[] args) {
+    System.out.println("Processeurs disponibles : " + Runtime.getRuntime().availableProcessors());
+    System.out.printf("%-12s %-8s %-9s %-12s %8s %10s %8s%n",
+            "graphe", "sommets", "arêtes", "coloration", "couleurs", "temps (ms)", "accél.");
+    run("intervalles", intervalGraph(200_000, 60, SEED));
+    run("aléatoire", randomGraph(200_000, 16, SEED));
+  }
+}
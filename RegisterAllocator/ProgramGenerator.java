@@ -56,6 +56,16 @@ public class ProgramGenerator {
         // The next token should be the instruction
         tokens.remove(0);
       }
+      // Other labels are aliases : they go to the same instruction
+      while (!tokens.isEmpty() && tokens.get(0).endsWith(":")) {
+        program.addLabel(tokens.get(0).substring(0, tokens.get(0).length() - 1));
+        tokens.remove(0);
+      }
+      if (tokens.isEmpty()) {
+        // Label alone on its line : it goes to the next instruction
+        program.addLabel(label);
+        continue;
+      }
 
       String op = tokens.get(0);
 
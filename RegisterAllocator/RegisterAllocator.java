@@ -1,14 +1,29 @@
 package RegisterAllocator;
 
 import Asm.*;
-import Graph.UnorientedGraph;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.IntUnaryOperator;
 
 public class RegisterAllocator {
+  /**
+   * Méthode d'allocation : coloration de graphe (meilleure qualité)
+   * ou balayage linéaire (compilation plus rapide)
+   */
+  public enum Strategy {
+    GRAPH_COLORING,
+    LINEAR_SCAN
+  }
+
   private final Program program;
+  private final Strategy strategy;
 
   private final static boolean DEBUG_MODE = false;
 
@@ -23,104 +38,269 @@ public class RegisterAllocator {
   // la taille de la mémoire est de 65536 mots
   private static final int DEFAULT_SP_VALUE = 65536;
 
-  private UnorientedGraph<Integer> interferenceGraph;
+  // Nombre de copies supprimées par fonction, sur tout le programme
+  private final Map<String, Integer> removedMoves = new LinkedHashMap<>();
+
+  /**
+   * Partie du programme allouée indépendamment (le programme entier, ou une fonction)
+   * et son résultat
+   */
+  private static final class Region {
+    // Label d'entrée de la fonction (null pour le programme entier ou la région de départ)
+    final String name;
+    final Program program;
+    Allocator allocator;
+    // Instructions du programme alloué (avec le code de débordement), en registres physiques
+    final List<Instruction> renamed = new ArrayList<>();
+
+    Region(String name, Program program) {
+      this.name = name;
+      this.program = program;
+    }
+
+    /**
+     * Registre physique attribué à un registre virtuel
+     * @param reg registre virtuel
+     * @return le registre physique (les registres réservés R0 et R1 sont gardés tels quels)
+     */
+    int physicalRegister(int reg) {
+      if (reg < COLOR_OFFSET) return reg;
+      return allocator.getColor(reg) + COLOR_OFFSET;
+    }
+
+    /**
+     * Registres physiques vivants avant une instruction du programme alloué
+     * @param index indice dans le programme alloué de la région
+     * @return les registres physiques
+     */
+    BitSet liveRegisters(int index) {
+      BitSet live = new BitSet();
+      for (int reg : allocator.getAnalysis().getLiveIn(index)) {
+        live.set(physicalRegister(reg));
+      }
+      return live;
+    }
+  }
 
   public RegisterAllocator(Program program) {
+    this(program, Strategy.GRAPH_COLORING);
+  }
+
+  public RegisterAllocator(Program program, Strategy strategy) {
     this.program = program;
+    this.strategy = strategy;
   }
 
   /**
    * Calcule le graphe de contrôle, les Living Variables, puis le graphe d'interférence
    * dans le but de minimiser le nombre de registres utilisés dans le programme.
+   * L'allocateur (ChaitinBriggsAllocator ou LinearScanAllocator selon la stratégie) ajoute du code
+   * de débordement si les MAX_REGISTERS - COLOR_OFFSET registres disponibles ne suffisent pas.
+   *
+   * Si aucun registre n'est partagé entre deux fonctions (c'est le cas du code de CodeGenerator),
+   * chaque fonction est allouée séparément, en parallèle sur le ForkJoinPool commun : un appel
+   * y est vu comme une instruction qui continue en séquence, et les registres que la fonction
+   * appelée écrase sont sauvegardés autour de l'appel (SaveRestoreGenerator). Les fonctions
+   * sont ensuite recollées dans l'ordre du programme, le résultat ne dépend donc pas de l'ordre
+   * d'exécution. Sinon, le programme est alloué d'un seul tenant.
    * @return le programme minimisé avec un nombre réduit de registres
    */
   public Program minimizeRegisters() {
     // Programme vide qui contiendra les instructions avec les registres renommés
     Program minimizedProg = new Program();
 
-    // Construction du graphe de contrôle
-    ControlGraph cfg = new ControlGraph(program);
-
-    if (DEBUG_MODE) System.out.println(cfg.toDot());
-
-    // Construction du graphe d'interférence
-    CFGAnalysis cfgAnalyzer = new CFGAnalysis(cfg);
-
-    this.interferenceGraph = cfgAnalyzer.buildInterferenceGraph();
+    if (DEBUG_MODE) {
+      ControlGraph cfg = new ControlGraph(program);
+      System.out.println(cfg.toDot());
+      System.out.println("Graphe de contrôle : " + cfg.getGraph().memoryBytes() + " o");
+    }
 
-    int nbColors = this.interferenceGraph.color();
+    // Allocation des registres, avec débordement en mémoire si nécessaire
+    List<Region> regions = splitByFunction();
+    if (regions.size() == 1) {
+      allocate(regions.getFirst());
+    } else {
+      List<ForkJoinTask<Region>> tasks = new ArrayList<>();
+      for (Region region : regions) {
+        tasks.add(ForkJoinPool.commonPool().submit(() -> allocate(region)));
+      }
+      for (ForkJoinTask<Region> task : tasks) {
+        task.join();
+      }
+    }
 
     if (DEBUG_MODE) {
-      System.out.println(nbColors + " colors");
-      for (int i = COLOR_OFFSET; i <= MAX_REGISTERS+COLOR_OFFSET; i++) {
-        if (this.interferenceGraph.getColor(i) == -1) continue;
-        System.out.println("Reg " + i + " -> Color " + this.interferenceGraph.getColor(i));
+      for (Region region : regions) {
+        Allocator allocator = region.allocator;
+        System.out.println("== " + (region.name == null ? Coalescer.START_REGION : region.name));
+        System.out.println("Liveness : " + allocator.getAnalysis().getStats());
+        if (allocator instanceof ChaitinBriggsAllocator coloring) {
+          System.out.println("Interférences : " + coloring.getInterferenceGraph().memoryReport());
+          System.out.println(coloring.getCoalescedCount() + " coalesced moves");
+        }
+        System.out.println(allocator.getColorCount() + " colors, " + allocator.getSpilledCount()
+                + " spilled registers, " + allocator.getRounds() + " rounds");
       }
     }
 
-    // TODO :  Gérer le cas où on n'a pas assez de registres
-
     // Initialisation du pointeur de pile (SP)
     minimizedProg.addInstruction(new Asm.UAL(Asm.UAL.Op.XOR, STACK_POINTER, STACK_POINTER, STACK_POINTER));
     minimizedProg.addInstruction(new Asm.UALi(Asm.UALi.Op.ADD, STACK_POINTER, STACK_POINTER, DEFAULT_SP_VALUE));
 
-    // Calcul des nouvelles instructions avec les registres renommés, et ajout au nouveau programme
-    for (Instruction i : program.getInstructions()) {
-      Instruction newInst = this.renameRegisters(i);
+    // Les régions recollées dans l'ordre, avec pour chaque instruction sa région et son indice dans celle-ci
+    List<Instruction> renamed = new ArrayList<>();
+    List<Integer> regionStarts = new ArrayList<>();
+    for (Region region : regions) {
+      regionStarts.add(renamed.size());
+      renamed.addAll(region.renamed);
+      for (Map.Entry<String, Integer> e : region.allocator.getRemovedMoves().entrySet()) {
+        String name = e.getKey().equals(Coalescer.START_REGION) && region.name != null ? region.name : e.getKey();
+        removedMoves.merge(name, e.getValue(), Integer::sum);
+      }
+    }
+    int[] regionOf = new int[renamed.size()];
+    for (int r = 0; r < regions.size(); r++) {
+      int end = r + 1 < regions.size() ? regionStarts.get(r + 1) : renamed.size();
+      Arrays.fill(regionOf, regionStarts.get(r), end, r);
+    }
 
-      boolean isCall = i instanceof Asm.JumpCall jumpCallInst && jumpCallInst.getName().equals("CALL");
+    // Sauvegarde des registres autour des appels de fonction (seulement ceux que la fonction
+    // appelée écrase, dans des registres libres si possible, sinon sur la pile)
+    SaveRestoreGenerator saveRestore = new SaveRestoreGenerator(renamed,
+            index -> regions.get(regionOf[index]).liveRegisters(index - regionStarts.get(regionOf[index])),
+            program.getParameterCounts(), COLOR_OFFSET, MAX_REGISTERS);
+    minimizedProg.addInstructions(saveRestore.generate());
+    if (DEBUG_MODE) {
+      System.out.println("Clobbers :\n" + saveRestore.getClobbers());
+      System.out.println(saveRestore.getParkedCount() + " parked registers, "
+              + saveRestore.getPushedCount() + " pushed registers");
+    }
 
-      // les registres vivants avant l'appel de fonction
-      Set<Integer> livingRegistersBeforeCall = isCall
-              ? cfgAnalyzer.computeLiveVariables().get(program.getInstructions().indexOf(i)).entry
-              : null;
+    // Les copies entre deux registres de même couleur sont devenues ADDi r r 0
+    minimizedProg = Coalescer.removeSelfMoves(minimizedProg.getInstructions(), removedMoves);
 
-      // On sauvegarde les registres sur la pile avant les appels de fonction
-      if (isCall) minimizedProg.addInstructions(pushRegistersBeforeCall(newInst, livingRegistersBeforeCall));
+    if (DEBUG_MODE)
+      System.out.println("Removed moves: " + this.getRemovedMoves());
 
-      // Ajout de l'instruction renommée avec la coloration des registres
-      minimizedProg.addInstruction(newInst);
+    return minimizedProg;
+  }
 
-      // On restaure les registres depuis la pile après les appels de fonction
-      if (isCall) minimizedProg.addInstructions(popRegistersAfterCall(newInst, livingRegistersBeforeCall));
+  /**
+   * Alloue les registres d'une région, puis renomme ses instructions
+   * @param region la région
+   * @return la même région, complétée
+   */
+  private Region allocate(Region region) {
+    region.allocator = switch (strategy) {
+      case GRAPH_COLORING -> new ChaitinBriggsAllocator(region.program, MAX_REGISTERS - COLOR_OFFSET, COLOR_OFFSET);
+      case LINEAR_SCAN -> new LinearScanAllocator(region.program, MAX_REGISTERS - COLOR_OFFSET, COLOR_OFFSET);
+    };
+    region.allocator.allocate();
+
+    for (Instruction i : region.allocator.getProgram().getInstructions()) {
+      region.renamed.add(mapRegisters(i, region::physicalRegister));
     }
+    return region;
+  }
 
-    return minimizedProg;
+  /**
+   * Découpe le programme en fonctions (FunctionTable) si elles peuvent être allouées séparément :
+   * aucun registre (hors R0 et R1) n'est utilisé par deux fonctions, et aucun saut ne sort d'une fonction.
+   * Les registres de chaque fonction sont renumérotés à partir de COLOR_OFFSET, pour que les structures
+   * indexées par numéro de registre (graphe d'interférence, intervalles) restent à la taille de la fonction.
+   * @return les régions à allouer (le programme entier seul si le découpage est impossible)
+   */
+  private List<Region> splitByFunction() {
+    List<Instruction> instructions = program.getInstructions();
+    FunctionTable functions = new FunctionTable(instructions);
+    List<Region> whole = List.of(new Region(null, program));
+    if (functions.getFunctionCount() < 2) return whole;
+
+    int[] owner = new int[CFGAnalysis.maxRegister(instructions) + 1];
+    Arrays.fill(owner, -1);
+    LabelTable labels = new LabelTable(instructions);
+
+    for (int k = 0; k < instructions.size(); k++) {
+      Instruction instr = instructions.get(k);
+      int f = functions.getFunctionOf(k);
+
+      List<Integer> registers = new ArrayList<>(CFGAnalysis.gen(instr));
+      Integer killedReg = CFGAnalysis.kill(instr);
+      if (killedReg != null) registers.add(killedReg);
+      for (int reg : registers) {
+        if (reg < COLOR_OFFSET) continue;
+        if (owner[reg] == -1) owner[reg] = f;
+        else if (owner[reg] != f) return whole;
+      }
+
+      boolean isJump = instr instanceof CondJump || (instr instanceof JumpCall jc && jc.getName().equals("JMP"));
+      int target = labels.getTarget(k);
+      if (isJump && target >= 0 && functions.getFunctionOf(target) != f) return whole;
+    }
+
+    // Numérotation compacte : les registres d'une fonction ne sont utilisés que par elle
+    int[] compact = new int[owner.length];
+    int[] nextRegister = new int[functions.getFunctionCount()];
+    Arrays.fill(nextRegister, COLOR_OFFSET);
+    for (int reg = COLOR_OFFSET; reg < owner.length; reg++) {
+      if (owner[reg] >= 0) compact[reg] = nextRegister[owner[reg]]++;
+    }
+    IntUnaryOperator renumber = reg -> reg < COLOR_OFFSET ? reg : compact[reg];
+
+    List<Region> regions = new ArrayList<>();
+    for (int f = 0; f < functions.getFunctionCount(); f++) {
+      Program part = new Program();
+      part.addParameterCounts(program);
+      for (int k = functions.getStart(f); k < functions.getEnd(f); k++) {
+        part.addInstruction(mapRegisters(instructions.get(k), renumber));
+      }
+      regions.add(new Region(functions.getName(f), part));
+    }
+    return regions;
   }
 
   /**
-   * Renomme les registres d'une instruction en utilisant les couleurs du graphe d'interférence.
-   * @param instr l'instruction dont les registres doivent être renommés
-   * @return l'instruction avec les registres renommés
+   * Nombre de copies ADDi d s 0 supprimées (par fusion ou parce que d et s ont la même couleur),
+   * par fonction. Disponible après minimizeRegisters().
+   * @return nom de la fonction -> nombre de copies supprimées
    */
-  private Instruction renameRegisters(Instruction instr) {
-    String instLabel = instr.getLabel();
+  public Map<String, Integer> getRemovedMoves() {
+    return removedMoves;
+  }
+
+  /**
+   * Copie d'une instruction dont chaque registre r est remplacé par map(r)
+   * @param instr l'instruction à copier
+   * @param map le renommage des registres
+   * @return la nouvelle instruction (même label)
+   */
+  static Instruction mapRegisters(Instruction instr, IntUnaryOperator map) {
     Instruction retInst;
 
     switch (instr) {
       case UAL ualInst -> {
-        int dest = interferenceGraph.getColor(ualInst.getDest()) + COLOR_OFFSET;
-        int sr1 = interferenceGraph.getColor(ualInst.getSr1()) + COLOR_OFFSET;
-        int sr2 = interferenceGraph.getColor(ualInst.getSr2()) + COLOR_OFFSET;
+        int dest = map.applyAsInt(ualInst.getDest());
+        int sr1 = map.applyAsInt(ualInst.getSr1());
+        int sr2 = map.applyAsInt(ualInst.getSr2());
         retInst = new UAL(UAL.Op.valueOf(ualInst.getName()), dest, sr1, sr2);
       }
       case UALi ualiInst -> {
-        int dest = interferenceGraph.getColor(ualiInst.getDest()) + COLOR_OFFSET;
-        int sr = interferenceGraph.getColor(ualiInst.getSr()) + COLOR_OFFSET;
+        int dest = map.applyAsInt(ualiInst.getDest());
+        int sr = map.applyAsInt(ualiInst.getSr());
         retInst = new UALi(UALi.Op.valueOf(ualiInst.getName()), dest, sr, ualiInst.getImm());
       }
       case Mem memInst -> {
-        int dest = interferenceGraph.getColor(memInst.getDest()) + COLOR_OFFSET;
-        int address = interferenceGraph.getColor(memInst.getAddress()) + COLOR_OFFSET;
+        int dest = map.applyAsInt(memInst.getDest());
+        int address = map.applyAsInt(memInst.getAddress());
         retInst = new Mem(Mem.Op.valueOf(memInst.getName()), dest, address);
       }
       case Asm.IO ioInst -> {
-        int reg = interferenceGraph.getColor(ioInst.getReg()) + COLOR_OFFSET;
+        int reg = map.applyAsInt(ioInst.getReg());
         retInst = new Asm.IO(Asm.IO.Op.valueOf(ioInst.getName()), reg);
       }
       case CondJump condJumpInst -> {
-        int sr1 = interferenceGraph.getColor(condJumpInst.getSr1()) + COLOR_OFFSET;
-        int sr2 = interferenceGraph.getColor(condJumpInst.getSr2()) + COLOR_OFFSET;
+        int sr1 = map.applyAsInt(condJumpInst.getSr1());
+        int sr2 = map.applyAsInt(condJumpInst.getSr2());
         retInst = new CondJump(CondJump.Op.valueOf(condJumpInst.getName()), sr1, sr2, condJumpInst.getAddress());
       }
       case JumpCall jcInst ->
@@ -134,69 +314,8 @@ public class RegisterAllocator {
         throw new RuntimeException("(RegisterAllocator.RegisterAllocator) Instruction type not supported for register renaming: " + instr.getClass().getName());
     }
 
-    retInst.setLabel(instLabel);
+    retInst.copyLabels(instr);
     return retInst;
   }
 
-
-  /**
-   * Sauvegarde les registres vivants avant un appel de fonction
-   * @param instCall L'instruction d'appel de fonction
-   * @param livingRegisters Les registres vivants avant l'appel
-   * @return Le programme contenant les instructions de sauvegarde des registres
-   */
-  private Program pushRegistersBeforeCall(Instruction instCall, Set<Integer> livingRegisters) {
-    Program prog = new Program();
-
-    List<Integer> pushedRegs = new ArrayList<>();
-
-    for (Integer reg : livingRegisters) {
-      // Ne pas sauvegarder le registre du pointeur de pile et le registre de retour
-      if (reg < COLOR_OFFSET) continue;
-
-      // Éviter de sauvegarder plusieurs fois le même registre
-      int color = this.interferenceGraph.getColor(reg);
-      if (pushedRegs.contains(color + COLOR_OFFSET)) continue;
-
-      pushedRegs.add(color + COLOR_OFFSET);
-
-      prog.addInstruction(new Asm.UALi(Asm.UALi.Op.SUB, STACK_POINTER, STACK_POINTER, 1));
-      prog.addInstruction(new Asm.Mem(Asm.Mem.Op.ST, color + COLOR_OFFSET, STACK_POINTER));
-    }
-
-    if (DEBUG_MODE)
-      System.out.println("Pushed registers before call: " + pushedRegs);
-    return prog;
-  }
-
-
-  /**
-   * Restaure les registres vivants après un appel de fonction
-   * @param instCall L'instruction d'appel de fonction
-   * @param livingRegisters Les registres vivants avant l'appel
-   * @return Le programme contenant les instructions de restauration des registres
-   */
-  private Program popRegistersAfterCall(Instruction instCall, Set<Integer> livingRegisters) {
-    Program prog = new Program();
-
-    List<Integer> poppedRegs = new ArrayList<>();
-
-    for (Integer reg : livingRegisters) {
-      // Ne pas sauvegarder le registre du pointeur de pile et le registre de retour
-      if (reg < COLOR_OFFSET) continue;
-
-      // Éviter de sauvegarder plusieurs fois le même registre
-      int color = this.interferenceGraph.getColor(reg);
-      if (poppedRegs.contains(color + COLOR_OFFSET)) continue;
-
-      poppedRegs.add(color + COLOR_OFFSET);
-
-      prog.addInstruction(new Asm.Mem(Asm.Mem.Op.ST, color + COLOR_OFFSET, STACK_POINTER));
-      prog.addInstruction(new Asm.UALi(Asm.UALi.Op.ADD, STACK_POINTER, STACK_POINTER, 1));
-    }
-
-
-    return prog;
-  }
-
 }
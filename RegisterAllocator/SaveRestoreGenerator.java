@@ -0,0 +1,265 @@
+package RegisterAllocator;
+
+import Asm.*;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+/**
+ * Sauvegarde des registres autour des appels de fonction, sur le programme en registres physiques.
+ *
+ * Seuls les registres vivants après l'appel et écrasés par la fonction appelée (ClobberAnalysis)
+ * sont sauvegardés. Le processeur n'a pas d'adressage base + déplacement : une sauvegarde en
+ * mémoire coûte toujours un calcul d'adresse et un accès par registre, qu'on regroupe ou non
+ * l'ajustement de SP. On garde donc d'abord les valeurs dans des registres de parking, libres
+ * pendant l'appel et que la fonction appelée n'écrit pas (ADDi p r 0 avant, ADDi r p 0 après :
+ * deux instructions au lieu de quatre, sans accès mémoire). Les registres restants sont empilés
+ * (SUBi R1 R1 1 / ST r R1) et dépilés dans l'ordre inverse (LD r R1 / ADDi R1 R1 1).
+ *
+ * La sauvegarde est placée avant l'empilement des arguments de l'appel, pour que la fonction
+ * appelée trouve ses paramètres au sommet de la pile ; la restauration suit le CALL. Le nombre
+ * d'arguments d'un appel est le nombre de paramètres de la fonction appelée, donné par CodeGenerator
+ * (Program.getParameterCount).
+ * Un registre de parking est écrit par la fonction qui contient l'appel : les fonctions sont
+ * donc traitées des appelées vers les appelantes, et ce registre est ajouté à leurs registres écrasés.
+ */
+public class SaveRestoreGenerator {
+  private static final int STACK_POINTER = 1;
+
+  private final List<Instruction> instructions;
+  private final IntFunction<BitSet> liveRegisters;
+  private final Map<String, Integer> parameterCounts;
+  private final int firstRegister;
+  private final int nbRegisters;
+
+  private final ClobberAnalysis clobbers;
+  private final CallGraph callGraph;
+
+  // Sauvegarde prévue pour chaque CALL (par indice)
+  private final HashMap<Integer, CallSave> saves = new HashMap<>();
+
+  private int parkedCount = 0;
+  private int pushedCount = 0;
+
+  /**
+   * Sauvegarde prévue autour d'un appel
+   */
+  private static final class CallSave {
+    // Indice de la première instruction de l'appel (premier empilement d'argument, ou le CALL)
+    int start;
+    // Registres gardés dans un registre de parking : parkedFrom[j] -> parkedTo[j]
+    final List<Integer> parkedFrom = new ArrayList<>();
+    final List<Integer> parkedTo = new ArrayList<>();
+    // Registres empilés, dans l'ordre d'empilement
+    final List<Integer> pushed = new ArrayList<>();
+  }
+
+  /**
+   * Constructeur
+   * @param instructions le programme en registres physiques
+   * @param liveRegisters registres physiques vivants avant l'instruction d'indice donné
+   *                      (vivacité du programme avant renommage, mêmes indices d'instructions)
+   * @param parameterCounts nombre de paramètres de chaque fonction (label d'entrée -> nombre)
+   * @param firstRegister premier registre allouable (les précédents ne sont jamais sauvegardés)
+   * @param nbRegisters nombre total de registres physiques
+   */
+  public SaveRestoreGenerator(List<Instruction> instructions, IntFunction<BitSet> liveRegisters,
+                              Map<String, Integer> parameterCounts, int firstRegister, int nbRegisters) {
+    this.instructions = instructions;
+    this.liveRegisters = liveRegisters;
+    this.parameterCounts = parameterCounts;
+    this.firstRegister = firstRegister;
+    this.nbRegisters = nbRegisters;
+    this.clobbers = new ClobberAnalysis(instructions, firstRegister, nbRegisters);
+    this.callGraph = clobbers.getCallGraph();
+
+    // Les appels des fonctions, des appelées vers les appelantes
+    for (List<Integer> component : callGraph.getComponents()) {
+      for (int f : component) {
+        BitSet body = callGraph.getBody(f);
+        for (int k = body.nextSetBit(0); k >= 0; k = body.nextSetBit(k + 1)) {
+          if (!isCall(instructions.get(k))) continue;
+          CallSave save = saves.computeIfAbsent(k, this::planSave);
+          for (int p : save.parkedTo) {
+            clobbers.addClobbered(f, p);
+          }
+        }
+      }
+    }
+
+    // Les appels hors des fonctions (région de départ)
+    for (int k = 0; k < instructions.size(); k++) {
+      if (isCall(instructions.get(k))) saves.computeIfAbsent(k, this::planSave);
+    }
+  }
+
+  private static boolean isCall(Instruction i) {
+    return i instanceof JumpCall jc && jc.getName().equals("CALL");
+  }
+
+  private static boolean hasLabel(Instruction i) {
+    return i.getLabel() != null && !i.getLabel().isEmpty();
+  }
+
+  /**
+   * Choix des registres à sauvegarder autour d'un appel, et de leur emplacement
+   * @param index indice du CALL
+   * @return la sauvegarde prévue
+   */
+  private CallSave planSave(int index) {
+    String callee = ((JumpCall) instructions.get(index)).getAddress();
+    BitSet clobbered = clobbers.getClobbered(callee);
+
+    CallSave save = new CallSave();
+    int argumentsStart = argumentsStart(index, callee);
+    save.start = argumentsStart < 0 ? index : argumentsStart;
+
+    // Registres physiques vivants après l'appel, et occupés pendant l'appel : y compris ceux écrits
+    // entre la sauvegarde et le CALL (rechargements des arguments débordés, par exemple)
+    BitSet liveAfter = index + 1 < instructions.size() ? liveRegisters.apply(index + 1) : new BitSet();
+    BitSet busy = (BitSet) liveRegisters.apply(save.start).clone();
+    busy.or(liveAfter);
+    busy.or(clobbered);
+    for (int k = save.start; k < index; k++) {
+      Integer killedReg = CFGAnalysis.kill(instructions.get(k));
+      if (killedReg != null) busy.set(killedReg);
+    }
+
+    BitSet free = new BitSet();
+    free.set(firstRegister, nbRegisters);
+    free.andNot(busy);
+
+    for (int reg = liveAfter.nextSetBit(firstRegister); reg >= 0; reg = liveAfter.nextSetBit(reg + 1)) {
+      // Inutile de sauvegarder un registre que la fonction appelée n'écrit jamais
+      if (!clobbered.get(reg)) continue;
+
+      int parking = free.nextSetBit(0);
+      if (parking >= 0) {
+        free.clear(parking);
+        save.parkedFrom.add(reg);
+        save.parkedTo.add(parking);
+        parkedCount++;
+      } else {
+        save.pushed.add(reg);
+        pushedCount++;
+      }
+    }
+
+    // Sans le début des arguments, des registres empilés se retrouveraient à la place des paramètres
+    if (!save.pushed.isEmpty() && argumentsStart < 0) {
+      throw new RuntimeException("(RegisterAllocator.SaveRestoreGenerator) Arguments introuvables avant l'appel : "
+              + instructions.get(index));
+    }
+    return save;
+  }
+
+  /**
+   * Début de l'empilement des arguments d'un appel : on remonte depuis le CALL jusqu'au décrément
+   * de SP du premier des getParameterCount(callee) arguments, en ne traversant que du code sans label
+   * ni saut qui ne modifie pas SP autrement (rechargements du code de débordement).
+   * @param index indice du CALL
+   * @param callee label de la fonction appelée
+   * @return l'indice du premier décrément de SP, index s'il n'y a pas d'argument, -1 si introuvable
+   */
+  private int argumentsStart(int index, String callee) {
+    int nbArgs = parameterCounts.getOrDefault(callee, 0);
+    if (nbArgs == 0) return index;
+    if (hasLabel(instructions.get(index))) return -1;
+
+    int k = index - 1;
+    while (k >= 0) {
+      Instruction i = instructions.get(k);
+      Integer killedReg = CFGAnalysis.kill(i);
+      if (isStackDecrement(i)) {
+        if (--nbArgs == 0) return k;
+      } else if (i instanceof JumpCall || i instanceof CondJump || i instanceof Ret || i instanceof Stop
+              || (killedReg != null && killedReg == STACK_POINTER)) {
+        return -1;
+      }
+      if (hasLabel(i)) return -1;
+      k--;
+    }
+    return -1;
+  }
+
+  /**
+   * SP = SP - 1, écrit SUBi R1 R1 1 ou ADDi R1 R1 -1 (CodeGenerator)
+   */
+  private static boolean isStackDecrement(Instruction i) {
+    return i instanceof UALi uali && uali.getDest() == STACK_POINTER && uali.getSr() == STACK_POINTER
+            && ((uali.getName().equals("SUB") && uali.getImm() == 1) || (uali.getName().equals("ADD") && uali.getImm() == -1));
+  }
+
+  /**
+   * Programme avec les sauvegardes et restaurations autour des appels
+   * @return le nouveau programme
+   */
+  public Program generate() {
+    HashMap<Integer, CallSave> byStart = new HashMap<>();
+    for (CallSave save : saves.values()) {
+      byStart.put(save.start, save);
+    }
+
+    Program result = new Program();
+    for (int k = 0; k < instructions.size(); k++) {
+      Instruction instr = instructions.get(k);
+
+      CallSave save = byStart.get(k);
+      if (save != null) {
+        Program saveCode = new Program();
+        for (int j = 0; j < save.parkedFrom.size(); j++) {
+          saveCode.addInstruction(new UALi(UALi.Op.ADD, save.parkedTo.get(j), save.parkedFrom.get(j), 0));
+        }
+        for (int reg : save.pushed) {
+          saveCode.addInstruction(new UALi(UALi.Op.SUB, STACK_POINTER, STACK_POINTER, 1));
+          saveCode.addInstruction(new Mem(Mem.Op.ST, reg, STACK_POINTER));
+        }
+
+        // Le label de la première instruction de l'appel passe sur la première instruction de sauvegarde
+        if (!saveCode.getInstructions().isEmpty() && hasLabel(instr)) {
+          saveCode.getInstructions().getFirst().copyLabels(instr);
+          instr.setLabel("");
+        }
+        result.addInstructions(saveCode);
+      }
+
+      result.addInstruction(instr);
+
+      save = isCall(instr) ? saves.get(k) : null;
+      if (save != null) {
+        for (int j = save.pushed.size() - 1; j >= 0; j--) {
+          result.addInstruction(new Mem(Mem.Op.LD, save.pushed.get(j), STACK_POINTER));
+          result.addInstruction(new UALi(UALi.Op.ADD, STACK_POINTER, STACK_POINTER, 1));
+        }
+        for (int j = 0; j < save.parkedFrom.size(); j++) {
+          result.addInstruction(new UALi(UALi.Op.ADD, save.parkedFrom.get(j), save.parkedTo.get(j), 0));
+        }
+      }
+    }
+    return result;
+  }
+
+  public ClobberAnalysis getClobbers() {
+    return clobbers;
+  }
+
+  /**
+   * Nombre de registres gardés dans un registre de parking, sur tous les appels
+   * @return int
+   */
+  public int getParkedCount() {
+    return parkedCount;
+  }
+
+  /**
+   * Nombre de registres empilés, sur tous les appels
+   * @return int
+   */
+  public int getPushedCount() {
+    return pushedCount;
+  }
+}
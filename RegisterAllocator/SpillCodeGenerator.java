@@ -0,0 +1,478 @@
+package RegisterAllocator;
+
+import Asm.*;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Génération du code de débordement (spill), commune aux allocateurs :
+ * les registres débordés sont gardés dans un cadre de pile propre à chaque fonction.
+ * L'état (registres à ne plus déborder, cadres déjà créés) est conservé d'un tour
+ * d'allocation à l'autre.
+ */
+public class SpillCodeGenerator {
+  private static final int STACK_POINTER = 1;
+
+  // Nombre de registres débordés dont la valeur reste dans un registre temporaire à l'intérieur d'un bloc
+  private static final int MAX_CACHED = 6;
+
+  // Registres créés par le code de débordement : ils ne doivent pas être débordés à leur tour
+  private final BitSet unspillable = new BitSet();
+
+  // Registres temporaires lus par plusieurs instructions : ils peuvent être débordés, et reprennent
+  // alors l'emplacement du registre dont ils contiennent la valeur (absent pour une constante)
+  private final BitSet sharedTemps = new BitSet();
+  private final HashMap<Integer, Integer> sharedSlots = new HashMap<>();
+
+  // Cadre de débordement de chaque fonction (par nom, null pour la région de départ) :
+  // registre fp et nombre d'emplacements, agrandi aux tours suivants plutôt que dupliqué
+  private final HashMap<String, Integer> framePointers = new HashMap<>();
+  private final HashMap<String, Integer> frameSizes = new HashMap<>();
+
+  // Prochain registre virtuel libre, pendant la réécriture
+  private int nextRegister;
+
+  /**
+   * Getter des registres créés par le code de débordement
+   * @return les registres à ne pas déborder
+   */
+  public BitSet getUnspillable() {
+    return unspillable;
+  }
+
+  /**
+   * Registres créés par le code de débordement, débordables ou non : ils ne doivent pas être
+   * fusionnés avec d'autres registres (Coalescer)
+   * @return un nouvel ensemble
+   */
+  public BitSet getSpillTemps() {
+    BitSet temps = (BitSet) unspillable.clone();
+    temps.or(sharedTemps);
+    return temps;
+  }
+
+  /**
+   * Réécrit le programme en gardant les registres débordés en mémoire.
+   * Chaque fonction qui en contient reçoit un cadre de pile réservé (SUBi R1 R1 n) après le chargement
+   * de ses paramètres (Program.getParameterCount), dont l'adresse est gardée dans un registre fp
+   * (ADDi fp R1 0) et qui est libéré avant chaque RET (ADDi R1 fp n).
+   * La lecture d'un registre débordé le charge dans un nouveau registre t (ADDi t fp slot / LD t t),
+   * une écriture se fait dans un nouveau registre t suivi de ADDi a fp slot / ST t a. Dans les deux cas,
+   * les lectures suivantes du même bloc réutilisent t (au plus MAX_CACHED registres à la fois).
+   * Une instruction qui ne lit pas le registre (XOR r r r) ne le charge pas.
+   * Un registre débordé qui n'est qu'une constante (XOR r r r, suivi ou non de ADDi r r c)
+   * n'a pas d'emplacement : ses définitions disparaissent et la constante est recalculée à la lecture.
+   * Un registre t réutilisé peut être débordé au tour suivant : il reprend l'emplacement de son
+   * registre, ses chargements et sauvegardes disparaissent, et il n'est plus réutilisé.
+   * Si la fonction a déjà un cadre (tour précédent), il est agrandi : ses instructions de
+   * réservation et de libération sont réécrites avec la nouvelle taille.
+   * @param program le programme (registres virtuels)
+   * @param spilled les registres à déborder
+   * @return le nouveau programme
+   */
+  public Program insertSpillCode(Program program, BitSet spilled) {
+    List<Instruction> instructions = program.getInstructions();
+    FunctionTable functions = new FunctionTable(instructions);
+    nextRegister = CFGAnalysis.maxRegister(instructions) + 1;
+
+    // Labels visés par un saut et jamais par un CALL
+    Set<String> loopTargets = new HashSet<>();
+    for (Instruction instr : instructions) {
+      if (instr instanceof CondJump cj) loopTargets.add(cj.getAddress());
+      if (instr instanceof JumpCall jc && jc.getName().equals("JMP")) loopTargets.add(jc.getAddress());
+    }
+    for (Instruction instr : instructions) {
+      if (instr instanceof JumpCall jc && jc.getName().equals("CALL")) loopTargets.remove(jc.getAddress());
+    }
+
+    Program result = new Program();
+    result.addParameterCounts(program);
+    for (int f = 0; f < functions.getFunctionCount(); f++) {
+      int start = functions.getStart(f);
+      int end = functions.getEnd(f);
+
+      String name = functions.getName(f);
+      int oldSize = frameSizes.getOrDefault(name, 0);
+      boolean hasFrame = framePointers.containsKey(name);
+      int fp = hasFrame ? framePointers.get(name) : -1;
+
+      // Définitions de chaque registre débordé de la fonction
+      HashMap<Integer, List<Integer>> definitions = new HashMap<>();
+      for (int k = start; k < end; k++) {
+        Instruction instr = instructions.get(k);
+        Integer killedReg = CFGAnalysis.kill(instr);
+        if (killedReg != null && spilled.get(killedReg)) {
+          definitions.computeIfAbsent(killedReg, reg -> new ArrayList<>()).add(k);
+        }
+        for (Integer reg : CFGAnalysis.gen(instr)) {
+          if (spilled.get(reg)) definitions.computeIfAbsent(reg, r -> new ArrayList<>());
+        }
+      }
+
+      if (definitions.isEmpty()) {
+        for (int k = start; k < end; k++) {
+          result.addInstruction(instructions.get(k));
+        }
+        continue;
+      }
+
+      // Constantes, emplacements des registres débordés (à la suite des anciens, sauf pour un registre
+      // temporaire qui reprend le sien) et instructions supprimées
+      HashMap<Integer, Integer> constants = new HashMap<>();
+      HashMap<Integer, Integer> slots = new HashMap<>();
+      BitSet removed = new BitSet();
+      int frameSize = oldSize;
+      for (int reg : definitions.keySet().stream().sorted().toList()) {
+        List<Integer> defs = definitions.get(reg);
+        Integer value = constantValue(instructions, defs);
+        if (value != null) {
+          constants.put(reg, value);
+          for (int k : defs) {
+            removed.set(k);
+          }
+        } else if (sharedSlots.containsKey(reg) && hasFrame) {
+          slots.put(reg, sharedSlots.get(reg));
+          removeSlotCode(instructions, start, end, reg, fp, sharedSlots.get(reg), removed);
+        } else {
+          slots.put(reg, frameSize++);
+        }
+      }
+
+      boolean needFrame = hasFrame || frameSize > oldSize;
+      if (needFrame && !hasFrame) fp = nextRegister++;
+      if (needFrame) {
+        unspillable.set(fp);
+        framePointers.put(name, fp);
+        frameSizes.put(name, frameSize);
+      }
+
+      // Fin du chargement des paramètres (LD p R1 / ADDi R1 R1 1 pour chacun)
+      int prologueEnd = parametersEnd(instructions, start, end, parameterCount(program, instructions.get(start)));
+
+      // Sauvegardes des paramètres débordés : fp n'est défini qu'après la réservation du cadre
+      List<Instruction> parameterStores = new ArrayList<>();
+      int parameterStoresAt = hasFrame ? prologueEnd + 1 : prologueEnd;
+
+      FunctionSpill spill = new FunctionSpill(fp, slots, constants);
+      for (int k = start; k < end; k++) {
+        Instruction instr = instructions.get(k);
+        List<Instruction> before = new ArrayList<>();
+        List<Instruction> after = new ArrayList<>();
+        spill.current = k;
+
+        // Agrandissement d'un cadre existant
+        if (hasFrame && isFrameReservation(instructions, k, fp)) {
+          instr = new UALi(UALi.Op.SUB, STACK_POINTER, STACK_POINTER, frameSize);
+          instr.copyLabels(instructions.get(k));
+        }
+        if (hasFrame && isFrameRelease(instr, fp)) {
+          instr = new UALi(UALi.Op.ADD, STACK_POINTER, fp, frameSize);
+          instr.copyLabels(instructions.get(k));
+        }
+
+        // Réservation du cadre : elle ne prend le label de l'instruction qu'en début de fonction
+        // (après les paramètres, le label peut être la cible d'une boucle qui ne doit pas la refaire)
+        boolean frameAtEntry = false;
+        if (needFrame && !hasFrame && k == prologueEnd) {
+          List<Instruction> frame = k == start ? before : new ArrayList<>();
+          frame.add(new UALi(UALi.Op.SUB, STACK_POINTER, STACK_POINTER, frameSize));
+          frame.add(new UALi(UALi.Op.ADD, fp, STACK_POINTER, 0));
+          if (k != start) {
+            for (Instruction e : frame) {
+              result.addInstruction(e);
+            }
+          }
+          frameAtEntry = k == start;
+        }
+        if (!hasFrame && k == parameterStoresAt) {
+          for (Instruction e : parameterStores) {
+            result.addInstruction(e);
+          }
+        }
+
+        // Un label commence un nouveau bloc : les valeurs gardées ne sont plus sûres
+        if (k > start && !instr.getLabels().isEmpty()) spill.clear();
+
+        Instruction rewritten = null;
+        if (!removed.get(k)) {
+          // Une remise à zéro ne lit pas ses sources : XOR d s s devient XOR d d d
+          if (instr instanceof UAL ual && CFGAnalysis.isZeroing(ual) && spilled.get(ual.getSr1())) {
+            Instruction zero = new UAL(UAL.Op.XOR, ual.getDest(), ual.getDest(), ual.getDest());
+            zero.copyLabels(instr);
+            instr = zero;
+          }
+
+          // Registre temporaire de chaque registre débordé lu, puis de celui écrit (le même s'il est aussi lu)
+          HashMap<Integer, Integer> temps = new HashMap<>();
+          for (Integer reg : CFGAnalysis.gen(instr)) {
+            if (spilled.get(reg)) temps.put(reg, spill.read(reg, before));
+          }
+          Integer killedReg = CFGAnalysis.kill(instr);
+          if (killedReg != null && spilled.get(killedReg)) {
+            temps.put(killedReg, spill.write(killedReg, temps.get(killedReg), after));
+          }
+
+          // Libération du cadre avant le retour
+          if (needFrame && !hasFrame && instr instanceof Ret) {
+            before.add(new UALi(UALi.Op.ADD, STACK_POINTER, fp, frameSize));
+          }
+
+          // L'instruction est copiée (jamais modifiée) si ses registres ou son label changent
+          rewritten = instr;
+          if (!temps.isEmpty() || !before.isEmpty()) {
+            rewritten = RegisterAllocator.mapRegisters(instr, reg -> temps.getOrDefault(reg, reg));
+            rewritten.setLabel("");
+          }
+        }
+
+        // Les labels passent sur la première instruction insérée avant elle, ou sur la suivante si
+        // elle est supprimée. En début de fonction, les labels visés par un saut (début d'une boucle,
+        // alias du nom de la fonction) passent après la réservation du cadre.
+        List<Instruction> emitted = new ArrayList<>(before);
+        if (rewritten != null) emitted.add(rewritten);
+        List<Instruction> entry = frameAtEntry ? emitted.subList(0, 2) : emitted;
+        List<Instruction> loopEntry = frameAtEntry ? emitted.subList(2, emitted.size()) : emitted;
+        for (String label : instr.getLabels()) {
+          List<Instruction> target = loopTargets.contains(label) ? loopEntry : entry;
+          if (target.isEmpty()) {
+            result.addLabel(label);
+          } else {
+            target.getFirst().addLabel(label);
+          }
+        }
+        for (Instruction e : emitted) {
+          result.addInstruction(e);
+        }
+
+        // Après un saut, un retour ou un appel, les valeurs gardées ne sont plus sûres
+        // (après un branchement conditionnel, elles le restent pour le bloc qui suit)
+        if (instr instanceof JumpCall || instr instanceof Ret || instr instanceof Stop) spill.clear();
+
+        if (k < prologueEnd) {
+          parameterStores.addAll(after);
+          continue;
+        }
+        for (Instruction e : after) {
+          result.addInstruction(e);
+        }
+        if (hasFrame && k == parameterStoresAt) {
+          for (Instruction e : parameterStores) {
+            result.addInstruction(e);
+          }
+        }
+      }
+      spill.classifyTemps();
+    }
+    return result;
+  }
+
+  /**
+   * Valeur d'un registre dont les seules définitions sont une constante de CodeGenerator
+   * (XOR r r r, suivi ou non de ADDi r r c sans label)
+   * @param instructions les instructions
+   * @param defs indices des définitions du registre, dans l'ordre
+   * @return la constante, null si le registre n'en est pas une
+   */
+  private static Integer constantValue(List<Instruction> instructions, List<Integer> defs) {
+    if (defs.isEmpty() || defs.size() > 2) return null;
+    int k = defs.getFirst();
+    if (!(instructions.get(k) instanceof UAL zero) || !CFGAnalysis.isZeroing(zero)) return null;
+    if (defs.size() == 1) return 0;
+
+    int reg = zero.getDest();
+    if (defs.get(1) == k + 1 && instructions.get(k + 1) instanceof UALi add && add.getName().equals("ADD")
+            && add.getDest() == reg && add.getSr() == reg && add.getLabels().isEmpty()) {
+      return add.getImm();
+    }
+    return null;
+  }
+
+  /**
+   * Supprime les chargements (ADDi t fp slot / LD t t) et les sauvegardes (ADDi a fp slot / ST t a)
+   * d'un registre temporaire qui reprend l'emplacement de son registre : il en a toujours la valeur
+   */
+  private static void removeSlotCode(List<Instruction> instructions, int start, int end, int temp, int fp, int slot,
+                                     BitSet removed) {
+    for (int k = start + 1; k < end; k++) {
+      if (instructions.get(k) instanceof Mem mem && isSlotAddress(instructions.get(k - 1), mem.getAddress(), fp, slot)
+              && (mem.getName().equals("LD") ? mem.getDest() == temp && mem.getAddress() == temp : mem.getDest() == temp)) {
+        removed.set(k - 1, k + 1);
+      }
+    }
+  }
+
+  /**
+   * Indique si l'instruction est ADDi reg fp slot
+   */
+  private static boolean isSlotAddress(Instruction i, int reg, int fp, int slot) {
+    return i instanceof UALi address && address.getName().equals("ADD") && address.getDest() == reg
+            && address.getSr() == fp && address.getImm() == slot;
+  }
+
+  /**
+   * Registres débordés d'une fonction pendant sa réécriture : emplacement dans le cadre ou constante,
+   * et registres temporaires qui contiennent déjà leur valeur dans le bloc courant
+   */
+  private final class FunctionSpill {
+    private final int fp;
+    private final Map<Integer, Integer> slots;
+    private final Map<Integer, Integer> constants;
+
+    // Registre débordé -> registre temporaire, du moins au plus récemment utilisé
+    private final LinkedHashMap<Integer, Integer> cache = new LinkedHashMap<>(16, 0.75f, true);
+
+    // Indice de l'instruction réécrite ; pour chaque temporaire, celui de l'instruction qui l'a
+    // créé et son registre débordé (absent pour les adresses)
+    int current;
+    private final HashMap<Integer, Integer> createdAt = new HashMap<>();
+    private final HashMap<Integer, Integer> origins = new HashMap<>();
+    private final BitSet shared = new BitSet();
+
+    FunctionSpill(int fp, Map<Integer, Integer> slots, Map<Integer, Integer> constants) {
+      this.fp = fp;
+      this.slots = slots;
+      this.constants = constants;
+    }
+
+    /**
+     * Registre temporaire qui contient la valeur d'un registre débordé, chargé si besoin
+     * @param reg registre débordé
+     * @param code instructions où ajouter le chargement
+     * @return le registre temporaire
+     */
+    int read(int reg, List<Instruction> code) {
+      Integer t = cache.get(reg);
+      if (t != null) {
+        if (createdAt.get(t) != current) shared.set(t);
+        return t;
+      }
+
+      t = newTemp(reg);
+      Integer value = constants.get(reg);
+      if (value != null) {
+        code.add(new UAL(UAL.Op.XOR, t, t, t));
+        if (value != 0) code.add(new UALi(UALi.Op.ADD, t, t, value));
+      } else {
+        code.add(new UALi(UALi.Op.ADD, t, fp, slots.get(reg)));
+        code.add(new Mem(Mem.Op.LD, t, t));
+      }
+      keep(reg, t);
+      return t;
+    }
+
+    /**
+     * Registre temporaire où écrire un registre débordé, sauvegardé juste après l'instruction
+     * @param reg registre débordé
+     * @param read temporaire déjà utilisé par l'instruction pour le lire, ou null
+     * @param code instructions où ajouter la sauvegarde
+     * @return le registre temporaire
+     */
+    int write(int reg, Integer read, List<Instruction> code) {
+      int t = read != null ? read : newTemp(reg);
+      int address = newTemp(null);
+      code.add(new UALi(UALi.Op.ADD, address, fp, slots.get(reg)));
+      code.add(new Mem(Mem.Op.ST, t, address));
+      keep(reg, t);
+      return t;
+    }
+
+    void clear() {
+      cache.clear();
+    }
+
+    /**
+     * Classe les temporaires créés pour la fonction : ceux qui ne servent qu'à une instruction ne
+     * seront jamais débordés, les autres pourront l'être (en reprenant l'emplacement de leur registre)
+     */
+    void classifyTemps() {
+      for (int t : createdAt.keySet()) {
+        if (!shared.get(t)) {
+          unspillable.set(t);
+          continue;
+        }
+        sharedTemps.set(t);
+        Integer slot = slots.get(origins.get(t));
+        if (slot != null) sharedSlots.put(t, slot);
+      }
+    }
+
+    // Un temporaire déjà débordé n'est plus réutilisé ; au-delà de MAX_CACHED, le plus ancien est oublié
+    private void keep(int reg, int t) {
+      if (sharedTemps.get(reg)) return;
+      cache.put(reg, t);
+      if (cache.size() > MAX_CACHED) cache.remove(cache.keySet().iterator().next());
+    }
+
+    private int newTemp(Integer reg) {
+      int t = nextRegister++;
+      createdAt.put(t, current);
+      if (reg != null) origins.put(t, reg);
+      return t;
+    }
+  }
+
+  /**
+   * Indique si l'instruction k est la réservation du cadre de pointeur fp (SUBi R1 R1 n suivi de ADDi fp R1 0)
+   */
+  private static boolean isFrameReservation(List<Instruction> instructions, int k, int fp) {
+    if (k + 1 >= instructions.size()) return false;
+    return instructions.get(k) instanceof UALi reserve && reserve.getName().equals("SUB")
+            && reserve.getDest() == STACK_POINTER && reserve.getSr() == STACK_POINTER
+            && instructions.get(k + 1) instanceof UALi copy && copy.getName().equals("ADD")
+            && copy.getDest() == fp && copy.getSr() == STACK_POINTER && copy.getImm() == 0;
+  }
+
+  /**
+   * Indique si l'instruction est la libération du cadre de pointeur fp (ADDi R1 fp n)
+   */
+  private static boolean isFrameRelease(Instruction i, int fp) {
+    return i instanceof UALi release && release.getName().equals("ADD")
+            && release.getDest() == STACK_POINTER && release.getSr() == fp;
+  }
+
+  /**
+   * Nombre de paramètres de la fonction qui commence par une instruction (Program.getParameterCount
+   * de celui de ses labels qui est le nom d'une fonction, 0 sinon)
+   */
+  private static int parameterCount(Program program, Instruction entry) {
+    for (String label : entry.getLabels()) {
+      if (program.getParameterCounts().containsKey(label)) return program.getParameterCount(label);
+    }
+    return 0;
+  }
+
+  /**
+   * Indice qui suit le dépilement (ADDi R1 R1 1) du dernier paramètre d'une fonction,
+   * dans le code sans label ni saut de son début
+   * @param instructions les instructions
+   * @param start indice de la première instruction de la fonction
+   * @param end indice (exclu) de sa fin
+   * @param nbParameters nombre de paramètres de la fonction
+   * @return l'indice, start si la fonction n'a pas de paramètre
+   */
+  private static int parametersEnd(List<Instruction> instructions, int start, int end, int nbParameters) {
+    int k = start;
+    for (int popped = 0; popped < nbParameters; k++) {
+      if (k >= end || (k > start && !instructions.get(k).getLabels().isEmpty())
+              || instructions.get(k) instanceof JumpCall || instructions.get(k) instanceof CondJump) {
+        throw new RuntimeException("(RegisterAllocator.SpillCodeGenerator) Paramètres introuvables au début de "
+                + instructions.get(start).getLabels());
+      }
+      if (isStackPop(instructions.get(k))) popped++;
+    }
+    return k;
+  }
+
+  private static boolean isStackPop(Instruction i) {
+    return i instanceof UALi uali && uali.getName().equals("ADD") && uali.getDest() == STACK_POINTER
+            && uali.getSr() == STACK_POINTER && uali.getImm() == 1;
+  }
+
+}
@@ -0,0 +1,236 @@
+package RegisterAllocator;
+
+import Asm.*;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/*
+ * Test de l'allocation avec débordement : le programme garde plus de registres vivants
+ * qu'il n'y a de registres physiques, dans main comme dans la fonction appelée.
+ * Les programmes alloués sont exécutés (run) et leurs affichages comparés à ceux attendus.
+ */
+public class SpillTest {
+  private static final int NB_VALUES = 40;
+
+  /**
+   * main initialise NB_VALUES valeurs, appelle F dans une boucle puis affiche leur somme ;
+   * F garde elle aussi NB_VALUES valeurs vivantes avant de les additionner dans R0
+   * @param n nombre de valeurs
+   * @return le programme généré
+   */
+  static Program generateProgram(int n) {
+    List<String> lines = new ArrayList<>();
+    lines.add("main: XOR R0 R0 R0");
+    lines.add("XOR R2 R2 R2");
+    for (int k = 0; k < n; k++) {
+      lines.add("ADDi R" + (10 + k) + " R2 " + (k + 1));
+    }
+    lines.add("ADDi R3 R2 0");
+    lines.add("ADDi R4 R2 3");
+    lines.add("LOOP: JSEQ R3 R4 END");
+    lines.add("CALL F");
+    lines.add("ADDi R3 R3 1");
+    lines.add("JMP LOOP");
+    lines.add("END: ADD R5 R2 R2");
+    for (int k = 0; k < n; k++) {
+      lines.add("ADD R5 R5 R" + (10 + k));
+    }
+    lines.add("PRINT R5");
+    lines.add("PRINT R0");
+    lines.add("STOP");
+
+    lines.add("F: XOR R6 R6 R6");
+    for (int k = 0; k < n; k++) {
+      lines.add("ADDi R" + (200 + k) + " R6 " + k);
+    }
+    for (int k = 0; k < n; k++) {
+      lines.add("ADD R6 R6 R" + (200 + k));
+    }
+    lines.add("ADD R0 R0 R6");
+    lines.add("RET");
+    return ProgramGenerator.compile(lines.toArray(new String[0]));
+  }
+
+  /**
+   * n constantes sous la forme produite par CodeGenerator (XOR r r r / ADDi r r c), toutes vivantes
+   * avant d'être additionnées : les registres débordés sont recalculés, sans emplacement en mémoire
+   * @param n nombre de valeurs
+   * @return le programme généré
+   */
+  static Program generateConstantProgram(int n) {
+    List<String> lines = new ArrayList<>();
+    lines.add("main: XOR R5 R5 R5");
+    for (int k = 0; k < n; k++) {
+      lines.add("XOR R" + (10 + k) + " R" + (10 + k) + " R" + (10 + k));
+      lines.add("ADDi R" + (10 + k) + " R" + (10 + k) + " " + (k + 1));
+    }
+    for (int k = 0; k < n; k++) {
+      lines.add("ADD R5 R5 R" + (10 + k));
+    }
+    lines.add("PRINT R5");
+    lines.add("STOP");
+    return ProgramGenerator.compile(lines.toArray(new String[0]));
+  }
+
+  /**
+   * Appel avec argument après une zone où n valeurs sont vivantes, sous la forme produite par CodeGenerator :
+   * a, défini avant les n valeurs et lu seulement par l'empilement (ADDi R1 R1 -1 / ST a R1), est débordé.
+   * main appelle G(a) = (a * a + a) * a + a * a, qui écrit trois registres, puis affiche son résultat et
+   * trois valeurs gardées dans des registres pendant l'appel. Le rechargement de a, entre la sauvegarde
+   * des registres et le CALL, ne doit pas écraser un registre de parking.
+   * @param n nombre de valeurs
+   * @return le programme généré
+   */
+  static Program generateCallProgram(int n) {
+    List<String> lines = new ArrayList<>();
+    lines.add("CALL main");
+    lines.add("STOP");
+    lines.add("main: XOR R2 R2 R2");
+    lines.add("ADDi R8 R2 3");
+    for (int k = 0; k < n; k++) {
+      lines.add("ADDi R" + (10 + k) + " R2 " + (k + 1));
+    }
+    lines.add("ADD R5 R2 R2");
+    for (int k = 0; k < n; k++) {
+      lines.add("ADD R5 R5 R" + (10 + k));
+    }
+    lines.add("ADDi R6 R5 1");
+    lines.add("ADDi R7 R5 2");
+    lines.add("ADDi R1 R1 -1");
+    lines.add("ST R8 R1");
+    lines.add("CALL G");
+    lines.add("ADDi R3 R0 0");
+    lines.add("PRINT R3");
+    lines.add("PRINT R5");
+    lines.add("PRINT R6");
+    lines.add("PRINT R7");
+    lines.add("ADDi R0 R5 0");
+    lines.add("RET");
+
+    lines.add("G: LD R300 R1");
+    lines.add("ADDi R1 R1 1");
+    lines.add("MUL R301 R300 R300");
+    lines.add("ADD R302 R301 R300");
+    lines.add("MUL R303 R302 R300");
+    lines.add("ADD R0 R303 R301");
+    lines.add("RET");
+    Program program = ProgramGenerator.compile(lines.toArray(new String[0]));
+    program.setParameterCount("G", 1);
+    return program;
+  }
+
+  /**
+   * Exécute un programme comme le simulateur (simproc.py) : pile de retour séparée pour CALL / RET
+   * @param program programme en registres physiques
+   * @return les valeurs affichées par PRINT
+   */
+  static List<Long> run(Program program) {
+    List<Instruction> instructions = program.getInstructions();
+    LabelTable labels = new LabelTable(instructions);
+    long[] reg = new long[32];
+    HashMap<Long, Long> memory = new HashMap<>();
+    ArrayDeque<Integer> returns = new ArrayDeque<>();
+    List<Long> printed = new ArrayList<>();
+
+    int co = 0;
+    for (int cycles = 0; cycles < 1_000_000; cycles++) {
+      Instruction i = instructions.get(co);
+      int next = co + 1;
+      switch (i) {
+        case UAL u -> reg[u.getDest()] = compute(u.getName(), reg[u.getSr1()], reg[u.getSr2()]);
+        case UALi u -> reg[u.getDest()] = compute(u.getName(), reg[u.getSr()], u.getImm());
+        case Mem m when m.getName().equals("LD") -> reg[m.getDest()] = memory.getOrDefault(reg[m.getAddress()], 0L);
+        case Mem m -> memory.put(reg[m.getAddress()], reg[m.getDest()]);
+        case IO io -> printed.add(reg[io.getReg()]);
+        case CondJump cj -> {
+          long a = reg[cj.getSr1()];
+          long b = reg[cj.getSr2()];
+          boolean taken = switch (cj.getName()) {
+            case "JEQU" -> a == b;
+            case "JNEQ" -> a != b;
+            case "JSUP" -> a > b;
+            case "JINF" -> a < b;
+            case "JIEQ" -> a <= b;
+            default -> a >= b;
+          };
+          if (taken) next = labels.getTarget(co);
+        }
+        case JumpCall jc -> {
+          if (jc.getName().equals("CALL")) returns.push(next);
+          next = labels.getTarget(co);
+        }
+        case Ret _ -> next = returns.pop();
+        case Stop _ -> {
+          return printed;
+        }
+        default -> throw new RuntimeException("Instruction inconnue : " + i);
+      }
+      co = next;
+    }
+    throw new RuntimeException("Le programme ne s'arrête pas");
+  }
+
+  private static long compute(String op, long a, long b) {
+    return switch (op) {
+      case "ADD" -> a + b;
+      case "SUB" -> a - b;
+      case "MUL" -> a * b;
+      case "DIV" -> a / b;
+      case "MOD" -> a % b;
+      case "XOR" -> a ^ b;
+      case "AND" -> a & b;
+      case "OR" -> a | b;
+      case "SL" -> a << b;
+      default -> a >> b;
+    };
+  }
+
+  /**
+   * Alloue un programme, vérifie qu'il n'utilise que des registres physiques et compare ses affichages
+   * @param name nom du cas
+   * @param p programme en registres virtuels
+   * @param expected affichages attendus
+   * @return le programme alloué
+   */
+  private static Program check(String name, Program p, List<Long> expected) {
+    int before = p.getInstructions().size();
+    Program allocated = new RegisterAllocator(p).minimizeRegisters();
+
+    // Tous les registres du programme alloué doivent être des registres physiques
+    for (Instruction i : allocated.getInstructions()) {
+      Integer killedReg = CFGAnalysis.kill(i);
+      if (killedReg != null && killedReg >= 32) {
+        throw new RuntimeException(name + " : registre non alloué : " + i);
+      }
+      for (Integer reg : CFGAnalysis.gen(i)) {
+        if (reg >= 32) throw new RuntimeException(name + " : registre non alloué : " + i);
+      }
+    }
+
+    System.out.println("=== " + name + " ===");
+    System.out.println(allocated);
+    System.out.println(before + " -> " + allocated.getInstructions().size() + " instructions");
+
+    List<Long> printed = run(allocated);
+    if (!printed.equals(expected)) {
+      throw new RuntimeException(name + " : affichage " + printed + ", attendu " + expected);
+    }
+    return allocated;
+  }
+
+  public static void main(String[] args) {
+    long sum = (long) NB_VALUES * (NB_VALUES + 1) / 2;
+    long fSum = (long) NB_VALUES * (NB_VALUES - 1) / 2;
+    check("boucle", generateProgram(NB_VALUES), List.of(sum, 3 * fSum));
+    check("arguments", generateCallProgram(NB_VALUES), List.of((3L * 3 + 3) * 3 + 3 * 3, sum, sum + 1, sum + 2));
+
+    Program constants = check("constantes", generateConstantProgram(NB_VALUES), List.of(sum));
+    for (Instruction i : constants.getInstructions()) {
+      if (i instanceof Mem) throw new RuntimeException("constantes : accès mémoire pour une constante : " + i);
+    }
+    System.out.println("OK");
+  }
+}
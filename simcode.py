@@ -143,13 +143,24 @@ for i in range(len(MEM_INST)):
     inst = MEM_INST[i].split()
     if len(inst)!=0:
         if inst[0][0]!='#':
-            if inst[0][-1:] == ':':
-                PROG.append(inst[1:])
+            # plusieurs labels possibles (alias) ; un label seul sur sa ligne va a l'instruction suivante
+            while len(inst)!=0 and inst[0][-1:] == ':':
                 SYMB[inst[0][0:-1]] = n
-            else:
+                inst = inst[1:]
+            if len(inst)!=0:
                 PROG.append(inst)
-            NUML.append(i)
-            n=n+1
+                NUML.append(i)
+                n=n+1
+
+# cible de chaque saut, resolue une fois pour toutes : pas de recherche de label a l'execution
+TARGET = []
+for inst in PROG:
+    if inst[0] in ["JMP","CALL"] and len(inst) > 1:
+        TARGET.append(SYMB.get(inst[1],-1))
+    elif inst[0] in ["JEQU","JNEQ","JSUP","JINF","JIEQ","JSEQ"] and len(inst) > 3:
+        TARGET.append(SYMB.get(inst[3],-1))
+    else:
+        TARGET.append(-1)
 
 # ouverture des fichiers d'E/S
 
@@ -255,40 +266,40 @@ while PROG[CO][0] != "STOP":
     # controle
 
     elif PROG[CO][0] == "JMP":
-        CO = SYMB[PROG[CO][1]]
+        CO = TARGET[CO]
     elif PROG[CO][0] == "CALL":
         PILE.append(CO+1)
-        CO = SYMB[PROG[CO][1]]
+        CO = TARGET[CO]
     elif PROG[CO][0] == "RET":
         CO = PILE.pop()
     elif PROG[CO][0] == "JEQU":
         if REG[decodeREG(PROG[CO][1])] == REG[decodeREG(PROG[CO][2])]:
-            CO = SYMB[PROG[CO][3]]
+            CO = TARGET[CO]
         else:
             CO = CO + 1
     elif PROG[CO][0] == "JNEQ":
         if REG[decodeREG(PROG[CO][1])] != REG[decodeREG(PROG[CO][2])]:
-            CO = SYMB[PROG[CO][3]]
+            CO = TARGET[CO]
         else:
             CO = CO + 1
     elif PROG[CO][0] == "JSUP":
         if REG[decodeREG(PROG[CO][1])] > REG[decodeREG(PROG[CO][2])]:
-            CO = SYMB[PROG[CO][3]]
+            CO = TARGET[CO]
         else:
             CO = CO + 1
     elif PROG[CO][0] == "JINF":
         if REG[decodeREG(PROG[CO][1])] < REG[decodeREG(PROG[CO][2])]:
-            CO = SYMB[PROG[CO][3]]
+            CO = TARGET[CO]
         else:
             CO = CO + 1
     elif PROG[CO][0] == "JIEQ":
         if REG[decodeREG(PROG[CO][1])] <= REG[decodeREG(PROG[CO][2])]:
-            CO = SYMB[PROG[CO][3]]
+            CO = TARGET[CO]
         else:
             CO = CO + 1
     elif PROG[CO][0] == "JSEQ":
         if REG[decodeREG(PROG[CO][1])] >= REG[decodeREG(PROG[CO][2])]:
-            CO = SYMB[PROG[CO][3]]
+            CO = TARGET[CO]
         else:
             CO = CO + 1
     # Entrees / Sorties simplifiees